@@ -0,0 +1,214 @@
+package com.messages.engine.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executor running the tasks of one key one after another, in submission order, and the tasks of different
+ * keys in parallel on a shared delegate executor.
+ * <p>
+ * Each key with pending tasks has a lane: a FIFO queue of at most {@code maxQueuedPerKey} tasks, drained by a
+ * single task on the delegate at a time. A drain runs up to {@value #DRAIN_BATCH} tasks, then resubmits itself
+ * so that a busy key does not hold a delegate thread while other keys wait. A lane is removed as soon as it is
+ * drained, so idle keys cost nothing. Lanes are only accessed inside {@code compute} calls of the lane map.
+ * </p>
+ * <p>
+ * Meters, tagged with {@code executor=<name>}: {@code chat.executor.keys} (keys with pending tasks),
+ * {@code chat.executor.key.queued.max} (deepest lane), {@code chat.executor.key.drained} (tasks run per drain),
+ * {@code chat.executor.key.hot} (lanes reaching half their capacity; each one is logged with its key) and
+ * {@code chat.executor.key.rejected} (tasks rejected because their lane was full).
+ * </p>
+ *
+ * @param <K> the key type.
+ */
+@Slf4j
+public class KeyedOrderedExecutor<K> {
+
+    private static final int DRAIN_BATCH = 32;
+
+    private final String name;
+    private final Executor delegate;
+    private final int maxQueuedPerKey;
+    private final Map<K, Lane> lanes = new ConcurrentHashMap<>();
+    private final DistributionSummary drained;
+    private final Counter hotKeys;
+    private final Counter rejected;
+
+    /**
+     * Pending tasks of one key.
+     */
+    private final class Lane implements Runnable {
+        private final K key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        private boolean hot;
+
+        private Lane(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            int ran = 0;
+            while (true) {
+                Runnable task;
+                while (ran < DRAIN_BATCH && (task = poll(this)) != null) {
+                    runSafely(key, task);
+                    ran++;
+                }
+                drained.record(ran);
+                ran = 0;
+                if (!release(this)) {
+                    return;
+                }
+                try {
+                    delegate.execute(this);
+                    return;
+                } catch (RejectedExecutionException ex) {
+                    // The delegate is saturated or shutting down: keep draining on this thread.
+                    log.debug("Executor {} continues draining key {} in place: {}", name, key, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the executor and registers its meters.
+     *
+     * @param name            name used for the {@code executor} tag.
+     * @param delegate        the executor running the drains.
+     * @param maxQueuedPerKey maximum number of pending tasks per key; further tasks of the key are rejected.
+     * @param meterRegistry   the registry to publish meters to.
+     */
+    public KeyedOrderedExecutor(String name, Executor delegate, int maxQueuedPerKey, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.delegate = delegate;
+        this.maxQueuedPerKey = maxQueuedPerKey;
+        Gauge.builder("chat.executor.keys", lanes, Map::size)
+                .tag("executor", name).description("Keys with pending or running tasks")
+                .register(meterRegistry);
+        Gauge.builder("chat.executor.key.queued.max", this, KeyedOrderedExecutor::maxQueued)
+                .tag("executor", name).description("Pending tasks of the key with the most pending tasks")
+                .register(meterRegistry);
+        this.drained = DistributionSummary.builder("chat.executor.key.drained")
+                .tag("executor", name).description("Tasks of one key run by one drain")
+                .register(meterRegistry);
+        this.hotKeys = Counter.builder("chat.executor.key.hot")
+                .tag("executor", name).description("Keys whose pending tasks reached half the per-key capacity")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("chat.executor.key.rejected")
+                .tag("executor", name).description("Tasks rejected because their key had too many pending tasks")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a task after all tasks previously submitted with the same key.
+     *
+     * @param key  the ordering key; tasks with a {@code null} key are not ordered and go straight to the delegate.
+     * @param task the task.
+     * @throws RejectedExecutionException if the key has {@code maxQueuedPerKey} pending tasks, or the delegate
+     *                                    rejected the drain of a new lane.
+     */
+    public void execute(K key, Runnable task) {
+        if (key == null) {
+            delegate.execute(task);
+            return;
+        }
+        boolean[] schedule = new boolean[1];
+        Lane lane = lanes.compute(key, (k, current) -> {
+            Lane target = current != null ? current : new Lane(k);
+            if (target.tasks.size() >= maxQueuedPerKey) {
+                rejected.increment();
+                throw new RejectedExecutionException(
+                        "Executor " + name + " has " + maxQueuedPerKey + " pending tasks for key " + k);
+            }
+            target.tasks.add(task);
+            if (!target.hot && target.tasks.size() >= Math.max(1, maxQueuedPerKey / 2)) {
+                target.hot = true;
+                hotKeys.increment();
+                log.warn("Executor {} has {} pending tasks for key {}", name, target.tasks.size(), k);
+            }
+            schedule[0] = current == null;
+            return target;
+        });
+        if (schedule[0]) {
+            try {
+                delegate.execute(lane);
+            } catch (RejectedExecutionException ex) {
+                boolean others = lanes.computeIfPresent(key, (k, current) -> {
+                    current.tasks.remove(task);
+                    return current.tasks.isEmpty() ? null : current;
+                }) != null;
+                if (others) {
+                    // Tasks submitted meanwhile expect this lane to be drained; nobody else will.
+                    lane.run();
+                }
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Returns an executor submitting its tasks with the given key.
+     *
+     * @param key the ordering key.
+     * @return an executor view of this executor for the key.
+     */
+    public Executor forKey(K key) {
+        return task -> execute(key, task);
+    }
+
+    /**
+     * Returns the number of keys with pending or running tasks.
+     *
+     * @return the number of lanes.
+     */
+    public int getActiveKeys() {
+        return lanes.size();
+    }
+
+    private Runnable poll(Lane lane) {
+        Runnable[] task = new Runnable[1];
+        lanes.computeIfPresent(lane.key, (k, current) -> {
+            task[0] = current.tasks.poll();
+            return current;
+        });
+        return task[0];
+    }
+
+    /**
+     * Removes a drained lane; returns whether the lane has pending tasks and must be drained again.
+     */
+    private boolean release(Lane lane) {
+        return lanes.computeIfPresent(lane.key, (k, current) -> current.tasks.isEmpty() ? null : current) != null;
+    }
+
+    private void runSafely(K key, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            log.error("Task of key {} failed on executor {}: {}", key, name, ex.getMessage(), ex);
+        }
+    }
+
+    private double maxQueued() {
+        int[] max = new int[1];
+        for (K key : lanes.keySet()) {
+            lanes.computeIfPresent(key, (k, current) -> {
+                max[0] = Math.max(max[0], current.tasks.size());
+                return current;
+            });
+        }
+        return max[0];
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.messages.engine.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link TaskExecutor} decorator that publishes queue depth, active tasks, queue wait time,
+ * task duration and rejections of the wrapped executor to Micrometer.
+ * <p>
+ * Meters are tagged with {@code executor=<name>}:
+ * {@code chat.executor.queued}, {@code chat.executor.active} (gauges),
+ * {@code chat.executor.queue.wait}, {@code chat.executor.task.duration} (timers) and
+ * {@code chat.executor.rejected} (counter). The same meters work for virtual-thread executors,
+ * which have no queue of their own but do show how many tasks are waiting to be scheduled.
+ * </p>
+ */
+@Slf4j
+public class MeteredExecutor implements TaskExecutor, AutoCloseable {
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer queueWait;
+    private final Timer taskDuration;
+    private final Counter rejected;
+
+    /**
+     * Wraps an executor and registers its meters.
+     *
+     * @param name          name used for the {@code executor} tag.
+     * @param delegate      the executor running the tasks.
+     * @param meterRegistry the registry to publish meters to.
+     */
+    public MeteredExecutor(String name, ExecutorService delegate, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.delegate = delegate;
+        Gauge.builder("chat.executor.queued", queued, AtomicInteger::get)
+                .tag("executor", name).description("Tasks submitted but not yet started")
+                .register(meterRegistry);
+        Gauge.builder("chat.executor.active", active, AtomicInteger::get)
+                .tag("executor", name).description("Tasks currently running")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("chat.executor.queue.wait")
+                .tag("executor", name).description("Time between submission and start of a task")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.taskDuration = Timer.builder("chat.executor.task.duration")
+                .tag("executor", name).description("Task run time")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("chat.executor.rejected")
+                .tag("executor", name).description("Tasks rejected because the executor was saturated")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submits a task to the wrapped executor.
+     *
+     * @param task the task.
+     * @throws RejectedExecutionException if the executor is saturated or shut down.
+     */
+    @Override
+    public void execute(Runnable task) {
+        long submittedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                long startedAt = System.nanoTime();
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    taskDuration.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            queued.decrementAndGet();
+            rejected.increment();
+            log.warn("Executor {} rejected a task: {}", name, ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the number of tasks submitted but not yet started.
+     *
+     * @return the queue depth.
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Stops accepting tasks and waits briefly for running tasks to finish.
+     */
+    @Override
+    public void close() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.messages.engine.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes JFR virtual thread pinning events as metrics while the application runs in virtual-thread mode.
+ * <p>
+ * A virtual thread blocking inside a {@code synchronized} block or a native frame keeps its carrier thread,
+ * which on Java 21 can starve the few carriers. Every {@code jdk.VirtualThreadPinned} event longer than
+ * {@code chat.virtual-threads.pinned-threshold} is recorded in the {@code chat.virtualthreads.pinned} timer,
+ * tagged with the pinning site: the first application frame of the stack, or the top frame if there is none.
+ * At most {@value #MAX_SITES} sites are tagged individually; each new site is logged once with its stack.
+ * Virtual threads that could not be scheduled are counted in {@code chat.virtualthreads.submit.failed}.
+ * </p>
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+    private static final String APPLICATION_PACKAGE = "com.messages.";
+    private static final int MAX_SITES = 32;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration threshold;
+    private final Map<String, Timer> pinnedBySite = new ConcurrentHashMap<>();
+    private final Counter submitFailed;
+    private RecordingStream stream;
+
+    /**
+     * Creates the monitor.
+     *
+     * @param meterRegistry registry for the pinning metrics.
+     * @param threshold     minimum duration of a recorded pinning event.
+     */
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${chat.virtual-threads.pinned-threshold:20ms}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+        this.submitFailed = Counter.builder("chat.virtualthreads.submit.failed")
+                .description("Virtual threads that could not be scheduled on a carrier thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts streaming the JFR events in the background.
+     */
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.enable(SUBMIT_FAILED_EVENT);
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.onEvent(SUBMIT_FAILED_EVENT, event -> submitFailed.increment());
+        stream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {}", threshold);
+    }
+
+    /**
+     * Stops the JFR stream.
+     */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = siteOf(event.getStackTrace());
+        Timer timer = pinnedBySite.get(site);
+        if (timer == null) {
+            if (pinnedBySite.size() >= MAX_SITES) {
+                site = "other";
+            } else {
+                log.warn("Virtual thread pinned for {} at {}", event.getDuration(), stackOf(event.getStackTrace()));
+            }
+            timer = pinnedBySite.computeIfAbsent(site, key -> Timer.builder("chat.virtualthreads.pinned")
+                    .description("Time virtual threads spent pinned to their carrier thread while blocked")
+                    .tag("site", key)
+                    .register(meterRegistry));
+        }
+        timer.record(event.getDuration());
+    }
+
+    private static String siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        RecordedFrame site = frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .orElse(frames.get(0));
+        return site.getMethod().getType().getName() + "." + site.getMethod().getName();
+    }
+
+    private static String stackOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "an unknown site";
+        }
+        StringBuilder stack = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            stack.append("\n\tat ").append(frame.getMethod().getType().getName()).append('.')
+                    .append(frame.getMethod().getName()).append(':').append(frame.getLineNumber());
+        }
+        return stack.toString();
+    }
+
+}
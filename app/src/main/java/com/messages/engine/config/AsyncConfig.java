@@ -1,32 +1,58 @@
 package com.messages.engine.config;
 
+import com.messages.engine.concurrent.KeyedOrderedExecutor;
+import com.messages.engine.concurrent.MeteredExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.task.TaskExecutor;
-import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.core.env.Environment;
 
 /**
  * Configuration for asynchronous task execution.
+ * <p>
+ * With {@code spring.threads.virtual.enabled}, the message processing executor runs on virtual threads, as do
+ * Tomcat's request threads, the RabbitMQ listener containers and the scheduler, which Spring Boot switches itself.
+ * </p>
  */
 @Configuration
-@EnableAsync
+@EnableConfigurationProperties(ProcessingProperties.class)
 public class AsyncConfig {
 
     /**
-     * Creates a custom TaskExecutor for heavy asynchronous tasks.
+     * Creates the executor running chat message processing ({@code chat.processing.executor}), so that
+     * the blocking JPA work never holds a Tomcat, STOMP channel or transport consumer thread.
      *
-     * @return a configured TaskExecutor.
+     * @param properties    processing settings.
+     * @param meterRegistry registry for the executor's saturation metrics.
+     * @param environment   environment telling whether the application runs in virtual-thread mode.
+     * @return a metered executor, closed with the context.
      */
-    @Bean(name = "heavyTaskExecutor")
-    public TaskExecutor heavyTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(50);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("HeavyTask-");
-        executor.initialize();
-        return executor;
+    @Bean(name = "messageProcessingExecutor", destroyMethod = "close")
+    public MeteredExecutor messageProcessingExecutor(ProcessingProperties properties, MeterRegistry meterRegistry,
+                                                     Environment environment) {
+        return new MeteredExecutor("message.processing",
+                properties.executor().inThreadingMode(environment).createExecutorService("message-processing-"),
+                meterRegistry);
+    }
+
+    /**
+     * Creates the executor processing the messages of each conversation in order, one at a time, on the
+     * message processing executor, so that for instance a JOIN is applied before the CHAT sent after it
+     * while different conversations are processed in parallel.
+     *
+     * @param executor      the message processing executor.
+     * @param properties    processing settings.
+     * @param meterRegistry registry for the per-conversation queue metrics.
+     * @return the per-conversation ordered executor.
+     */
+    @Bean
+    public KeyedOrderedExecutor<Long> conversationOrderedExecutor(
+            @Qualifier("messageProcessingExecutor") MeteredExecutor executor, ProcessingProperties properties,
+            MeterRegistry meterRegistry) {
+        return new KeyedOrderedExecutor<>("message.processing.conversations", executor,
+                properties.maxQueuedPerConversation(), meterRegistry);
     }
 
 }
@@ -0,0 +1,64 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings of an application executor: either one virtual thread per task, or a sized platform thread pool.
+ * <p>
+ * In the application-wide virtual-thread mode ({@code spring.threads.virtual.enabled}), every executor runs on
+ * virtual threads regardless of its own setting (see {@link #inThreadingMode}).
+ * </p>
+ *
+ * @param virtualThreads whether to run every task on its own virtual thread; the pool settings are then ignored.
+ * @param corePoolSize   number of platform threads kept alive.
+ * @param maxPoolSize    maximum number of platform threads, used once the queue is full.
+ * @param queueCapacity  capacity of the task queue; tasks beyond it are rejected.
+ * @param keepAlive      idle time after which threads above the core size are stopped.
+ */
+public record ExecutorProperties(@DefaultValue("false") boolean virtualThreads,
+                                 @DefaultValue("8") int corePoolSize,
+                                 @DefaultValue("32") int maxPoolSize,
+                                 @DefaultValue("10000") int queueCapacity,
+                                 @DefaultValue("60s") Duration keepAlive) {
+
+    /**
+     * Returns the settings to apply in the application's threading mode.
+     *
+     * @param environment the environment holding {@code spring.threads.virtual.enabled}.
+     * @return these settings, with virtual threads enabled if the application runs in virtual-thread mode.
+     */
+    public ExecutorProperties inThreadingMode(Environment environment) {
+        if (virtualThreads || !Threading.VIRTUAL.isActive(environment)) {
+            return this;
+        }
+        return new ExecutorProperties(true, corePoolSize, maxPoolSize, queueCapacity, keepAlive);
+    }
+
+    /**
+     * Creates the executor described by these settings.
+     *
+     * @param threadNamePrefix prefix of the thread names.
+     * @return a new ExecutorService; the caller is responsible for shutting it down.
+     */
+    public ExecutorService createExecutorService(String threadNamePrefix) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadNamePrefix, 0).factory());
+        }
+        return new ThreadPoolExecutor(corePoolSize, Math.max(corePoolSize, maxPoolSize),
+                keepAlive.toMillis(), TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory(threadNamePrefix),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+}
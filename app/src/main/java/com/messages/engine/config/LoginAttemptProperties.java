@@ -0,0 +1,25 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the login attempt limits ({@code chat.login-attempts.*}).
+ *
+ * @param maxFailuresPerUser failed logins of one username within the window after which the username is locked.
+ * @param maxFailuresPerIp   failed logins from one client address within the window after which the address is
+ *                           locked, whatever the usernames tried.
+ * @param window             length of the sliding window failures are counted in.
+ * @param lockTime           time a username or address stays locked.
+ * @param maxTrackedKeys     maximum number of usernames and addresses tracked; the least recently used are evicted
+ *                           first, so a flood of distinct usernames cannot exhaust the memory.
+ */
+@ConfigurationProperties(prefix = "chat.login-attempts")
+public record LoginAttemptProperties(@DefaultValue("5") int maxFailuresPerUser,
+                                     @DefaultValue("20") int maxFailuresPerIp,
+                                     @DefaultValue("15m") Duration window,
+                                     @DefaultValue("15m") Duration lockTime,
+                                     @DefaultValue("100000") long maxTrackedKeys) {
+}
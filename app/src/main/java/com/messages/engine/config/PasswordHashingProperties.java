@@ -0,0 +1,32 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of password hashing ({@code chat.password-hashing.*}).
+ *
+ * @param strength      BCrypt work factor (log2 of the rounds) of new hashes; stored hashes of another work factor
+ *                      are rehashed on the next successful login.
+ * @param threads       number of threads hashing passwords; {@code 0} for one per available processor.
+ * @param queueCapacity maximum number of hashing requests waiting for a thread; further requests are rejected.
+ * @param queueTimeout  maximum time a hashing request may wait for a thread; older requests are rejected instead
+ *                      of being hashed for a client that has likely given up.
+ */
+@ConfigurationProperties(prefix = "chat.password-hashing")
+public record PasswordHashingProperties(@DefaultValue("10") int strength,
+                                        @DefaultValue("0") int threads,
+                                        @DefaultValue("256") int queueCapacity,
+                                        @DefaultValue("2s") Duration queueTimeout) {
+
+    /**
+     * Returns the number of hashing threads.
+     *
+     * @return {@link #threads}, or the number of available processors if it is {@code 0}.
+     */
+    public int threadCount() {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+}
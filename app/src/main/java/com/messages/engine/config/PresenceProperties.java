@@ -0,0 +1,25 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory presence and typing indicator subsystem ({@code chat.presence.*}).
+ *
+ * @param ttl            time after the last frame of a session (including heartbeats) after which it counts as gone.
+ * @param tick           resolution of the timing wheels expiring sessions and typing indicators.
+ * @param wheelSize      number of buckets per timing wheel; {@code wheelSize * tick} should cover the TTL.
+ * @param typingThrottle minimum interval between two TYPING events forwarded for the same user and conversation.
+ * @param typingTimeout  time without typing signals after which TYPING_STOPPED is sent.
+ * @param crossNode      whether presence events are propagated to every node through a RabbitMQ fanout exchange.
+ */
+@ConfigurationProperties(prefix = "chat.presence")
+public record PresenceProperties(@DefaultValue("30s") Duration ttl,
+                                 @DefaultValue("1s") Duration tick,
+                                 @DefaultValue("64") int wheelSize,
+                                 @DefaultValue("2s") Duration typingThrottle,
+                                 @DefaultValue("5s") Duration typingTimeout,
+                                 @DefaultValue("false") boolean crossNode) {
+}
@@ -0,0 +1,22 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of chat message processing ({@code chat.processing.*}).
+ *
+ * @param executor                 executor running the blocking persistence work of {@code MessageTypeProcessor}.
+ * @param timeout                  deadline of a message from its submission: a message not started by then is
+ *                                 skipped and reported as failed; one that started gets the remaining time as the
+ *                                 timeout of its transaction.
+ * @param maxQueuedPerConversation maximum number of messages of one conversation waiting to be processed, one at
+ *                                 a time in order; further messages of the conversation are rejected.
+ */
+@ConfigurationProperties(prefix = "chat.processing")
+public record ProcessingProperties(@DefaultValue ExecutorProperties executor,
+                                   @DefaultValue("30s") Duration timeout,
+                                   @DefaultValue("1000") int maxQueuedPerConversation) {
+}
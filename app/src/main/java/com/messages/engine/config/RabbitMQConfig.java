@@ -4,13 +4,20 @@ import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * Configuration for RabbitMQ used in chat messaging.
+ * <p>
+ * Only active with the AMQP chat transport ({@code chat.transport.type=amqp}, the default).
+ * </p>
  */
 @Configuration
+@ConditionalOnProperty(prefix = "chat.transport", name = "type", havingValue = "amqp", matchIfMissing = true)
 public class RabbitMQConfig {
 
     /** Name of the chat exchange. */
@@ -54,4 +61,14 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(queue).to(exchange).with(CHAT_ROUTING_KEY);
     }
 
+    /**
+     * Serializes chat messages as JSON so that records can travel through RabbitMQ.
+     *
+     * @return the JSON MessageConverter used by the RabbitTemplate and listener containers.
+     */
+    @Bean
+    public MessageConverter jsonMessageConverter() {
+        return new Jackson2JsonMessageConverter();
+    }
+
 }
@@ -0,0 +1,13 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the per-user and per-conversation rate limits ({@code chat.rate-limit.*}), applied to HTTP
+ * requests and to inbound STOMP frames.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitConfig {
+}
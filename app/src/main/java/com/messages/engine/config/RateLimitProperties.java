@@ -0,0 +1,49 @@
+package com.messages.engine.config;
+
+import com.messages.engine.ratelimit.EndpointClass;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Settings of the request rate limits ({@code chat.rate-limit.*}).
+ *
+ * @param enabled         whether requests are limited at all.
+ * @param endpoints       token bucket of each user per endpoint class; classes without one are not limited.
+ * @param perConversation token bucket of each conversation, shared by all its senders; {@code null}: unlimited.
+ * @param maxTrackedKeys  maximum number of buckets kept; the least recently used are evicted first.
+ * @param idleTimeout     time after which an unused bucket is dropped; should exceed the time a bucket takes to
+ *                        refill, as a dropped bucket starts again full.
+ */
+@ConfigurationProperties(prefix = "chat.rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  Map<EndpointClass, Limit> endpoints,
+                                  Limit perConversation,
+                                  @DefaultValue("100000") long maxTrackedKeys,
+                                  @DefaultValue("10m") Duration idleTimeout) {
+
+    public RateLimitProperties {
+        endpoints = endpoints == null ? Map.of() : Map.copyOf(endpoints);
+    }
+
+    /**
+     * A token bucket.
+     *
+     * @param capacity        largest burst admitted.
+     * @param refillPerSecond tokens added per second, i.e. the sustained rate admitted.
+     */
+    public record Limit(int capacity, double refillPerSecond) {
+
+        /**
+         * Returns the time to refill one token.
+         *
+         * @return the emission interval in nanoseconds.
+         */
+        public long intervalNanos() {
+            return (long) (1_000_000_000L / refillPerSecond);
+        }
+    }
+
+}
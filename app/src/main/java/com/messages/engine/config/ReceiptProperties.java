@@ -0,0 +1,19 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the delivery and read receipts ({@code chat.receipts.*}).
+ *
+ * @param flushInterval interval at which aggregated receipts are written and broadcast.
+ * @param maxPending    number of pending (conversation, user) watermarks that triggers a flush before the interval.
+ * @param batchSize     number of watermark upserts per JDBC batch.
+ */
+@ConfigurationProperties(prefix = "chat.receipts")
+public record ReceiptProperties(@DefaultValue("1s") Duration flushInterval,
+                                @DefaultValue("10000") int maxPending,
+                                @DefaultValue("500") int batchSize) {
+}
@@ -0,0 +1,26 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the per-conversation replay buffers used to resume subscriptions ({@code chat.replay.*}).
+ *
+ * @param enabled             whether recent messages are buffered and resume requests are served.
+ * @param bufferSize          number of recent messages kept per conversation.
+ * @param maxConversations    maximum number of conversations with a buffer; the least recently used are dropped.
+ * @param idleTimeout         time without messages or resumes after which a conversation's buffer is dropped.
+ * @param maxFallbackMessages maximum number of messages replayed from the database when the buffer does not
+ *                            cover the gap; clients further behind reload the history.
+ * @param fallbackExecutor    executor running the database fallback queries.
+ */
+@ConfigurationProperties(prefix = "chat.replay")
+public record ReplayProperties(@DefaultValue("true") boolean enabled,
+                               @DefaultValue("256") int bufferSize,
+                               @DefaultValue("10000") int maxConversations,
+                               @DefaultValue("10m") Duration idleTimeout,
+                               @DefaultValue("500") int maxFallbackMessages,
+                               @DefaultValue ExecutorProperties fallbackExecutor) {
+}
@@ -0,0 +1,12 @@
+package com.messages.engine.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} methods for periodic housekeeping such as metric sampling.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
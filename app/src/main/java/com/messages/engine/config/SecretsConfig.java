@@ -0,0 +1,46 @@
+package com.messages.engine.config;
+
+import com.messages.engine.service.CachingSecretProvider;
+import com.messages.engine.service.LocalSecretProvider;
+import com.messages.engine.service.SecretManagerService;
+import com.messages.engine.service.SecretProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration of the application's {@link SecretProvider}.
+ */
+@Configuration
+@EnableConfigurationProperties(SecretsProperties.class)
+public class SecretsConfig {
+
+    /**
+     * Creates the secret provider: the source selected by {@code chat.secrets.provider} behind a refresh-ahead
+     * cache, so that secrets are read from the source once and then refreshed off the callers' threads.
+     *
+     * @param properties     secret settings.
+     * @param resourceLoader loader of the files of the local provider.
+     * @param environment    environment holding the secrets of the local provider.
+     * @param meterRegistry  registry for the cache meters.
+     * @return the caching provider, closing its source with the context.
+     */
+    @Bean(destroyMethod = "close")
+    public CachingSecretProvider secretProvider(SecretsProperties properties, ResourceLoader resourceLoader,
+                                                Environment environment, MeterRegistry meterRegistry) {
+        SecretProvider source = switch (properties.provider()) {
+            case GCP -> new SecretManagerService();
+            case LOCAL -> new LocalSecretProvider(resourceLoader, properties.localLocation(), environment);
+        };
+        // Loads block on the network: run them on virtual threads rather than the common pool.
+        return new CachingSecretProvider(source, properties.refreshAfter(),
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("secrets-", 0).factory()),
+                meterRegistry);
+    }
+
+}
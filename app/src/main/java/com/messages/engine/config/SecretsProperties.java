@@ -0,0 +1,30 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the secret provider ({@code chat.secrets.*}).
+ *
+ * @param provider      where secrets are read from.
+ * @param refreshAfter  age after which a cached secret is reloaded in the background when read; the cached value
+ *                      keeps being served while reloading, and if reloading fails.
+ * @param localLocation location of the secret files of the {@code local} provider.
+ */
+@ConfigurationProperties(prefix = "chat.secrets")
+public record SecretsProperties(@DefaultValue("gcp") Provider provider,
+                                @DefaultValue("10m") Duration refreshAfter,
+                                @DefaultValue("file:./secrets/") String localLocation) {
+
+    /**
+     * Secret sources.
+     */
+    public enum Provider {
+        /** Google Cloud Secret Manager. */
+        GCP,
+        /** Environment variables and files, see {@code LocalSecretProvider}. */
+        LOCAL
+    }
+}
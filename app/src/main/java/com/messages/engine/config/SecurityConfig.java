@@ -1,14 +1,25 @@
 package com.messages.engine.config;
 
+import com.messages.engine.concurrent.MeteredExecutor;
+import com.messages.engine.controller.JwksController;
+import com.messages.engine.ratelimit.RateLimitFilter;
+import com.messages.engine.security.ChatJwtAuthenticationConverter;
 import com.messages.engine.security.CustomUserDetailsService;
 import com.messages.engine.security.JwtAuthenticationFilter;
 import com.messages.engine.security.JwtTokenProvider;
 import com.messages.engine.security.JwtUsernamePasswordAuthenticationFilter;
+import com.messages.engine.security.KeyRingJwtDecoder;
+import com.messages.engine.security.LoginAttemptService;
+import com.messages.engine.security.OffloadedPasswordEncoder;
+import com.messages.engine.security.RefreshTokenService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -20,11 +31,14 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 
+import java.time.Duration;
+
 /**
  * Security configuration using Spring Security 6's modern DSL.
  * <p>
  * This configuration disables CSRF, configures stateless session management,
- * and permits public access to authentication endpoints (e.g. signup/signin).
+ * and permits public access to authentication endpoints (e.g. signup/signin/refresh), the JWK Set of the token
+ * keys and the WebSocket handshake endpoints, whose STOMP sessions authenticate on CONNECT.
  * All other endpoints require authentication.
  * A JwtAuthenticationFilter is added to validate JWT tokens in incoming requests.
  * </p>
@@ -32,6 +46,7 @@ import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
+@EnableConfigurationProperties({LoginAttemptProperties.class, PasswordHashingProperties.class})
 @RequiredArgsConstructor
 public class SecurityConfig {
 
@@ -39,6 +54,19 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter; // For validating JWT on subsequent requests
 
+    private final KeyRingJwtDecoder jwtDecoder;
+
+    private final ChatJwtAuthenticationConverter jwtAuthenticationConverter;
+
+    private final RefreshTokenService refreshTokenService;
+
+    private final RateLimitFilter rateLimitFilter;
+
+    private final LoginAttemptService loginAttemptService;
+
+    @Value("${chat.websocket.native-endpoint.path:/ws-native}")
+    private String nativeWebSocketPath;
+
     /**
      * Configures the HTTP security filter chain using the new lambda DSL.
      *
@@ -49,7 +77,8 @@ public class SecurityConfig {
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationManager authManager) throws Exception {
         // Custom login filter instance and set the authentication manager
-        JwtUsernamePasswordAuthenticationFilter loginFilter = new JwtUsernamePasswordAuthenticationFilter(jwtTokenProvider);
+        JwtUsernamePasswordAuthenticationFilter loginFilter = new JwtUsernamePasswordAuthenticationFilter(
+                jwtTokenProvider, refreshTokenService, loginAttemptService);
         loginFilter.setAuthenticationManager(authManager);
         // Set the login URL for our filter; for example: /api/auth/login
         loginFilter.setFilterProcessesUrl("/api/auth/login");
@@ -62,25 +91,55 @@ public class SecurityConfig {
                         session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 // Define authorization rules:
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/signup", "/api/auth/login").permitAll()
+                        .requestMatchers("/api/auth/signup", "/api/auth/login", "/api/auth/refresh").permitAll()
+                        .requestMatchers(JwksController.JWKS_PATH).permitAll()
+                        // WebSocket handshakes; sessions authenticate on STOMP CONNECT.
+                        .requestMatchers("/ws/**", nativeWebSocketPath).permitAll()
                         .anyRequest().authenticated())
                 // Custom login filter at the position of the default UsernamePasswordAuthenticationFilter.
                 .addFilterAt(loginFilter, UsernamePasswordAuthenticationFilter.class)
                 // Also add our JWT authentication filter before the UsernamePasswordAuthenticationFilter
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
-                .oauth2ResourceServer(oauth2 -> oauth2.jwt(Customizer.withDefaults()));
+                // Rate limits, once the caller is known and before the login filter, so logins are counted too.
+                .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
+                // Resource server tokens are verified with the same key ring (and verified-token cache).
+                .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt
+                        .decoder(jwtDecoder)
+                        .jwtAuthenticationConverter(jwtAuthenticationConverter)));
 
         return http.build();
     }
 
     /**
-     * Provides a PasswordEncoder bean using BCrypt.
+     * Creates the executor hashing passwords ({@code chat.password-hashing}): a platform thread pool sized to the
+     * processors, since hashing is CPU-bound, with a bounded queue.
+     *
+     * @param properties    password hashing settings.
+     * @param meterRegistry registry for the executor's saturation metrics.
+     * @return a metered executor, closed with the context.
+     */
+    @Bean(name = "passwordHashingExecutor", destroyMethod = "close")
+    public MeteredExecutor passwordHashingExecutor(PasswordHashingProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        ExecutorProperties pool = new ExecutorProperties(false, properties.threadCount(), properties.threadCount(),
+                properties.queueCapacity(), Duration.ofSeconds(60));
+        return new MeteredExecutor("password.hashing", pool.createExecutorService("password-hashing-"),
+                meterRegistry);
+    }
+
+    /**
+     * Provides a PasswordEncoder bean using BCrypt with the configured work factor, hashing on the password
+     * hashing executor rather than on the request threads.
      *
-     * @return a BCryptPasswordEncoder instance.
+     * @param properties password hashing settings.
+     * @param executor   the password hashing executor.
+     * @return the password encoder.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties,
+                                           @Qualifier("passwordHashingExecutor") MeteredExecutor executor) {
+        return new OffloadedPasswordEncoder(new BCryptPasswordEncoder(properties.strength()), properties.strength(),
+                executor, properties.queueTimeout());
     }
 
     /**
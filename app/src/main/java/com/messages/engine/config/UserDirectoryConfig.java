@@ -0,0 +1,14 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration of the user directory: the near-cache of the users ({@code chat.users.*}), the user search
+ * ({@code chat.user-search.*}) and the paged user listing ({@code chat.user-listing.*}).
+ */
+@Configuration
+@EnableConfigurationProperties({UserDirectoryProperties.class, UserSearchProperties.class,
+        UserListingProperties.class})
+public class UserDirectoryConfig {
+}
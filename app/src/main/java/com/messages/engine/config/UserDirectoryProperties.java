@@ -0,0 +1,20 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the user directory cache ({@code chat.users.*}).
+ *
+ * @param maxSize   maximum number of users cached, by id and by name each.
+ * @param ttl       time after which a cached user is loaded again, bounding the staleness of entries whose
+ *                  invalidation was missed.
+ * @param crossNode whether invalidations are broadcast to the other nodes through RabbitMQ.
+ */
+@ConfigurationProperties(prefix = "chat.users")
+public record UserDirectoryProperties(@DefaultValue("10000") long maxSize,
+                                      @DefaultValue("5m") Duration ttl,
+                                      @DefaultValue("false") boolean crossNode) {
+}
@@ -0,0 +1,15 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the paged user listing ({@code chat.user-listing.*}).
+ *
+ * @param defaultLimit number of users per page when the request sets no limit.
+ * @param maxLimit     maximum number of users per page.
+ */
+@ConfigurationProperties(prefix = "chat.user-listing")
+public record UserListingProperties(@DefaultValue("50") int defaultLimit,
+                                    @DefaultValue("500") int maxLimit) {
+}
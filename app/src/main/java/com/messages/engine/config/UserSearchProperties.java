@@ -0,0 +1,20 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the user search ({@code chat.user-search.*}).
+ *
+ * @param defaultLimit     number of users returned when the request sets no limit.
+ * @param maxLimit         maximum number of users returned.
+ * @param fuzzy            whether prefix matches are completed with fuzzy matches of the {@code pg_trgm} index;
+ *                         requires PostgreSQL with the {@code pg_trgm} extension.
+ * @param fuzzyMinLength   minimum length of a search for fuzzy matches; shorter ones share too few trigrams.
+ */
+@ConfigurationProperties(prefix = "chat.user-search")
+public record UserSearchProperties(@DefaultValue("10") int defaultLimit,
+                                   @DefaultValue("50") int maxLimit,
+                                   @DefaultValue("true") boolean fuzzy,
+                                   @DefaultValue("3") int fuzzyMinLength) {
+}
@@ -0,0 +1,69 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the STOMP message broker behind the WebSocket endpoints ({@code chat.websocket.broker.*}).
+ *
+ * @param mode              {@code simple} for the in-memory broker (single node), {@code relay} to relay to an
+ *                          external STOMP broker such as RabbitMQ with the STOMP plugin (multi-node fan-out).
+ * @param relay             connection settings used in relay mode.
+ * @param heartbeatInterval interval at which the simple broker sends heartbeats to clients and expects
+ *                          them from clients, in ms (0 disables); in relay mode the external broker negotiates them.
+ */
+@ConfigurationProperties(prefix = "chat.websocket.broker")
+public record WebSocketBrokerProperties(@DefaultValue("simple") Mode mode,
+                                        @DefaultValue Relay relay,
+                                        @DefaultValue("10000") long heartbeatInterval) {
+
+    /**
+     * Broker implementation.
+     */
+    public enum Mode {
+        SIMPLE,
+        RELAY
+    }
+
+    /**
+     * Connection settings of the external STOMP broker.
+     *
+     * @param host                           broker host.
+     * @param port                           broker STOMP port.
+     * @param virtualHost                    virtual host sent in CONNECT frames; null for the broker default.
+     * @param clientLogin                    login used for the connections opened on behalf of WebSocket clients.
+     * @param clientPasscode                 passcode used for the client connections.
+     * @param systemLogin                    login of the shared system connection used to publish messages.
+     * @param systemPasscode                 passcode of the system connection.
+     * @param systemHeartbeatSendInterval    interval at which the system connection sends heartbeats, in ms (0 disables).
+     * @param systemHeartbeatReceiveInterval interval at which the broker is expected to send heartbeats, in ms (0 disables).
+     * @param pool                           TCP connection pool settings.
+     */
+    public record Relay(@DefaultValue("localhost") String host,
+                        @DefaultValue("61613") int port,
+                        String virtualHost,
+                        @DefaultValue("guest") String clientLogin,
+                        @DefaultValue("guest") String clientPasscode,
+                        @DefaultValue("guest") String systemLogin,
+                        @DefaultValue("guest") String systemPasscode,
+                        @DefaultValue("10000") long systemHeartbeatSendInterval,
+                        @DefaultValue("10000") long systemHeartbeatReceiveInterval,
+                        @DefaultValue Pool pool) {
+    }
+
+    /**
+     * TCP connection pool of the relay. The relay holds one broker connection per WebSocket
+     * session plus the system connection, so {@code maxConnections} caps relayed sessions per node.
+     *
+     * @param maxConnections         maximum number of open broker connections.
+     * @param pendingAcquireTimeout  how long a new session waits for a free connection slot.
+     * @param pendingAcquireMaxCount maximum number of sessions waiting for a slot (-1 for no limit).
+     */
+    public record Pool(@DefaultValue("10000") int maxConnections,
+                       @DefaultValue("5s") Duration pendingAcquireTimeout,
+                       @DefaultValue("-1") int pendingAcquireMaxCount) {
+    }
+
+}
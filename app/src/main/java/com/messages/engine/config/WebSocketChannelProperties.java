@@ -0,0 +1,100 @@
+package com.messages.engine.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Executor and transport limits of the STOMP client channels ({@code chat.websocket.*}).
+ *
+ * @param inbound      settings of the channel carrying frames from clients to the application and broker.
+ * @param outbound     settings of the channel carrying frames from the broker to clients.
+ * @param transport    per-session WebSocket transport limits.
+ * @param slowConsumer   per-session outbound queue limits and the policy applied to sessions exceeding them.
+ * @param nativeEndpoint settings of the native (non-SockJS) WebSocket endpoint.
+ */
+@ConfigurationProperties(prefix = "chat.websocket")
+public record WebSocketChannelProperties(@DefaultValue Channel inbound,
+                                         @DefaultValue Channel outbound,
+                                         @DefaultValue Transport transport,
+                                         @DefaultValue SlowConsumer slowConsumer,
+                                         @DefaultValue NativeEndpoint nativeEndpoint) {
+
+    /**
+     * Settings of one client channel.
+     *
+     * @param preserveOrder whether frames of one session are handled in order even on a multi-threaded executor.
+     * @param executor      the executor running the channel's handlers.
+     */
+    public record Channel(@DefaultValue("true") boolean preserveOrder,
+                          @DefaultValue ExecutorProperties executor) {
+    }
+
+    /**
+     * Per-session WebSocket transport limits.
+     *
+     * @param messageSizeLimit   maximum size of an incoming STOMP frame, in bytes.
+     * @param sendBufferSizeLimit maximum amount of outbound data buffered for a session that is not keeping up, in bytes.
+     * @param sendTimeLimit      maximum time a single send to a session may take before the session is closed.
+     * @param timeToFirstMessage time after connecting within which the client must send its CONNECT frame.
+     */
+    public record Transport(@DefaultValue("65536") int messageSizeLimit,
+                            @DefaultValue("524288") int sendBufferSizeLimit,
+                            @DefaultValue("10s") Duration sendTimeLimit,
+                            @DefaultValue("60s") Duration timeToFirstMessage) {
+    }
+
+    /**
+     * What to do with a session whose outbound queue exceeds its limits.
+     */
+    public enum SlowConsumerPolicy {
+        /** Drop the oldest queued messages until the queue is within its limits. */
+        DROP_OLDEST,
+        /** Replace the queued messages with one "resync" marker per subscription carrying the number missed. */
+        RESYNC,
+        /** Close the session; the client has to reconnect and catch up. */
+        DISCONNECT
+    }
+
+    /**
+     * Per-session outbound queue accounting.
+     * <p>
+     * When enabled, each session has at most one MESSAGE frame in flight on the outbound channel;
+     * further frames wait in a bounded per-session queue, which also keeps them in order.
+     * </p>
+     *
+     * @param enabled       whether per-session outbound queues are used.
+     * @param maxMessages   maximum number of queued messages per session.
+     * @param maxBytes      maximum payload bytes queued per session.
+     * @param slowThreshold queued messages from which a session counts as slow in the metrics.
+     * @param policy        policy applied once a limit is exceeded.
+     */
+    public record SlowConsumer(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("500") int maxMessages,
+                               @DefaultValue("1048576") long maxBytes,
+                               @DefaultValue("100") int slowThreshold,
+                               @DefaultValue("RESYNC") SlowConsumerPolicy policy) {
+    }
+
+    /**
+     * Native WebSocket endpoint, registered next to the SockJS one.
+     * <p>
+     * Clients connecting here exchange plain WebSocket frames without SockJS's JSON framing, may
+     * subscribe to the {@code .bin} conversation topics carrying the compact binary encoding, and may
+     * negotiate per-message compression. The {@code .bin} topics are only fed with {@code binary-topics},
+     * as every message is then encoded and published a second time.
+     * </p>
+     *
+     * @param enabled           whether the endpoint is registered.
+     * @param path              the endpoint path.
+     * @param perMessageDeflate whether the {@code permessage-deflate} extension is accepted when requested.
+     * @param binaryTopics      whether messages are also published to the {@code .bin} conversation topics.
+     */
+    public record NativeEndpoint(@DefaultValue("true") boolean enabled,
+                                 @DefaultValue("/ws-native") String path,
+                                 @DefaultValue("true") boolean perMessageDeflate,
+                                 @DefaultValue("false") boolean binaryTopics) {
+    }
+
+}
@@ -1,18 +1,244 @@
 package com.messages.engine.config;
 
+import com.messages.engine.concurrent.MeteredExecutor;
+import com.messages.engine.presence.PresenceActivityInterceptor;
+import com.messages.engine.ratelimit.RateLimitInterceptor;
+import com.messages.engine.security.ConversationSubscriptionInterceptor;
+import com.messages.engine.security.StompAuthenticationInterceptor;
+import com.messages.engine.websocket.CoalescingSubscriptionInterceptor;
+import com.messages.engine.websocket.CompactChatMessageConverter;
+import com.messages.engine.websocket.PerMessageDeflateHandshakeHandler;
+import com.messages.engine.websocket.SessionOutboundQueueInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.TcpClient;
+
+import java.util.List;
+import java.util.Set;
 
 /**
  * Configuration for WebSocket messaging using STOMP.
+ * <p>
+ * The broker is selected with {@code chat.websocket.broker.mode}: the in-memory simple broker only
+ * delivers to sessions connected to the same node, while the relay mode forwards all {@code /topic}
+ * traffic to an external STOMP broker so that every node's sessions receive every broadcast.
+ * </p>
+ * <p>
+ * Sessions authenticate once, with a JWT on the STOMP CONNECT frame ({@link StompAuthenticationInterceptor});
+ * the handshake endpoints themselves are open.
+ * </p>
+ * <p>
+ * The client inbound and outbound channels run on dedicated, metered executors
+ * ({@code chat.websocket.inbound/outbound.executor}), either virtual threads or sized pools, so a
+ * handler blocked on I/O only holds its own thread instead of one of a few shared channel threads.
+ * Both use virtual threads in the application-wide virtual-thread mode ({@code spring.threads.virtual.enabled}).
+ * </p>
+ * <p>
+ * With {@code chat.websocket.slow-consumer.enabled}, frames to clients go through bounded per-session
+ * queues ({@link SessionOutboundQueueInterceptor}), which also take over keeping them in order.
+ * </p>
+ * <p>
+ * Next to the SockJS endpoint {@code /ws}, a native WebSocket endpoint ({@code chat.websocket.native-endpoint})
+ * carries binary STOMP frames: with {@code binary-topics}, clients subscribing to
+ * {@code /topic/conversations.{id}.bin} receive the compact encoding of {@link CompactChatMessageConverter}.
+ * Clients may negotiate {@code permessage-deflate}.
+ * </p>
  */
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties({WebSocketBrokerProperties.class, WebSocketChannelProperties.class,
+        PresenceProperties.class, ReplayProperties.class, ReceiptProperties.class})
+@RequiredArgsConstructor
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    /** Prefix of the destinations handled by the broker. */
+    public static final String BROKER_TOPIC_PREFIX = "/topic";
+
+    /**
+     * Prefix of the broker queues behind the user destinations; clients only reach them through {@code /user}.
+     */
+    public static final String BROKER_QUEUE_PREFIX = "/queue";
+
+    /** User destination on which a session receives the rejections of the frames it sent. */
+    public static final String USER_ERRORS_QUEUE = "/queue/errors";
+
+    /** Prefix of the per-conversation topics; the conversation id is appended. */
+    public static final String CONVERSATION_TOPIC_PREFIX = "/topic/conversations.";
+
+    /** Suffix of the conversation topic variant that carries coalesced batches. */
+    public static final String BATCH_TOPIC_SUFFIX = ".batch";
+
+    /** Suffix of the conversation topic variant that carries presence and typing events. */
+    public static final String PRESENCE_TOPIC_SUFFIX = ".presence";
+
+    /** Suffix of the conversation topic variant that carries messages in the compact binary encoding. */
+    public static final String BINARY_TOPIC_SUFFIX = ".bin";
+
+    /** Suffix of the conversation topic variant that carries batched delivery and read receipts. */
+    public static final String RECEIPTS_TOPIC_SUFFIX = ".receipts";
+
+    /** Suffixes of the conversation topic variants clients may subscribe to. */
+    public static final Set<String> CONVERSATION_TOPIC_SUFFIXES =
+            Set.of("", BATCH_TOPIC_SUFFIX, PRESENCE_TOPIC_SUFFIX, BINARY_TOPIC_SUFFIX, RECEIPTS_TOPIC_SUFFIX);
+
+    /** Interceptor that authenticates sessions on CONNECT and rejects frames of unauthenticated ones. */
+    private final StompAuthenticationInterceptor stompAuthenticationInterceptor;
+
+    /** Interceptor that rejects SEND frames exceeding their user's rate limit. */
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    /** Interceptor that restricts conversation topic subscriptions to participants. */
+    private final ConversationSubscriptionInterceptor conversationSubscriptionInterceptor;
+
+    /** Interceptor that redirects subscriptions requesting coalesced delivery. */
+    private final CoalescingSubscriptionInterceptor coalescingSubscriptionInterceptor;
+
+    /** Interceptor that keeps sessions alive in the presence tracker on every inbound frame. */
+    private final PresenceActivityInterceptor presenceActivityInterceptor;
+
+    /** Bounded per-session outbound queues, applied when slow consumer protection is enabled. */
+    private final SessionOutboundQueueInterceptor sessionOutboundQueueInterceptor;
+
+    /** Broker settings. */
+    private final WebSocketBrokerProperties brokerProperties;
+
+    /** Client channel executor and transport settings. */
+    private final WebSocketChannelProperties channelProperties;
+
+    /** Registry for the channel executor metrics. */
+    private final MeterRegistry meterRegistry;
+
+    /** Environment telling whether the application runs in virtual-thread mode. */
+    private final Environment environment;
+
+    /** Executor of the client inbound channel. */
+    private MeteredExecutor inboundExecutor;
+
+    /** Executor of the client outbound channel. */
+    private MeteredExecutor outboundExecutor;
+
+    /** Connection pool of the broker relay; null in simple broker mode. */
+    private ConnectionProvider relayConnectionProvider;
+
+    /** Scheduler of the simple broker's heartbeats; null in relay mode or with heartbeats disabled. */
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    /**
+     * Returns the topic to which messages of the given conversation are broadcast.
+     *
+     * @param conversationId the conversation id.
+     * @return the STOMP destination of the conversation topic.
+     */
+    public static String conversationTopic(Long conversationId) {
+        return CONVERSATION_TOPIC_PREFIX + conversationId;
+    }
+
+    /**
+     * Returns the topic to which coalesced batches of the given conversation are sent.
+     *
+     * @param conversationId the conversation id.
+     * @return the STOMP destination of the conversation's batch topic.
+     */
+    public static String conversationBatchTopic(Long conversationId) {
+        return conversationTopic(conversationId) + BATCH_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Returns the topic to which presence and typing events of the given conversation are sent.
+     *
+     * @param conversationId the conversation id.
+     * @return the STOMP destination of the conversation's presence topic.
+     */
+    public static String conversationPresenceTopic(Long conversationId) {
+        return conversationTopic(conversationId) + PRESENCE_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Returns the topic to which messages of the given conversation are sent in the compact binary encoding.
+     *
+     * @param conversationId the conversation id.
+     * @return the STOMP destination of the conversation's binary topic.
+     */
+    public static String conversationBinaryTopic(Long conversationId) {
+        return conversationTopic(conversationId) + BINARY_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Returns the topic to which batched receipts of the given conversation are sent.
+     *
+     * @param conversationId the conversation id.
+     * @return the STOMP destination of the conversation's receipts topic.
+     */
+    public static String conversationReceiptsTopic(Long conversationId) {
+        return conversationTopic(conversationId) + RECEIPTS_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Extracts the conversation id from a conversation topic destination.
+     *
+     * @param destination the destination.
+     * @return the conversation id, or null if the destination is not a conversation topic naming a single
+     *         conversation and a known topic variant.
+     */
+    public static Long conversationIdOf(String destination) {
+        if (destination == null || !destination.startsWith(CONVERSATION_TOPIC_PREFIX)) {
+            return null;
+        }
+        String topic = destination.substring(CONVERSATION_TOPIC_PREFIX.length());
+        int suffixStart = topic.indexOf('.');
+        String id = suffixStart < 0 ? topic : topic.substring(0, suffixStart);
+        String suffix = suffixStart < 0 ? "" : topic.substring(suffixStart);
+        if (id.isEmpty() || id.length() > 18 || !id.chars().allMatch(Character::isDigit)
+                || !CONVERSATION_TOPIC_SUFFIXES.contains(suffix)) {
+            return null;
+        }
+        return Long.parseLong(id);
+    }
+
+    /**
+     * Creates the pooled TCP client the broker relay uses to reach the external STOMP broker.
+     *
+     * @param relay    the relay settings.
+     * @param provider the connection pool.
+     * @return the TCP client.
+     */
+    public static ReactorNettyTcpClient<byte[]> relayTcpClient(WebSocketBrokerProperties.Relay relay,
+                                                               ConnectionProvider provider) {
+        TcpClient tcpClient = TcpClient.create(provider).host(relay.host()).port(relay.port());
+        return new ReactorNettyTcpClient<>(tcpClient, new StompReactorNettyCodec());
+    }
+
+    /**
+     * Creates the connection pool used by the broker relay.
+     *
+     * @param pool the pool settings.
+     * @return the connection provider.
+     */
+    public static ConnectionProvider relayConnectionProvider(WebSocketBrokerProperties.Pool pool) {
+        return ConnectionProvider.builder("stomp-broker-relay")
+                .maxConnections(pool.maxConnections())
+                .pendingAcquireTimeout(pool.pendingAcquireTimeout())
+                .pendingAcquireMaxCount(pool.pendingAcquireMaxCount())
+                .build();
+    }
+
     /**
      * Configures the message broker.
      *
@@ -20,10 +246,43 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Enable a simple in-memory broker for subscriptions on /topic.
-        registry.enableSimpleBroker("/topic");
+        if (brokerProperties.mode() == WebSocketBrokerProperties.Mode.RELAY) {
+            // Relay /topic and /queue to an external STOMP broker so broadcasts reach sessions on every node.
+            WebSocketBrokerProperties.Relay relay = brokerProperties.relay();
+            relayConnectionProvider = relayConnectionProvider(relay.pool());
+            registry.enableStompBrokerRelay(BROKER_TOPIC_PREFIX, BROKER_QUEUE_PREFIX)
+                    .setRelayHost(relay.host())
+                    .setRelayPort(relay.port())
+                    .setVirtualHost(relay.virtualHost())
+                    .setClientLogin(relay.clientLogin())
+                    .setClientPasscode(relay.clientPasscode())
+                    .setSystemLogin(relay.systemLogin())
+                    .setSystemPasscode(relay.systemPasscode())
+                    .setSystemHeartbeatSendInterval(relay.systemHeartbeatSendInterval())
+                    .setSystemHeartbeatReceiveInterval(relay.systemHeartbeatReceiveInterval())
+                    .setTcpClient(relayTcpClient(relay, relayConnectionProvider));
+            log.info("Relaying STOMP broker destinations to {}:{}", relay.host(), relay.port());
+        } else {
+            // Enable a simple in-memory broker for subscriptions on /topic and the user queues on /queue.
+            long heartbeat = brokerProperties.heartbeatInterval();
+            if (heartbeat > 0) {
+                // Have clients send heartbeats so idle sessions stay present and dead ones are detected.
+                heartbeatScheduler = new ThreadPoolTaskScheduler();
+                heartbeatScheduler.setThreadNamePrefix("ws-heartbeat-");
+                heartbeatScheduler.initialize();
+                registry.enableSimpleBroker(BROKER_TOPIC_PREFIX, BROKER_QUEUE_PREFIX)
+                        .setHeartbeatValue(new long[]{heartbeat, heartbeat})
+                        .setTaskScheduler(heartbeatScheduler);
+            } else {
+                registry.enableSimpleBroker(BROKER_TOPIC_PREFIX, BROKER_QUEUE_PREFIX);
+            }
+        }
         // Application destination prefix for mapping controller methods.
         registry.setApplicationDestinationPrefixes("/app");
+        // Keep the frames sent to one session in order when the outbound executor is multi-threaded;
+        // the per-session outbound queues already do so and must see every frame.
+        registry.setPreservePublishOrder(channelProperties.outbound().preserveOrder()
+                && !sessionOutboundQueueInterceptor.isEnabled());
     }
 
     /**
@@ -35,6 +294,97 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Endpoint clients will use to connect (with SockJS fallback).
         registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        WebSocketChannelProperties.NativeEndpoint nativeEndpoint = channelProperties.nativeEndpoint();
+        if (nativeEndpoint.enabled()) {
+            // Plain WebSocket endpoint: binary frames and optional permessage-deflate, no SockJS framing.
+            registry.addEndpoint(nativeEndpoint.path())
+                    .setAllowedOriginPatterns("*")
+                    .setHandshakeHandler(new PerMessageDeflateHandshakeHandler(nativeEndpoint.perMessageDeflate()));
+        }
+        // Handle the frames received from one session in order when the inbound executor is multi-threaded.
+        registry.setPreserveReceiveOrder(channelProperties.inbound().preserveOrder());
+    }
+
+    /**
+     * Adds the compact binary chat message encoding, used for {@code application/octet-stream} frames,
+     * in front of the default converters.
+     *
+     * @param messageConverters the converters to add to.
+     * @return {@code true} to keep the default converters.
+     */
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new CompactChatMessageConverter());
+        return true;
+    }
+
+    /**
+     * Configures the executor and interceptors for frames coming from clients.
+     *
+     * @param registration the inbound channel registration.
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        inboundExecutor = new MeteredExecutor("websocket.inbound",
+                channelProperties.inbound().executor().inThreadingMode(environment)
+                        .createExecutorService("ws-inbound-"), meterRegistry);
+        // Authenticate the session, enforce its rate limits, record its activity, negotiate the subscription variant,
+        // then authorize the resulting destination.
+        registration.executor(inboundExecutor)
+                .interceptors(stompAuthenticationInterceptor, rateLimitInterceptor, presenceActivityInterceptor,
+                        coalescingSubscriptionInterceptor, conversationSubscriptionInterceptor);
+    }
+
+    /**
+     * Configures the executor and, if enabled, the per-session queues for frames sent to clients.
+     *
+     * @param registration the outbound channel registration.
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        outboundExecutor = new MeteredExecutor("websocket.outbound",
+                channelProperties.outbound().executor().inThreadingMode(environment)
+                        .createExecutorService("ws-outbound-"), meterRegistry);
+        registration.executor(outboundExecutor);
+        if (sessionOutboundQueueInterceptor.isEnabled()) {
+            registration.interceptors(sessionOutboundQueueInterceptor);
+        }
+    }
+
+    /**
+     * Applies the per-session message size, send buffer and send time limits.
+     *
+     * @param registration the WebSocket transport registration.
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        WebSocketChannelProperties.Transport transport = channelProperties.transport();
+        registration.setMessageSizeLimit(transport.messageSizeLimit())
+                .setSendBufferSizeLimit(transport.sendBufferSizeLimit())
+                .setSendTimeLimit((int) transport.sendTimeLimit().toMillis())
+                .setTimeToFirstMessage((int) transport.timeToFirstMessage().toMillis());
+        if (sessionOutboundQueueInterceptor.isEnabled()) {
+            registration.addDecoratorFactory(sessionOutboundQueueInterceptor);
+        }
+    }
+
+    /**
+     * Shuts down the channel executors and heartbeat scheduler and releases the broker relay's connection pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (inboundExecutor != null) {
+            inboundExecutor.close();
+        }
+        if (outboundExecutor != null) {
+            outboundExecutor.close();
+        }
+        if (relayConnectionProvider != null) {
+            relayConnectionProvider.dispose();
+        }
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.shutdown();
+        }
     }
 
 }
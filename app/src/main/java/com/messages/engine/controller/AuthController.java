@@ -1,58 +1,78 @@
 package com.messages.engine.controller;
 
-import com.messages.engine.dto.LoginRequest;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
 import com.messages.engine.dto.LoginResponse;
-import com.messages.engine.exception.ResourceNotFoundException;
-import com.messages.engine.model.User;
+import com.messages.engine.dto.RefreshTokenRequest;
+import com.messages.engine.security.ChatUserPrincipal;
 import com.messages.engine.security.JwtTokenProvider;
-import com.messages.engine.security.LoginAttemptService;
-import com.messages.engine.service.UserAuthenticateService;
-import com.messages.engine.service.UserService;
+import com.messages.engine.security.RefreshTokenService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.web.bind.annotation.*;
 
+/**
+ * REST controller for the token endpoints under {@code /api/auth}.
+ * <p>
+ * Logins ({@code POST /api/auth/login}) never reach a controller: they are handled by the login filter,
+ * {@link com.messages.engine.security.JwtUsernamePasswordAuthenticationFilter}.
+ * </p>
+ */
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 @Slf4j
 public class AuthController {
 
-    private final UserAuthenticateService userAuthenticateService;
     private final JwtTokenProvider jwtTokenProvider;
-    private final LoginAttemptService loginAttemptService;
+    private final RefreshTokenService refreshTokenService;
+    private final UserDirectory userDirectory;
 
-    @PostMapping("/login")
-    public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest request) {
-        String username = request.username();
-        String password = request.password();
-
-        // 1. Check if user is blocked
-        if (loginAttemptService.isBlocked(username)) {
-            throw new BadCredentialsException("Too many failed attempts. Please try again later.");
-        }
-
-        try {
-            // 2. Authenticate user credentials
-            User user = userAuthenticateService.authenticateUser(username, password);
-
-            // 3. If successful, reset attempts
-            loginAttemptService.loginSucceeded(username);
-
-            // 4. Generate token
-            Authentication auth = new UsernamePasswordAuthenticationToken(user.getUserName(), user.getPassword());
-            String token = jwtTokenProvider.generateToken(auth);
+    /**
+     * Exchanges a refresh token for a new access token and the next refresh token.
+     *
+     * @param request the refresh token.
+     * @return the new tokens.
+     * @throws BadCredentialsException if the refresh token is invalid, expired or already used.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.refreshToken());
+        UserEntry user = userDirectory.findById(rotation.userId())
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        return ResponseEntity.ok(tokensFor(user, rotation.refreshToken()));
+    }
 
-            return ResponseEntity.ok(new LoginResponse(token));
+    /**
+     * Logs out: revokes the presented access token and all refresh tokens of the user.
+     *
+     * @param authorization the bearer token of the request.
+     * @return no content.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        String token = authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization;
+        jwtTokenProvider.verify(token).ifPresent(claims -> {
+            jwtTokenProvider.revoke(claims);
+            ChatUserPrincipal principal = jwtTokenProvider.principalOf(claims);
+            if (principal != null) {
+                refreshTokenService.revokeAll(principal.userId());
+            }
+        });
+        return ResponseEntity.noContent().build();
+    }
 
-        } catch (ResourceNotFoundException ex) {
-            // 5. Record failed login attempt
-            loginAttemptService.loginFailed(username);
-            throw new BadCredentialsException("Invalid username or password");
-        }
+    private LoginResponse tokensFor(UserEntry user, String refreshToken) {
+        Authentication auth = UsernamePasswordAuthenticationToken.authenticated(
+                new ChatUserPrincipal(user.id(), user.userName()), null,
+                AuthorityUtils.createAuthorityList("USER"));
+        return new LoginResponse(jwtTokenProvider.generateToken(auth), refreshToken,
+                jwtTokenProvider.getExpirationInMs() / 1000);
     }
 }
@@ -1,20 +1,32 @@
 package com.messages.engine.controller;
 
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.ChatError;
 import com.messages.engine.dto.ChatMessage;
-import com.messages.engine.service.ChatMessageHandler;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.exception.RateLimitExceededException;
+import com.messages.engine.ratelimit.RateLimiter;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.ConversationMembership;
+import com.messages.engine.service.ChatMessageProducer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
+
 /**
  * WebSocket controller for handling incoming chat messages.
  * <p>
  * When a message is received on the "/app/chat.sendMessage" endpoint, the
- * message is delegated to the {@link ChatMessageHandler} for processing. The
- * handler performs message type–based logic (persisting messages, managing
- * JOIN/LEAVE events, etc.) and publishes the processed message via RabbitMQ.
- * The actual broadcast to subscribers is handled asynchronously by a RabbitMQ listener.
+ * message is published through the {@link ChatMessageProducer} to the configured
+ * transport (RabbitMQ or the in-process ring buffer). The listener on the other
+ * side performs message type–based logic (persisting messages, managing
+ * JOIN/LEAVE events, etc.) and broadcasts the message to subscribers.
  * </p>
  */
 @Controller
@@ -22,22 +34,62 @@ import org.springframework.stereotype.Controller;
 @Slf4j
 public class ChatController {
 
-    /** Handler that processes incoming chat messages. */
-    private final ChatMessageHandler chatMessageHandler;
+    /** Producer that publishes incoming chat messages to the transport. */
+    private final ChatMessageProducer chatMessageProducer;
+
+    /** Limiter of the messages sent to one conversation. */
+    private final RateLimiter rateLimiter;
+
+    /** Check that senders take part in the conversation. */
+    private final ConversationMembership conversationMembership;
 
     /**
      * Receives a chat message from a WebSocket client and processes it.
      * <p>
-     * The method does not block; processing is offloaded to a custom TaskExecutor.
+     * The method does not block; processing happens on the transport's consumer side. The sender is
+     * the session's authenticated user; a user id or message id supplied by the client is ignored.
+     * Chat and leave messages are only accepted from participants of the conversation, checked before the
+     * conversation's rate limit is charged so that outsiders cannot exhaust it; joins are only limited per
+     * user, by the inbound channel. Rejected messages are reported to the sender on {@code /user/queue/errors}.
      * </p>
      *
      * @param chatMessage the incoming chat message; its type is an enum {@code ChatMessageType}.
+     * @param principal   the session's user, resolved on CONNECT.
+     * @throws AccessDeniedException      if the sender does not take part in the conversation.
+     * @throws RateLimitExceededException if the conversation exceeds its rate limit.
      */
     @MessageMapping("/chat.sendMessage")
-    public void sendMessage(ChatMessage chatMessage) {
-        log.info("Received chat message: {}", chatMessage);
-        // Fire and forget asynchronous processing.
-        chatMessageHandler.handleChatMessage(chatMessage);
+    public void sendMessage(ChatMessage chatMessage, Principal principal) {
+        ChatMessage message = new ChatMessage(null, chatMessage.type(), chatMessage.content(),
+                ChatUserPrincipal.userIdOf(principal), chatMessage.conversationId());
+        if (message.type() != ChatMessageType.JOIN) {
+            if (!conversationMembership.isParticipant(message.userId(), message.conversationId())) {
+                throw new AccessDeniedException("Not a participant of conversation " + message.conversationId());
+            }
+            long wait = rateLimiter.tryAcquireConversation(message.conversationId());
+            if (wait > 0) {
+                long retryAfter = RateLimiter.retryAfterSeconds(wait);
+                throw new RateLimitExceededException("Too many messages in conversation "
+                        + message.conversationId() + ", retry after " + retryAfter + "s", retryAfter);
+            }
+        }
+        log.info("Received chat message: {}", message);
+        // Fire and forget: the transport delivers the message to the listener asynchronously.
+        chatMessageProducer.send(message);
+    }
+
+    /**
+     * Reports a rejected message to the session that sent it.
+     *
+     * @param ex the rejection.
+     * @return the error sent to {@code /user/queue/errors}.
+     */
+    @MessageExceptionHandler({AccessDeniedException.class, RateLimitExceededException.class})
+    @SendToUser(destinations = WebSocketConfig.USER_ERRORS_QUEUE, broadcast = false)
+    public ChatError handleRejection(RuntimeException ex) {
+        log.debug("Rejected chat message: {}", ex.getMessage());
+        Long retryAfter = ex instanceof RateLimitExceededException limited ? limited.getRetryAfterSeconds() : null;
+        return new ChatError(ex.getMessage(), retryAfter);
     }
 
 }
@@ -1,13 +1,24 @@
 package com.messages.engine.controller;
 
 import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.exception.ResourceNotFoundException;
+import com.messages.engine.ratelimit.RateLimiter;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.ConversationMembership;
 import com.messages.engine.service.ChatMessageHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 /**
  * REST Controller for processing chat messages.
@@ -29,20 +40,64 @@ public class ChatMessageProcessingController {
      */
     private final ChatMessageHandler chatMessageHandler;
 
+    /**
+     * Limiter of the messages sent to one conversation.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Check that senders take part in the conversation.
+     */
+    private final ConversationMembership conversationMembership;
+
     /**
      * Processes an incoming chat message.
+     * <p>
+     * The request thread is released while the message is processed; the response is written once the
+     * processing completes. The sender is the authenticated user; a user id or message id supplied in the body
+     * is ignored.
+     * </p>
      *
-     * @param chatMessage the chat message to process, containing type, content, userId, and conversationId.
-     * @return a ResponseEntity with a string result describing the outcome of processing.
+     * @param chatMessage    the chat message to process, containing type, content and conversationId.
+     * @param authentication the authenticated user.
+     * @return a ResponseEntity with a string result describing the outcome of processing: 403 if the user is
+     *         unknown or does not take part in the conversation, checked before its rate limit is charged and
+     *         skipped for joins, 404 if the user or conversation does not exist, 429 if the conversation exceeds
+     *         its rate limit, 503 if the processing executor is saturated, 504 on timeout.
      */
     @PostMapping("/process")
-    public CompletableFuture<ResponseEntity<String>> processChatMessage(@RequestBody ChatMessage chatMessage) {
-        return chatMessageHandler.handleChatMessage(chatMessage)
-                .thenApply(ResponseEntity::ok)
+    public CompletableFuture<ResponseEntity<String>> processChatMessage(@RequestBody ChatMessage chatMessage,
+                                                                        Authentication authentication) {
+        Long userId = ChatUserPrincipal.userIdOf(authentication);
+        if (userId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Unknown user"));
+        }
+        ChatMessage message = new ChatMessage(null, chatMessage.type(), chatMessage.content(), userId,
+                chatMessage.conversationId());
+        if (message.type() != ChatMessageType.JOIN
+                && !conversationMembership.isParticipant(message.userId(), message.conversationId())) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Not a participant of conversation " + message.conversationId()));
+        }
+        long wait = rateLimiter.tryAcquireConversation(message.conversationId());
+        if (wait > 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(wait)))
+                    .body("Too many messages in conversation " + message.conversationId()));
+        }
+        return chatMessageHandler.handleChatMessage(message)
+                .thenApply(result -> ResponseEntity.ok(result.outcome()))
                 .exceptionally(ex -> {
-                    log.error("Error processing chat message: {}", ex.getMessage(), ex);
-                    return ResponseEntity.status(500)
-                            .body("Error processing message: " + ex.getMessage());
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    HttpStatus status = switch (cause) {
+                        case ResourceNotFoundException notFound -> HttpStatus.NOT_FOUND;
+                        case RejectedExecutionException rejected -> HttpStatus.SERVICE_UNAVAILABLE;
+                        case TimeoutException timeout -> HttpStatus.GATEWAY_TIMEOUT;
+                        default -> HttpStatus.INTERNAL_SERVER_ERROR;
+                    };
+                    return ResponseEntity.status(status)
+                            .body("Error processing message: " + cause.getMessage());
                 });
     }
 }
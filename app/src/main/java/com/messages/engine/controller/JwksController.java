@@ -0,0 +1,43 @@
+package com.messages.engine.controller;
+
+import com.messages.engine.security.JwtTokenProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Publishes the public keys of the issued tokens as a JWK Set, so that other services (e.g. a Spring
+ * resource server configured with {@code spring.security.oauth2.resourceserver.jwt.jwk-set-uri}) verify
+ * tokens locally, selecting the key by the token's {@code kid}.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    /** Path of the JWK Set. */
+    public static final String JWKS_PATH = "/.well-known/jwks.json";
+
+    /** Time clients may cache the JWK Set; shorter than the key refresh interval plus any rotation overlap. */
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    /** Provider holding the current key ring. */
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * Returns the public keys.
+     *
+     * @return the JWK Set.
+     */
+    @GetMapping(JWKS_PATH)
+    public ResponseEntity<Map<String, Object>> jwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(MAX_AGE).cachePublic())
+                .body(jwtTokenProvider.publicKeys().toJSONObject());
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.messages.engine.controller;
+
+import com.messages.engine.dto.PresenceSnapshot;
+import com.messages.engine.dto.TypingRequest;
+import com.messages.engine.presence.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+/**
+ * WebSocket controller for presence and typing indicators.
+ * <p>
+ * Clients send typing signals to "/app/typing" and fetch the users currently present in a conversation by
+ * subscribing to "/app/conversations.{conversationId}.presence"; changes are then pushed on
+ * "/topic/conversations.{conversationId}.presence". None of this touches the database.
+ * </p>
+ */
+@Controller
+@RequiredArgsConstructor
+public class PresenceController {
+
+    /** Service holding the in-memory presence state. */
+    private final PresenceService presenceService;
+
+    /**
+     * Receives a typing signal from a WebSocket client.
+     *
+     * @param request   the typing signal.
+     * @param sessionId the id of the sending session.
+     */
+    @MessageMapping("/typing")
+    public void typing(TypingRequest request,
+                       @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        if (request.conversationId() != null) {
+            presenceService.typing(sessionId, request.conversationId(), request.typing());
+        }
+    }
+
+    /**
+     * Returns the users present in a conversation directly to the subscribing client.
+     *
+     * @param conversationId the conversation id.
+     * @param sessionId      the id of the subscribing session.
+     * @return the presence snapshot.
+     */
+    @SubscribeMapping("/conversations.{conversationId}.presence")
+    public PresenceSnapshot presence(@DestinationVariable Long conversationId,
+                                     @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        return presenceService.snapshot(sessionId, conversationId);
+    }
+
+}
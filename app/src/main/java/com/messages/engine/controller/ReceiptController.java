@@ -0,0 +1,59 @@
+package com.messages.engine.controller;
+
+import com.messages.engine.dto.MessageReceiptsResponse;
+import com.messages.engine.dto.ReceiptRequest;
+import com.messages.engine.receipt.ReceiptService;
+import com.messages.engine.security.ChatUserPrincipal;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+/**
+ * Delivery and read receipts.
+ * <p>
+ * WebSocket clients acknowledge messages on "/app/receipts" and receive the batched changes on
+ * "/topic/conversations.{conversationId}.receipts"; who has received and read a given message is
+ * queried over HTTP.
+ * </p>
+ */
+@RestController
+@RequiredArgsConstructor
+public class ReceiptController {
+
+    /** Service aggregating and storing the receipt watermarks. */
+    private final ReceiptService receiptService;
+
+    /**
+     * Receives a receipt from a WebSocket client.
+     *
+     * @param request   the receipt.
+     * @param principal the session's user, resolved on CONNECT.
+     */
+    @MessageMapping("/receipts")
+    public void receipt(ReceiptRequest request, Principal principal) {
+        receiptService.record(ChatUserPrincipal.userIdOf(principal), request);
+    }
+
+    /**
+     * Returns the participants a message has been delivered to and read by.
+     *
+     * @param conversationId the conversation id.
+     * @param messageId      the message id.
+     * @param authentication the requesting user.
+     * @return the receipts of the message.
+     */
+    @GetMapping("/api/conversations/{conversationId}/receipts")
+    public ResponseEntity<MessageReceiptsResponse> receipts(@PathVariable Long conversationId,
+                                                            @RequestParam Long messageId,
+                                                            Authentication authentication) {
+        return ResponseEntity.ok(receiptService.receipts(authentication.getName(), conversationId, messageId));
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.messages.engine.controller;
 
+import com.messages.engine.directory.UserDirectory;
 import com.messages.engine.exception.ResourceNotFoundException;
 import com.messages.engine.model.User;
 import com.messages.engine.repository.UserRepository;
@@ -25,6 +26,7 @@ import org.springframework.web.bind.annotation.*;
 public class TwoFactorController {
 
     private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
     private final TOTPService totpService;
 
     /**
@@ -51,7 +53,7 @@ public class TwoFactorController {
             // Update user's record with the new secret; initially mark 2FA as not fully enabled
             user.setTotpSecret(secret);
             user.setTwoFactorEnabled(false);
-            userRepository.save(user);
+            userDirectory.invalidate(userRepository.save(user));
 
             // Generate a QR code URL (using the otpauth URI format)
             String issuer = "SecureMessagingApp"; // Replace with your actual app name or issuer
@@ -91,7 +93,7 @@ public class TwoFactorController {
 
             // Mark 2FA as enabled and update the user record
             user.setTwoFactorEnabled(true);
-            userRepository.save(user);
+            userDirectory.invalidate(userRepository.save(user));
             log.info("2FA confirmed and enabled for user {}", username);
             return ResponseEntity.ok("2FA enabled successfully!");
         } catch (Exception ex) {
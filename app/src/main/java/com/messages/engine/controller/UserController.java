@@ -1,10 +1,15 @@
 package com.messages.engine.controller;
 
+import com.messages.engine.directory.UserListingService;
+import com.messages.engine.directory.UserSearchService;
+import com.messages.engine.dto.UserPage;
 import com.messages.engine.dto.UserRequest;
 import com.messages.engine.dto.UserResponse;
+import com.messages.engine.dto.UserSearchResult;
 import com.messages.engine.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,7 +19,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -33,6 +40,12 @@ public class UserController {
     /** Service layer for user-related operations. */
     private final UserService userService;
 
+    /** Paged listing of the users. */
+    private final UserListingService userListingService;
+
+    /** Search of users by name, login or email. */
+    private final UserSearchService userSearchService;
+
     /**
      * Creates a new user.
      *
@@ -60,15 +73,48 @@ public class UserController {
     }
 
     /**
-     * Retrieves all users.
+     * Retrieves a page of users in id order.
+     * <p>
+     * The response carries an ETag; a request with a matching {@code If-None-Match} is answered
+     * {@code 304 Not Modified} without reading the users while none changed.
+     * </p>
      *
-     * @return a ResponseEntity containing a list of all UserResponse DTOs.
+     * @param after      the {@code nextCursor} of the previous page; omitted for the first page.
+     * @param limit      the page size; defaults to {@code chat.user-listing.default-limit}.
+     * @param fields     comma-separated fields returned, among {@code id}, {@code login}, {@code name},
+     *                   {@code email} and {@code createdAt}; omitted for all of them.
+     * @param webRequest the request, checked against the ETag.
+     * @return a ResponseEntity containing the page, or an empty one if it is not modified.
      */
     @GetMapping
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
-        log.info("Retrieving all users");
-        List<UserResponse> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<UserPage> getUsers(@RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String fields,
+                                             WebRequest webRequest) {
+        UserListingService.PageQuery query = userListingService.query(after, limit, fields);
+        String etag = userListingService.etag(query);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        log.debug("Retrieving users after {}", after);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(userListingService.page(query));
+    }
+
+    /**
+     * Suggests users whose name, login or email starts with, or else resembles, the given text, e.g. to add
+     * them to a conversation.
+     *
+     * @param prefix the text typed so far.
+     * @param limit  the maximum number of users; defaults to {@code chat.user-search.default-limit}.
+     * @return a ResponseEntity containing the matching users, prefix matches first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<UserSearchResult>> searchUsers(@RequestParam String prefix,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(userSearchService.search(prefix, limit));
     }
 
     /**
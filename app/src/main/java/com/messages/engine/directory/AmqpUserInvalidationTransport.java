@@ -0,0 +1,94 @@
+package com.messages.engine.directory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link UserInvalidationTransport} broadcasting invalidations to every node through a RabbitMQ fanout exchange
+ * ({@code chat.users.cross-node=true}).
+ * <p>
+ * Each node consumes the exchange through its own exclusive, auto-delete queue. A node also receives its own
+ * invalidations, which evict entries it has already evicted. Invalidations are non-persistent: a node that is
+ * down or disconnected misses them, and serves its cached entries until {@code chat.users.ttl} expires them.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.users", name = "cross-node", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class AmqpUserInvalidationTransport implements UserInvalidationTransport {
+
+    /** Name of the fanout exchange carrying user invalidations. */
+    public static final String USERS_EXCHANGE = "chat.users";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final List<Consumer<UserInvalidation>> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Publishes the invalidation to the users exchange.
+     *
+     * @param invalidation the invalidation.
+     */
+    @Override
+    public void publish(UserInvalidation invalidation) {
+        try {
+            Message message = MessageBuilder.withBody(objectMapper.writeValueAsBytes(invalidation))
+                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                    .setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT)
+                    .build();
+            rabbitTemplate.send(USERS_EXCHANGE, "", message);
+        } catch (JsonProcessingException ex) {
+            log.error("Error serializing user invalidation {}: {}", invalidation, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Registers the handler of the received invalidations.
+     *
+     * @param handler the handler.
+     */
+    @Override
+    public void subscribe(Consumer<UserInvalidation> handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * Consumes invalidations from this node's queue and passes them to the handlers.
+     *
+     * @param message the received AMQP message.
+     */
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(exclusive = "true", autoDelete = "true"),
+            exchange = @Exchange(value = USERS_EXCHANGE, type = ExchangeTypes.FANOUT, durable = "false")))
+    public void onMessage(Message message) {
+        try {
+            UserInvalidation invalidation = objectMapper.readValue(message.getBody(), UserInvalidation.class);
+            handlers.forEach(handler -> handler.accept(invalidation));
+        } catch (IOException ex) {
+            log.warn("Discarding unreadable user invalidation: {}", ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.messages.engine.directory;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Single-node {@link UserInvalidationTransport}: there are no other nodes to notify. Entries cached by other
+ * nodes would only be refreshed after {@code chat.users.ttl}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.users", name = "cross-node", havingValue = "false", matchIfMissing = true)
+public class LocalUserInvalidationTransport implements UserInvalidationTransport {
+
+    /**
+     * Does nothing: the local cache is evicted by the directory itself.
+     *
+     * @param invalidation the invalidation.
+     */
+    @Override
+    public void publish(UserInvalidation invalidation) {
+        // No other nodes.
+    }
+
+    /**
+     * Does nothing: no invalidation is received from other nodes.
+     *
+     * @param handler the handler.
+     */
+    @Override
+    public void subscribe(Consumer<UserInvalidation> handler) {
+        // No other nodes.
+    }
+
+}
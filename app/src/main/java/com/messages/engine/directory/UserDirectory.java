@@ -0,0 +1,189 @@
+package com.messages.engine.directory;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.messages.engine.config.UserDirectoryProperties;
+import com.messages.engine.model.User;
+import com.messages.engine.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through near-cache of the users, looked up by id or by name.
+ * <p>
+ * Entries are immutable {@link UserEntry} copies, cached by id and by name, bounded by {@code chat.users.max-size}
+ * and reloaded after {@code chat.users.ttl}. Concurrent misses of the same key are coalesced: the first caller
+ * loads the user on its own thread, outside any cache lock, and the others wait for its result. Unknown users
+ * are not cached.
+ * </p>
+ * <p>
+ * Whoever changes or deletes a user calls {@link #invalidate} once the change is saved. The entries are evicted
+ * locally and the invalidation is published through the {@link UserInvalidationTransport}, which evicts them on
+ * the other nodes too when {@code chat.users.cross-node} is enabled. Lookups in flight during an invalidation are
+ * not cached. Components deriving state from the users, like the search index, are told of every invalidation,
+ * local or remote, through {@link #addInvalidationListener}. Meters: the {@code users.by-id} and
+ * {@code users.by-name} cache meters.
+ * </p>
+ */
+@Service
+@Slf4j
+public class UserDirectory {
+
+    private final UserRepository userRepository;
+    private final UserInvalidationTransport transport;
+    private final AsyncCache<Long, UserEntry> byId;
+    private final AsyncCache<String, UserEntry> byName;
+    private final List<Consumer<UserInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates the directory and subscribes to the invalidations of the other nodes.
+     *
+     * @param userRepository the repository the users are loaded from.
+     * @param transport      the transport of invalidations between nodes.
+     * @param properties     the cache settings.
+     * @param meterRegistry  the registry for the cache metrics.
+     */
+    public UserDirectory(UserRepository userRepository, UserInvalidationTransport transport,
+                         UserDirectoryProperties properties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.transport = transport;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .buildAsync();
+        this.byName = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byName, "users.by-name");
+        transport.subscribe(this::evict);
+    }
+
+    /**
+     * Returns a user by id.
+     *
+     * @param id the user id.
+     * @return the user, or empty if there is none.
+     */
+    public Optional<UserEntry> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(byId, id, userRepository::findById, byName, UserEntry::userName));
+    }
+
+    /**
+     * Returns a user by name.
+     *
+     * @param userName the user name.
+     * @return the user, or empty if there is none.
+     */
+    public Optional<UserEntry> findByUserName(String userName) {
+        if (userName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(byName, userName, userRepository::findByUserName, byId, UserEntry::id));
+    }
+
+    /**
+     * Evicts a changed or deleted user on every node.
+     *
+     * @param userId    the id of the user.
+     * @param userNames the names the user may be cached under: after a rename, its previous and its new name.
+     */
+    public void invalidate(Long userId, String... userNames) {
+        UserInvalidation invalidation = new UserInvalidation(userId, Arrays.stream(userNames)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toUnmodifiableSet()));
+        evict(invalidation);
+        transport.publish(invalidation);
+    }
+
+    /**
+     * Evicts a changed or deleted user on every node.
+     *
+     * @param user the user, as saved.
+     */
+    public void invalidate(User user) {
+        invalidate(user.getId(), user.getUserName());
+    }
+
+    /**
+     * Registers a listener told of every invalidation, local or received from another node, after the evicted
+     * entries are gone: lookups made by the listener load the changed user.
+     *
+     * @param listener the listener; it runs on the invalidating thread and must not block for long.
+     */
+    public void addInvalidationListener(Consumer<UserInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Evicts the entries of a user from this node's cache and notifies the listeners.
+     *
+     * @param invalidation the user and the names it may be cached under.
+     */
+    void evict(UserInvalidation invalidation) {
+        Set<String> names = new HashSet<>(invalidation.userNames());
+        if (invalidation.userId() != null) {
+            // This node may have cached the user under a name the invalidating node did not know of.
+            CompletableFuture<UserEntry> cached = byId.getIfPresent(invalidation.userId());
+            UserEntry entry = cached != null && cached.isDone() && !cached.isCompletedExceptionally()
+                    ? cached.join() : null;
+            if (entry != null) {
+                names.add(entry.userName());
+            }
+            byId.synchronous().invalidate(invalidation.userId());
+        }
+        byName.synchronous().invalidateAll(names);
+        log.debug("Evicted user {} ({}) from the directory", invalidation.userId(), names);
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    /**
+     * Returns the cached user of a key, loading it on a miss unless another thread already does, and caches a
+     * loaded user under its other key too.
+     */
+    private <K, O> UserEntry load(AsyncCache<K, UserEntry> cache, K key, Function<K, Optional<User>> loader,
+                                  AsyncCache<O, UserEntry> other, Function<UserEntry, O> otherKey) {
+        CompletableFuture<UserEntry> created = new CompletableFuture<>();
+        CompletableFuture<UserEntry> future = cache.get(key, (k, executor) -> created);
+        if (future == created) {
+            try {
+                // A null entry removes the future from the cache: unknown users are looked up again.
+                UserEntry entry = loader.apply(key).map(UserEntry::of).orElse(null);
+                created.complete(entry);
+                if (entry != null && cache.asMap().get(key) == created) {
+                    other.put(otherKey.apply(entry), CompletableFuture.completedFuture(entry));
+                }
+            } catch (RuntimeException ex) {
+                created.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.messages.engine.directory;
+
+import com.messages.engine.model.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable copy of a {@link User}, shared between threads by the {@link UserDirectory}. Changes are made to the
+ * entity, followed by {@link UserDirectory#invalidate}.
+ *
+ * @param id               the user id.
+ * @param login            the login.
+ * @param userName         the user name.
+ * @param email            the email.
+ * @param password         the password hash.
+ * @param createdAt        the creation time.
+ * @param totpSecret       the TOTP secret, or {@code null}.
+ * @param twoFactorEnabled whether 2FA is enabled.
+ */
+public record UserEntry(Long id, String login, String userName, String email, String password,
+                        LocalDateTime createdAt, String totpSecret, boolean twoFactorEnabled) {
+
+    /**
+     * Copies a user entity.
+     *
+     * @param user the entity.
+     * @return its current state.
+     */
+    public static UserEntry of(User user) {
+        return new UserEntry(user.getId(), user.getLogin(), user.getUserName(), user.getEmail(), user.getPassword(),
+                user.getCreatedAt(), user.getTotpSecret(), user.isTwoFactorEnabled());
+    }
+
+}
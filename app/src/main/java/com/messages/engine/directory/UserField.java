@@ -0,0 +1,66 @@
+package com.messages.engine.directory;
+
+import com.messages.engine.exception.InvalidRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Fields of a user that a listing can be restricted to ({@code GET /api/users?fields=id,name}).
+ */
+public enum UserField {
+
+    ID("id", "id"),
+    LOGIN("login", "login"),
+    NAME("name", "name"),
+    EMAIL("email", "email"),
+    CREATED_AT("createdAt", "created_at");
+
+    /** Name of the field in the request and in the returned JSON. */
+    private final String fieldName;
+
+    /** Column of the field in the {@code users} table. */
+    private final String column;
+
+    UserField(String fieldName, String column) {
+        this.fieldName = fieldName;
+        this.column = column;
+    }
+
+    /**
+     * Returns the column of the field in the {@code users} table.
+     *
+     * @return the column name.
+     */
+    public String column() {
+        return column;
+    }
+
+    /**
+     * Parses a comma-separated list of field names.
+     *
+     * @param fields the field names, as returned in the JSON; {@code null} or blank for every field.
+     * @return the fields.
+     * @throws InvalidRequestException if a name is not a field.
+     */
+    public static Set<UserField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(UserField.class);
+        }
+        Set<UserField> parsed = EnumSet.noneOf(UserField.class);
+        for (String name : fields.split(",")) {
+            parsed.add(of(name.strip()));
+        }
+        return parsed;
+    }
+
+    private static UserField of(String fieldName) {
+        for (UserField field : values()) {
+            if (field.fieldName.equals(fieldName)) {
+                return field;
+            }
+        }
+        throw new InvalidRequestException("Unknown user field: '" + fieldName + "'");
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.messages.engine.directory;
+
+import java.util.Set;
+
+/**
+ * Notice that a user changed or was deleted, so that every node drops its cached entries of the user.
+ *
+ * @param userId    the id of the user.
+ * @param userNames the names the user may be cached under: its current name and, after a rename, its previous one.
+ */
+public record UserInvalidation(Long userId, Set<String> userNames) { }
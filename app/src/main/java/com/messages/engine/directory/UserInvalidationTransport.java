@@ -0,0 +1,24 @@
+package com.messages.engine.directory;
+
+import java.util.function.Consumer;
+
+/**
+ * Propagates {@link UserInvalidation}s to the {@link UserDirectory} of the other nodes.
+ */
+public interface UserInvalidationTransport {
+
+    /**
+     * Publishes an invalidation to the other nodes.
+     *
+     * @param invalidation the invalidation.
+     */
+    void publish(UserInvalidation invalidation);
+
+    /**
+     * Registers the handler of the invalidations published by other nodes.
+     *
+     * @param handler the handler, evicting the user from the local cache.
+     */
+    void subscribe(Consumer<UserInvalidation> handler);
+
+}
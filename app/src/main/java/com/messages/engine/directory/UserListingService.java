@@ -0,0 +1,116 @@
+package com.messages.engine.directory;
+
+import com.messages.engine.config.UserListingProperties;
+import com.messages.engine.dto.UserPage;
+import com.messages.engine.dto.UserSummary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Paged listing of the users, by keyset pagination on the id.
+ * <p>
+ * A page is read with {@code id > after order by id limit n}, an index range scan whatever the position of the
+ * page, and only the columns of the requested {@link UserField}s are selected.
+ * </p>
+ * <p>
+ * Pages are validated with an ETag derived from the change version of the users, a single row of the
+ * {@code users_version} table bumped by a trigger on every statement changing the listed columns. The version
+ * is shared by all nodes, so a tag issued by one node is recognized by the others behind a load balancer, and
+ * a client revalidating an unchanged page is answered {@code 304 Not Modified} by reading that row only.
+ * </p>
+ */
+@Service
+public class UserListingService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserListingProperties properties;
+
+    /**
+     * A resolved page request.
+     *
+     * @param after  the id after which users are listed.
+     * @param limit  the maximum number of users.
+     * @param fields the fields returned.
+     */
+    public record PageQuery(long after, int limit, Set<UserField> fields) { }
+
+    /**
+     * Creates the service.
+     *
+     * @param jdbcTemplate template running the version and page queries.
+     * @param properties   the page size settings.
+     */
+    public UserListingService(JdbcTemplate jdbcTemplate, UserListingProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Resolves the parameters of a page request.
+     *
+     * @param after  the cursor returned with the previous page; {@code null} for the first page.
+     * @param limit  the page size; {@code null} for {@code chat.user-listing.default-limit}, capped at
+     *               {@code chat.user-listing.max-limit}.
+     * @param fields comma-separated names of the fields returned; {@code null} for every field.
+     * @return the page query.
+     * @throws com.messages.engine.exception.InvalidRequestException if a field name is unknown.
+     */
+    public PageQuery query(Long after, Integer limit, String fields) {
+        int size = Math.min(limit != null && limit > 0 ? limit : properties.defaultLimit(), properties.maxLimit());
+        return new PageQuery(after != null ? after : Long.MIN_VALUE, size, UserField.parse(fields));
+    }
+
+    /**
+     * Returns the ETag of a page in the current version of the users. It must be taken before the page is read,
+     * so that a change made meanwhile yields another tag.
+     *
+     * @param query the page query.
+     * @return the quoted entity tag.
+     */
+    public String etag(PageQuery query) {
+        int fieldMask = query.fields().stream().mapToInt(field -> 1 << field.ordinal()).sum();
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM users_version WHERE id = 1", Long.class);
+        return "\"" + version + "-" + query.after() + "-" + query.limit() + "-" + fieldMask + "\"";
+    }
+
+    /**
+     * Reads a page of users.
+     *
+     * @param query the page query.
+     * @return the users after the cursor in id order, with the cursor of the next page.
+     */
+    public UserPage page(PageQuery query) {
+        String columns = query.fields().stream()
+                .map(UserField::column)
+                .filter(column -> !column.equals(UserField.ID.column()))
+                .map(column -> ", " + column)
+                .collect(Collectors.joining());
+        // One more row than the page tells whether there is a next page.
+        List<UserSummary> users = new ArrayList<>(jdbcTemplate.query(
+                "SELECT id" + columns + " FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                (row, rowNum) -> new UserSummary(row.getLong("id"),
+                        query.fields().contains(UserField.LOGIN) ? row.getString("login") : null,
+                        query.fields().contains(UserField.NAME) ? row.getString("name") : null,
+                        query.fields().contains(UserField.EMAIL) ? row.getString("email") : null,
+                        query.fields().contains(UserField.CREATED_AT)
+                                ? row.getObject("created_at", LocalDateTime.class) : null),
+                query.after(), query.limit() + 1));
+        Long nextCursor = null;
+        if (users.size() > query.limit()) {
+            users.subList(query.limit(), users.size()).clear();
+            nextCursor = users.getLast().id();
+        }
+        if (!query.fields().contains(UserField.ID)) {
+            users.replaceAll(user -> new UserSummary(null, user.login(), user.name(), user.email(),
+                    user.createdAt()));
+        }
+        return new UserPage(List.copyOf(users), nextCursor);
+    }
+
+}
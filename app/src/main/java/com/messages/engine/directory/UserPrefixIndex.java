@@ -0,0 +1,202 @@
+package com.messages.engine.directory;
+
+import com.messages.engine.dto.UserSearchResult;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable in-memory index of the users by prefix of their name, login and email.
+ * <p>
+ * Each user is indexed under its normalized full name, each word of its name, its login and its email
+ * (lower-cased, accents removed). The keys are kept in one array sorted by key and user id, with a parallel
+ * array of the users they belong to, so a lookup is a binary search for the first key with the prefix followed
+ * by a scan of the matching keys. Changes return a new index; copying the arrays costs
+ * O(keys), which is fine for the rare user changes but rules out bulk loading one user at a time.
+ * </p>
+ */
+public final class UserPrefixIndex {
+
+    /** Index without users. */
+    public static final UserPrefixIndex EMPTY = new UserPrefixIndex(new String[0], new UserSearchResult[0]);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String[] keys;
+    private final UserSearchResult[] users;
+
+    /**
+     * A user to index, with the fields it is found by.
+     *
+     * @param user  the result returned for the user.
+     * @param email the email of the user, matched but not returned.
+     */
+    public record Entry(UserSearchResult user, String email) { }
+
+    private record Key(String key, UserSearchResult user) { }
+
+    private UserPrefixIndex(String[] keys, UserSearchResult[] users) {
+        this.keys = keys;
+        this.users = users;
+    }
+
+    /**
+     * Builds an index.
+     *
+     * @param entries the users.
+     * @return the index of the users.
+     */
+    public static UserPrefixIndex of(Iterable<Entry> entries) {
+        List<Key> all = new ArrayList<>();
+        for (Entry entry : entries) {
+            for (String key : keysOf(entry)) {
+                all.add(new Key(key, entry.user()));
+            }
+        }
+        all.sort(Comparator.comparing(Key::key).thenComparing(key -> key.user().id()));
+        String[] keys = new String[all.size()];
+        UserSearchResult[] users = new UserSearchResult[all.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = all.get(i).key();
+            users[i] = all.get(i).user();
+        }
+        return new UserPrefixIndex(keys, users);
+    }
+
+    /**
+     * Returns the users with a key starting with a prefix, in key order.
+     *
+     * @param prefix the prefix; normalized like the keys.
+     * @param limit  maximum number of users returned.
+     * @return the distinct matching users.
+     */
+    public List<UserSearchResult> lookup(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        Map<Long, UserSearchResult> found = new LinkedHashMap<>();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        for (int i = lowerBound(normalized, Long.MIN_VALUE); i < keys.length && found.size() < limit
+                && keys[i].startsWith(normalized); i++) {
+            found.putIfAbsent(users[i].id(), users[i]);
+        }
+        return List.copyOf(found.values());
+    }
+
+    /**
+     * Returns an index with a user added, or replaced if it is already indexed.
+     *
+     * @param entry the user.
+     * @return the new index.
+     */
+    public UserPrefixIndex with(Entry entry) {
+        UserPrefixIndex without = without(entry.user().id());
+        Set<String> added = keysOf(entry);
+        String[] newKeys = new String[without.keys.length + added.size()];
+        UserSearchResult[] newUsers = new UserSearchResult[newKeys.length];
+        int source = 0;
+        int target = 0;
+        for (String key : added.stream().sorted().toList()) {
+            int insertAt = without.lowerBound(key, entry.user().id());
+            int run = insertAt - source;
+            System.arraycopy(without.keys, source, newKeys, target, run);
+            System.arraycopy(without.users, source, newUsers, target, run);
+            target += run;
+            source = insertAt;
+            newKeys[target] = key;
+            newUsers[target++] = entry.user();
+        }
+        System.arraycopy(without.keys, source, newKeys, target, without.keys.length - source);
+        System.arraycopy(without.users, source, newUsers, target, without.users.length - source);
+        return new UserPrefixIndex(newKeys, newUsers);
+    }
+
+    /**
+     * Returns an index without a user.
+     *
+     * @param userId the id of the user.
+     * @return the new index, or this one if the user is not indexed.
+     */
+    public UserPrefixIndex without(Long userId) {
+        int removed = 0;
+        for (UserSearchResult user : users) {
+            if (user.id().equals(userId)) {
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return this;
+        }
+        String[] newKeys = new String[keys.length - removed];
+        UserSearchResult[] newUsers = new UserSearchResult[newKeys.length];
+        int target = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (!users[i].id().equals(userId)) {
+                newKeys[target] = keys[i];
+                newUsers[target++] = users[i];
+            }
+        }
+        return new UserPrefixIndex(newKeys, newUsers);
+    }
+
+    /**
+     * Returns the number of keys.
+     *
+     * @return the number of (key, user) pairs indexed.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Normalizes a name for indexing and lookup: accents removed, lower-cased, surrounding whitespace removed.
+     *
+     * @param value the value; may be {@code null}.
+     * @return the normalized value, empty for {@code null}.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFKD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).strip();
+    }
+
+    private static Set<String> keysOf(Entry entry) {
+        Set<String> keys = new LinkedHashSet<>();
+        String name = normalize(entry.user().userName());
+        keys.add(name);
+        keys.addAll(Arrays.asList(WHITESPACE.split(name)));
+        keys.add(normalize(entry.user().login()));
+        keys.add(normalize(entry.email()));
+        keys.remove("");
+        return keys;
+    }
+
+    /** Returns the position of the first (key, user id) pair not less than the given one. */
+    private int lowerBound(String key, long userId) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = keys[middle].compareTo(key);
+            if (comparison < 0 || comparison == 0 && users[middle].id() < userId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
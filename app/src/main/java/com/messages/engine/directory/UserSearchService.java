@@ -0,0 +1,213 @@
+package com.messages.engine.directory;
+
+import com.messages.engine.config.UserSearchProperties;
+import com.messages.engine.dto.UserSearchResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * User autocomplete by name, login or email.
+ * <p>
+ * Prefix matches come from a {@link UserPrefixIndex} of all users, built when the application is ready and
+ * updated incrementally from the {@link UserDirectory} invalidations, which cover the changes made on every node.
+ * When they are fewer than requested, they are completed with fuzzy matches of the {@code pg_trgm} GIN index on
+ * {@code users}, ranked by similarity, for searches of at least {@code chat.user-search.fuzzy-min-length}
+ * characters. Until the index is built, searches are answered by the fuzzy matches alone.
+ * </p>
+ * <p>
+ * Changed users are reloaded off the invalidating thread, by a single indexing thread, in the order of the
+ * invalidations. Each reload starts after the invalidation that requested it, so the last state applied to the
+ * index of a user is the latest one; invalidations of a user already waiting to be reloaded are coalesced.
+ * </p>
+ * <p>
+ * Meters: {@code chat.users.search.index.keys} (keys in the prefix index) and {@code chat.users.search.fuzzy}
+ * (time of the fuzzy queries).
+ * </p>
+ */
+@Service
+@Slf4j
+public class UserSearchService {
+
+    private static final String ALL_USERS = "SELECT id, login, name, email FROM users";
+
+    private static final String FUZZY_SEARCH = """
+            SELECT id, login, name FROM users
+            WHERE lower(name) % ? OR lower(login) % ? OR lower(email) % ?
+            ORDER BY greatest(similarity(lower(name), ?), similarity(lower(login), ?), similarity(lower(email), ?))
+                     DESC, id
+            LIMIT ?""";
+
+    private final UserDirectory userDirectory;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserSearchProperties properties;
+    private final Timer fuzzyTimer;
+    private final Object lock = new Object();
+
+    /** Current index; replaced, never modified. */
+    private volatile UserPrefixIndex index = UserPrefixIndex.EMPTY;
+
+    /** Users changed while the index is being built, reindexed once it is; null when not building. */
+    private Set<Long> changedDuringBuild;
+
+    /** Users waiting to be reindexed. */
+    private final Set<Long> pendingReindex = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService indexer =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("user-search-indexer-"));
+
+    /**
+     * Creates the service and subscribes to the user invalidations.
+     *
+     * @param userDirectory the directory of users, notifying changes and loading changed users.
+     * @param jdbcTemplate  template running the index and fuzzy queries.
+     * @param properties    the search settings.
+     * @param meterRegistry the registry for the search metrics.
+     */
+    public UserSearchService(UserDirectory userDirectory, JdbcTemplate jdbcTemplate,
+                             UserSearchProperties properties, MeterRegistry meterRegistry) {
+        this.userDirectory = userDirectory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.fuzzyTimer = Timer.builder("chat.users.search.fuzzy")
+                .description("Fuzzy user searches on the trigram index")
+                .register(meterRegistry);
+        Gauge.builder("chat.users.search.index.keys", this, service -> service.index.size())
+                .description("Keys in the user prefix index")
+                .register(meterRegistry);
+        userDirectory.addInvalidationListener(invalidation -> scheduleReindex(invalidation.userId()));
+    }
+
+    /**
+     * Builds the prefix index from all users. On failure, the previous index is kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (lock) {
+            changedDuringBuild = new HashSet<>();
+        }
+        Set<Long> changed;
+        try {
+            List<UserPrefixIndex.Entry> entries = new ArrayList<>();
+            jdbcTemplate.query(ALL_USERS, row -> {
+                entries.add(new UserPrefixIndex.Entry(new UserSearchResult(row.getLong("id"), row.getString("login"),
+                        row.getString("name")), row.getString("email")));
+            });
+            UserPrefixIndex built = UserPrefixIndex.of(entries);
+            synchronized (lock) {
+                index = built;
+            }
+            log.info("Indexed {} users for search ({} keys)", entries.size(), built.size());
+        } catch (DataAccessException ex) {
+            log.error("Could not build the user search index: {}", ex.getMessage(), ex);
+        } finally {
+            synchronized (lock) {
+                changed = changedDuringBuild;
+                changedDuringBuild = null;
+            }
+        }
+        // Changes made while loading were applied to the replaced index.
+        changed.forEach(this::scheduleReindex);
+    }
+
+    /**
+     * Returns the users whose name, login or email starts with, or else resembles, the searched text.
+     *
+     * @param prefix the searched text.
+     * @param limit  maximum number of users; {@code null} for {@code chat.user-search.default-limit}, capped at
+     *               {@code chat.user-search.max-limit}.
+     * @return the prefix matches in name order, followed by the fuzzy matches by decreasing similarity.
+     */
+    public List<UserSearchResult> search(String prefix, Integer limit) {
+        int max = Math.min(limit != null && limit > 0 ? limit : properties.defaultLimit(), properties.maxLimit());
+        String normalized = UserPrefixIndex.normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, UserSearchResult> found = new LinkedHashMap<>();
+        index.lookup(normalized, max).forEach(user -> found.put(user.id(), user));
+        if (found.size() < max && properties.fuzzy() && normalized.length() >= properties.fuzzyMinLength()) {
+            for (UserSearchResult user : fuzzy(prefix.strip().toLowerCase(Locale.ROOT), max)) {
+                if (found.size() >= max) {
+                    break;
+                }
+                found.putIfAbsent(user.id(), user);
+            }
+        }
+        return List.copyOf(found.values());
+    }
+
+    private List<UserSearchResult> fuzzy(String text, int limit) {
+        try {
+            return fuzzyTimer.record(() -> jdbcTemplate.query(FUZZY_SEARCH,
+                    (row, rowNum) -> new UserSearchResult(row.getLong("id"), row.getString("login"),
+                            row.getString("name")),
+                    text, text, text, text, text, text, limit));
+        } catch (DataAccessException ex) {
+            // E.g. a database without pg_trgm: prefix matches only.
+            log.warn("Fuzzy user search failed: {}", ex.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Queues the reindexing of a changed user, unless it is already queued and not started yet.
+     */
+    private void scheduleReindex(Long userId) {
+        if (userId != null && pendingReindex.add(userId)) {
+            indexer.execute(() -> reindex(userId));
+        }
+    }
+
+    /**
+     * Replaces the indexed entry of a changed user with its current state, or removes it if it was deleted.
+     */
+    private void reindex(Long userId) {
+        // Dequeued before the read: a change made from now on queues another reindex.
+        pendingReindex.remove(userId);
+        UserPrefixIndex.Entry entry;
+        try {
+            entry = userDirectory.findById(userId)
+                    .map(user -> new UserPrefixIndex.Entry(new UserSearchResult(user.id(), user.login(),
+                            user.userName()), user.email()))
+                    .orElse(null);
+        } catch (DataAccessException ex) {
+            log.warn("Could not reindex user {} for search: {}", userId, ex.getMessage());
+            return;
+        }
+        synchronized (lock) {
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(userId);
+            }
+            index = entry != null ? index.with(entry) : index.without(userId);
+        }
+    }
+
+    /**
+     * Stops the indexing thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.messages.engine.dto;
+
+/**
+ * Rejection of a frame sent by a client, delivered to the sender on {@code /user/queue/errors}.
+ *
+ * @param message           The reason of the rejection.
+ * @param retryAfterSeconds Seconds after which a rate-limited frame would be admitted; null for other rejections.
+ */
+public record ChatError(String message, Long retryAfterSeconds) { }
@@ -3,9 +3,22 @@ package com.messages.engine.dto;
 /**
  * Immutable Data Transfer Object for chat messages sent over WebSocket and RabbitMQ.
  *
+ * @param id             The ID of the persisted message; null until a CHAT message has been stored, and for JOIN/LEAVE.
  * @param type           The type of the message (e.g., CHAT, JOIN, LEAVE)..
  * @param content        The content of the chat message.
  * @param userId         The ID of the user sending the message.
  * @param conversationId The ID of the conversation to which the message belongs.
  */
-public record ChatMessage(ChatMessageType type, String content, Long userId, Long conversationId) { }
+public record ChatMessage(Long id, ChatMessageType type, String content, Long userId, Long conversationId) {
+
+    /**
+     * Returns a copy of this message carrying the given persisted id.
+     *
+     * @param id the message id.
+     * @return the message with its id.
+     */
+    public ChatMessage withId(Long id) {
+        return new ChatMessage(id, type, content, userId, conversationId);
+    }
+
+}
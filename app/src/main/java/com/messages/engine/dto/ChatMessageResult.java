@@ -0,0 +1,9 @@
+package com.messages.engine.dto;
+
+/**
+ * Outcome of processing a chat message.
+ *
+ * @param message The processed message; for CHAT messages it carries the id assigned when it was persisted.
+ * @param outcome A description of the outcome.
+ */
+public record ChatMessageResult(ChatMessage message, String outcome) { }
@@ -1,3 +1,10 @@
 package com.messages.engine.dto;
 
-public record LoginResponse(String token) {}
\ No newline at end of file
+/**
+ * Tokens issued on login or refresh.
+ *
+ * @param token        the short-lived access token.
+ * @param refreshToken the refresh token exchanging for the next tokens at {@code /api/auth/refresh}; single use.
+ * @param expiresIn    lifetime of the access token, in seconds.
+ */
+public record LoginResponse(String token, String refreshToken, long expiresIn) {}
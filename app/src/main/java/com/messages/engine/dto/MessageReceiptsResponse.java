@@ -0,0 +1,15 @@
+package com.messages.engine.dto;
+
+import java.util.List;
+
+/**
+ * Users that have received and read a message.
+ *
+ * @param conversationId the conversation id.
+ * @param messageId      the message id.
+ * @param deliveredTo    ids of the users the message has been delivered to, including those who read it.
+ * @param readBy         ids of the users who have read the message.
+ */
+public record MessageReceiptsResponse(Long conversationId, Long messageId,
+                                      List<Long> deliveredTo, List<Long> readBy) {
+}
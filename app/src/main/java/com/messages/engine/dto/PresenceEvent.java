@@ -0,0 +1,10 @@
+package com.messages.engine.dto;
+
+/**
+ * Ephemeral presence or typing event sent to {@code /topic/conversations.{id}.presence}; never persisted.
+ *
+ * @param type           The type of the event.
+ * @param userId         The ID of the user the event is about.
+ * @param conversationId The ID of the conversation the event belongs to.
+ */
+public record PresenceEvent(PresenceEventType type, Long userId, Long conversationId) { }
@@ -0,0 +1,11 @@
+package com.messages.engine.dto;
+
+/**
+ * Enumeration of presence and typing indicator event types.
+ */
+public enum PresenceEventType {
+    ONLINE,
+    OFFLINE,
+    TYPING,
+    TYPING_STOPPED
+}
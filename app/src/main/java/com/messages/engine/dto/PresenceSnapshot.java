@@ -0,0 +1,9 @@
+package com.messages.engine.dto;
+
+/**
+ * Users currently present in a conversation.
+ *
+ * @param conversationId The ID of the conversation.
+ * @param userIds        The IDs of the present users, in ascending order.
+ */
+public record PresenceSnapshot(Long conversationId, long[] userIds) { }
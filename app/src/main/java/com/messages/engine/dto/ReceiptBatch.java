@@ -0,0 +1,13 @@
+package com.messages.engine.dto;
+
+import java.util.List;
+
+/**
+ * Receipt changes of one conversation since the previous batch, sent on
+ * {@code /topic/conversations.{id}.receipts}. Clients keep the greatest watermark seen per user.
+ *
+ * @param conversationId the conversation id.
+ * @param receipts       the changed watermarks, one per user.
+ */
+public record ReceiptBatch(Long conversationId, List<ReceiptUpdate> receipts) {
+}
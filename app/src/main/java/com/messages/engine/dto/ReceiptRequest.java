@@ -0,0 +1,11 @@
+package com.messages.engine.dto;
+
+/**
+ * Receipt sent by a client: every message of the conversation up to {@code messageId} has been delivered or read.
+ *
+ * @param conversationId the conversation id.
+ * @param messageId      the id of the latest message delivered or read.
+ * @param type           whether the messages were delivered or read.
+ */
+public record ReceiptRequest(Long conversationId, Long messageId, ReceiptType type) {
+}
@@ -0,0 +1,9 @@
+package com.messages.engine.dto;
+
+/**
+ * Kind of a message receipt.
+ */
+public enum ReceiptType {
+    DELIVERED,
+    READ
+}
@@ -0,0 +1,11 @@
+package com.messages.engine.dto;
+
+/**
+ * Watermarks of one user, as broadcast in a {@link ReceiptBatch}.
+ *
+ * @param userId        the user id.
+ * @param deliveredUpTo id of the latest message delivered to the user.
+ * @param readUpTo      id of the latest message read by the user, 0 if unchanged since the last batch.
+ */
+public record ReceiptUpdate(Long userId, long deliveredUpTo, long readUpTo) {
+}
@@ -0,0 +1,8 @@
+package com.messages.engine.dto;
+
+/**
+ * Request exchanging a refresh token for new tokens.
+ *
+ * @param refreshToken the refresh token of the last login or refresh.
+ */
+public record RefreshTokenRequest(String refreshToken) {}
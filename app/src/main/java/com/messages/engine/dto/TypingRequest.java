@@ -0,0 +1,9 @@
+package com.messages.engine.dto;
+
+/**
+ * Typing signal sent by a client while the user types (or stops typing) in a conversation.
+ *
+ * @param conversationId The ID of the conversation.
+ * @param typing         Whether the user is typing; {@code false} ends the indicator immediately.
+ */
+public record TypingRequest(Long conversationId, boolean typing) { }
@@ -0,0 +1,11 @@
+package com.messages.engine.dto;
+
+import java.util.List;
+
+/**
+ * Page of the user listing ({@code GET /api/users}), in id order.
+ *
+ * @param users      The users of the page, with the requested fields only.
+ * @param nextCursor The cursor of the next page, passed as {@code after}; null on the last page.
+ */
+public record UserPage(List<UserSummary> users, Long nextCursor) { }
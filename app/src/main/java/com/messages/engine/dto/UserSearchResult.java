@@ -0,0 +1,11 @@
+package com.messages.engine.dto;
+
+/**
+ * User suggested by the user search ({@code GET /api/users/search}). The email matches searches but is not
+ * returned.
+ *
+ * @param id       The ID of the user.
+ * @param login    The login of the user.
+ * @param userName The name of the user.
+ */
+public record UserSearchResult(Long id, String login, String userName) { }
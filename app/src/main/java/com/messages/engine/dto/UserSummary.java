@@ -0,0 +1,18 @@
+package com.messages.engine.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+/**
+ * User of the paged listing ({@code GET /api/users}), holding only the requested fields; the others are null
+ * and left out of the JSON.
+ *
+ * @param id        The user id.
+ * @param login     The login.
+ * @param name      The display name.
+ * @param email     The email address.
+ * @param createdAt The creation time.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserSummary(Long id, String login, String name, String email, LocalDateTime createdAt) { }
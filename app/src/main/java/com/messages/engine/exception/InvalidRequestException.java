@@ -0,0 +1,17 @@
+package com.messages.engine.exception;
+
+/**
+ * Exception thrown when request parameters are invalid, answered with {@code 400 Bad Request}.
+ */
+public class InvalidRequestException extends RuntimeException {
+
+    /**
+     * Constructs a new InvalidRequestException.
+     *
+     * @param message the detail message.
+     */
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.messages.engine.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Exception thrown when a password cannot be hashed or checked in time because the password hashing executor
+ * is saturated, e.g. during a login storm. The client should retry later.
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    /**
+     * Constructs a new PasswordHashingRejectedException with the specified detail message.
+     *
+     * @param message the detail message.
+     */
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new PasswordHashingRejectedException with the specified detail message and cause.
+     *
+     * @param message the detail message.
+     * @param cause   the cause of the exception.
+     */
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.messages.engine.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a client exceeds a rate limit. On a STOMP session it is answered with an ERROR frame.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    /**
+     * Seconds after which the request would be admitted.
+     */
+    @Getter
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new RateLimitExceededException.
+     *
+     * @param message           the detail message.
+     * @param retryAfterSeconds seconds after which the request would be admitted.
+     */
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
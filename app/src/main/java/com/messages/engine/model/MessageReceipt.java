@@ -0,0 +1,62 @@
+package com.messages.engine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Receipt high-water marks of one user in one conversation.
+ * <p>
+ * Instead of one row per message and recipient, a user's receipts are two message ids: every message of the
+ * conversation up to {@code deliveredUpTo} has been delivered to the user, and every one up to {@code readUpTo}
+ * has been read. Both only move forward, and reading a message implies it was delivered.
+ * </p>
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "message_receipts")
+@IdClass(MessageReceipt.Key.class)
+public class MessageReceipt {
+
+    /** The conversation. */
+    @Id
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    /** The recipient. */
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** Id of the latest message delivered to the user, 0 if none. */
+    @Column(name = "delivered_up_to", nullable = false)
+    private long deliveredUpTo;
+
+    /** Id of the latest message read by the user, 0 if none. */
+    @Column(name = "read_up_to", nullable = false)
+    private long readUpTo;
+
+    /** Time of the last update. */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Primary key of a receipt row.
+     *
+     * @param conversationId the conversation id.
+     * @param userId         the user id.
+     */
+    public record Key(Long conversationId, Long userId) implements Serializable {
+    }
+
+}
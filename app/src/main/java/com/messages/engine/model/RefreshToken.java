@@ -0,0 +1,52 @@
+package com.messages.engine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Refresh token of a user, stored by the hash of the token only.
+ * <p>
+ * The tokens issued for one login share a family id: exchanging a token marks it used and issues the next one of
+ * the family. A used token presented again means it leaked, so the whole family is revoked.
+ * </p>
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "refresh_tokens")
+public class RefreshToken {
+
+    /** SHA-256 hash of the token, base64url-encoded. */
+    @Id
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    /** The user the token was issued to. */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** Id shared by the tokens issued for one login. */
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    /** Time after which the token is no longer accepted. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Time the token was exchanged for the next one, null while it is the current token of its family. */
+    @Column(name = "used_at")
+    private Instant usedAt;
+
+    /** Time the token was issued. */
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+}
@@ -0,0 +1,34 @@
+package com.messages.engine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Access token revoked before its expiry, identified by its {@code jti} claim.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "revoked_tokens")
+public class RevokedToken {
+
+    /** The token id. */
+    @Id
+    @Column(name = "jti", nullable = false, length = 64)
+    private String jti;
+
+    /** Expiry of the token, after which the row is no longer needed. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+}
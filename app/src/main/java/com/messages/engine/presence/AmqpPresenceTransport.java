@@ -0,0 +1,85 @@
+package com.messages.engine.presence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.PresenceEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * {@link PresenceTransport} propagating presence events to every node through a RabbitMQ fanout exchange
+ * ({@code chat.presence.cross-node=true}).
+ * <p>
+ * Each node consumes the exchange through its own exclusive, auto-delete queue and sends the events it
+ * receives, its own included, to the STOMP sessions connected to it. Events are non-persistent: a node that
+ * is down simply misses them. Intended for the simple broker; with the broker relay the external broker
+ * already fans topic messages out to every node.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.presence", name = "cross-node", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class AmqpPresenceTransport implements PresenceTransport {
+
+    /** Name of the fanout exchange carrying presence events. */
+    public static final String PRESENCE_EXCHANGE = "chat.presence";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Publishes the event to the presence exchange.
+     *
+     * @param event the event.
+     */
+    @Override
+    public void publish(PresenceEvent event) {
+        try {
+            Message message = MessageBuilder.withBody(objectMapper.writeValueAsBytes(event))
+                    .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                    .setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT)
+                    .build();
+            rabbitTemplate.send(PRESENCE_EXCHANGE, "", message);
+        } catch (JsonProcessingException ex) {
+            log.error("Error serializing presence event {}: {}", event, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Consumes presence events from this node's queue and sends them to the local subscribers.
+     *
+     * @param message the received AMQP message.
+     */
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue(exclusive = "true", autoDelete = "true"),
+            exchange = @Exchange(value = PRESENCE_EXCHANGE, type = ExchangeTypes.FANOUT, durable = "false")))
+    public void onMessage(Message message) {
+        try {
+            PresenceEvent event = objectMapper.readValue(message.getBody(), PresenceEvent.class);
+            messagingTemplate.convertAndSend(WebSocketConfig.conversationPresenceTopic(event.conversationId()), event);
+        } catch (IOException ex) {
+            log.warn("Discarding unreadable presence event: {}", ex.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.messages.engine.presence;
+
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.PresenceEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends presence events straight to the STOMP broker. With the simple broker they reach the sessions of
+ * this node only; with the broker relay the external broker fans them out to every node.
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.presence", name = "cross-node", havingValue = "false", matchIfMissing = true)
+@RequiredArgsConstructor
+public class LocalPresenceTransport implements PresenceTransport {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * Sends the event to the conversation's presence topic.
+     *
+     * @param event the event.
+     */
+    @Override
+    public void publish(PresenceEvent event) {
+        messagingTemplate.convertAndSend(WebSocketConfig.conversationPresenceTopic(event.conversationId()), event);
+    }
+
+}
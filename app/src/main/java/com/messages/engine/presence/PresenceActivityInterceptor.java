@@ -0,0 +1,37 @@
+package com.messages.engine.presence;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * STOMP channel interceptor that records every inbound frame, heartbeats included, as activity of its
+ * session in the {@link PresenceTracker}, so connected sessions do not expire.
+ */
+@Component
+@RequiredArgsConstructor
+public class PresenceActivityInterceptor implements ChannelInterceptor {
+
+    private final PresenceTracker presenceTracker;
+
+    /**
+     * Pushes back the expiry of the frame's session.
+     *
+     * @param message the inbound message.
+     * @param channel the inbound channel.
+     * @return the unchanged message.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            presenceTracker.touch(sessionId, System.currentTimeMillis());
+        }
+        return message;
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.messages.engine.presence;
+
+import com.messages.engine.config.PresenceProperties;
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.PresenceEvent;
+import com.messages.engine.dto.PresenceEventType;
+import com.messages.engine.dto.PresenceSnapshot;
+import com.messages.engine.security.ChatUserPrincipal;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presence and typing indicators, kept entirely in memory.
+ * <p>
+ * Presence follows the STOMP session lifecycle: a user comes ONLINE in a conversation with their first
+ * subscription to one of its topics and goes OFFLINE when the last one ends, whether by UNSUBSCRIBE, disconnect
+ * or session expiry (see {@link PresenceTracker}). Typing signals from clients ({@code /app/typing}) are
+ * throttled to one TYPING event per {@code chat.presence.typing-throttle} and debounced into a TYPING_STOPPED
+ * event once no signal has arrived for {@code typing-timeout}. Events go to
+ * {@code /topic/conversations.{id}.presence} through the configured {@link PresenceTransport}.
+ * </p>
+ */
+@Service
+@Slf4j
+public class PresenceService {
+
+    private final PresenceTracker presenceTracker;
+    private final PresenceTransport presenceTransport;
+    private final long typingThrottleMillis;
+    private final long typingTimeoutMillis;
+    private final TimingWheel<TypingKey> typing;
+    private final Map<TypingKey, Long> lastTypingSent = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * Typing indicator of one user in one conversation.
+     */
+    private record TypingKey(long userId, long conversationId) { }
+
+    /**
+     * Creates the service and starts the thread advancing the timing wheels.
+     *
+     * @param presenceTracker   session presence state.
+     * @param presenceTransport transport delivering the events.
+     * @param properties        presence settings.
+     */
+    public PresenceService(PresenceTracker presenceTracker, PresenceTransport presenceTransport,
+                           PresenceProperties properties) {
+        this.presenceTracker = presenceTracker;
+        this.presenceTransport = presenceTransport;
+        this.typingThrottleMillis = properties.typingThrottle().toMillis();
+        this.typingTimeoutMillis = properties.typingTimeout().toMillis();
+        long tickMillis = properties.tick().toMillis();
+        this.typing = new TimingWheel<>(tickMillis, properties.wheelSize(), System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("presence-wheel-"));
+        this.ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts tracking a session once its CONNECT has been accepted.
+     *
+     * @param event the connected event.
+     */
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        Long userId = ChatUserPrincipal.userIdOf(event.getUser());
+        if (sessionId == null || userId == null) {
+            return;
+        }
+        presenceTracker.connect(sessionId, userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Marks the user present in the conversation whose topic the session subscribed to.
+     *
+     * @param event the subscribe event.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Long conversationId = WebSocketConfig.conversationIdOf(accessor.getDestination());
+        if (conversationId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        publish(presenceTracker.subscribe(accessor.getSessionId(), accessor.getSubscriptionId(), conversationId));
+    }
+
+    /**
+     * Updates presence when a session ends a subscription.
+     *
+     * @param event the unsubscribe event.
+     */
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        publish(presenceTracker.unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId()));
+    }
+
+    /**
+     * Removes a closed session.
+     *
+     * @param event the disconnect event.
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        presenceTracker.disconnect(event.getSessionId()).forEach(this::publish);
+    }
+
+    /**
+     * Handles a typing signal from a session.
+     *
+     * @param sessionId      the WebSocket session id.
+     * @param conversationId the conversation the user types in.
+     * @param isTyping       whether the user is typing.
+     */
+    public void typing(String sessionId, long conversationId, boolean isTyping) {
+        Long userId = presenceTracker.userId(sessionId);
+        if (userId == null || !presenceTracker.isPresent(userId, conversationId)) {
+            log.debug("Ignoring typing signal of session {} for conversation {}", sessionId, conversationId);
+            return;
+        }
+        TypingKey key = new TypingKey(userId, conversationId);
+        if (!isTyping) {
+            stopTyping(key);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        typing.schedule(key, now + typingTimeoutMillis);
+        boolean[] forward = new boolean[1];
+        lastTypingSent.compute(key, (k, last) -> {
+            forward[0] = last == null || now - last >= typingThrottleMillis;
+            return forward[0] ? now : last;
+        });
+        if (forward[0]) {
+            presenceTransport.publish(new PresenceEvent(PresenceEventType.TYPING, userId, conversationId));
+        }
+    }
+
+    /**
+     * Returns the users present in a conversation, for a session that is itself present in it.
+     *
+     * @param sessionId      the requesting WebSocket session id.
+     * @param conversationId the conversation id.
+     * @return the snapshot of present users.
+     * @throws AccessDeniedException if the session's user is not present in the conversation.
+     */
+    public PresenceSnapshot snapshot(String sessionId, long conversationId) {
+        Long userId = presenceTracker.userId(sessionId);
+        if (userId == null || !presenceTracker.isPresent(userId, conversationId)) {
+            throw new AccessDeniedException("Not subscribed to conversation " + conversationId);
+        }
+        return new PresenceSnapshot(conversationId, presenceTracker.members(conversationId));
+    }
+
+    /**
+     * Expires silent sessions and idle typing indicators.
+     */
+    void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            presenceTracker.expire(now).forEach(this::publish);
+            typing.advance(now, key -> {
+                lastTypingSent.remove(key);
+                presenceTransport.publish(new PresenceEvent(PresenceEventType.TYPING_STOPPED,
+                        key.userId(), key.conversationId()));
+            });
+        } catch (Exception ex) {
+            log.error("Error advancing presence timers: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Stops the timer thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private void stopTyping(TypingKey key) {
+        lastTypingSent.remove(key);
+        if (typing.cancel(key)) {
+            presenceTransport.publish(new PresenceEvent(PresenceEventType.TYPING_STOPPED,
+                    key.userId(), key.conversationId()));
+        }
+    }
+
+    private void publish(PresenceEvent event) {
+        if (event == null) {
+            return;
+        }
+        if (event.type() == PresenceEventType.OFFLINE) {
+            // Leaving the conversation ends the user's typing indicator in it without a separate event.
+            TypingKey key = new TypingKey(event.userId(), event.conversationId());
+            typing.cancel(key);
+            lastTypingSent.remove(key);
+        }
+        presenceTransport.publish(event);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.messages.engine.presence;
+
+import java.util.Arrays;
+
+/**
+ * Compact multiset of user ids present in one conversation.
+ * <p>
+ * Ids are kept sorted in a primitive array next to a parallel array of reference counts (one per session
+ * subscription), so a conversation with a handful of present users costs a few dozen bytes instead of a
+ * boxed hash set. Not thread-safe; callers serialize access per conversation.
+ * </p>
+ */
+class PresenceSet {
+
+    private long[] userIds = new long[4];
+    private int[] counts = new int[4];
+    private int size;
+
+    /**
+     * Adds one reference to a user.
+     *
+     * @param userId the user id.
+     * @return {@code true} if the user was not present before.
+     */
+    boolean add(long userId) {
+        int index = Arrays.binarySearch(userIds, 0, size, userId);
+        if (index >= 0) {
+            counts[index]++;
+            return false;
+        }
+        int insert = -index - 1;
+        if (size == userIds.length) {
+            userIds = Arrays.copyOf(userIds, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+        }
+        System.arraycopy(userIds, insert, userIds, insert + 1, size - insert);
+        System.arraycopy(counts, insert, counts, insert + 1, size - insert);
+        userIds[insert] = userId;
+        counts[insert] = 1;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes one reference to a user.
+     *
+     * @param userId the user id.
+     * @return {@code true} if that was the user's last reference.
+     */
+    boolean remove(long userId) {
+        int index = Arrays.binarySearch(userIds, 0, size, userId);
+        if (index < 0) {
+            return false;
+        }
+        if (--counts[index] > 0) {
+            return false;
+        }
+        System.arraycopy(userIds, index + 1, userIds, index, size - index - 1);
+        System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(long userId) {
+        return Arrays.binarySearch(userIds, 0, size, userId) >= 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(userIds, size);
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.messages.engine.presence;
+
+import com.messages.engine.config.PresenceProperties;
+import com.messages.engine.dto.PresenceEvent;
+import com.messages.engine.dto.PresenceEventType;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory presence state of the WebSocket sessions connected to this node.
+ * <p>
+ * A user is present in a conversation while at least one of their sessions is subscribed to one of the
+ * conversation's topics. Sessions are kept alive by any inbound frame, heartbeats included, and expire from
+ * a {@link TimingWheel} once no frame has arrived for {@code chat.presence.ttl}. State changes are returned
+ * as {@link PresenceEvent}s for the caller to broadcast; nothing is written to the database.
+ * </p>
+ */
+@Component
+public class PresenceTracker {
+
+    private final long ttlMillis;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Map<Long, PresenceSet> conversations = new ConcurrentHashMap<>();
+    private final TimingWheel<String> expiry;
+
+    /**
+     * Creates the tracker.
+     *
+     * @param properties presence settings.
+     */
+    public PresenceTracker(PresenceProperties properties) {
+        this.ttlMillis = properties.ttl().toMillis();
+        this.expiry = new TimingWheel<>(properties.tick().toMillis(), properties.wheelSize(), System.currentTimeMillis());
+    }
+
+    /**
+     * Registers a connected session.
+     *
+     * @param sessionId the WebSocket session id.
+     * @param userId    the id of the session's user.
+     * @param nowMillis the current time, in milliseconds.
+     */
+    public void connect(String sessionId, long userId, long nowMillis) {
+        sessions.put(sessionId, new SessionState(userId));
+        expiry.schedule(sessionId, nowMillis + ttlMillis);
+    }
+
+    /**
+     * Records activity of a session, pushing back its expiry.
+     *
+     * @param sessionId the WebSocket session id.
+     * @param nowMillis the current time, in milliseconds.
+     */
+    public void touch(String sessionId, long nowMillis) {
+        if (sessions.containsKey(sessionId)) {
+            expiry.schedule(sessionId, nowMillis + ttlMillis);
+        }
+    }
+
+    /**
+     * Records a subscription of a session to a conversation topic.
+     *
+     * @param sessionId      the WebSocket session id.
+     * @param subscriptionId the STOMP subscription id.
+     * @param conversationId the conversation id.
+     * @return the ONLINE event if the user was not present in the conversation before, otherwise null.
+     */
+    public PresenceEvent subscribe(String sessionId, String subscriptionId, long conversationId) {
+        SessionState session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        boolean[] joined = new boolean[1];
+        synchronized (session) {
+            // Joined under the session lock so that a concurrent removal of the session sees the subscription.
+            if (session.closed || session.subscriptions.putIfAbsent(subscriptionId, conversationId) != null) {
+                return null;
+            }
+            conversations.compute(conversationId, (id, set) -> {
+                PresenceSet members = set != null ? set : new PresenceSet();
+                synchronized (members) {
+                    joined[0] = members.add(session.userId);
+                }
+                return members;
+            });
+        }
+        return joined[0] ? new PresenceEvent(PresenceEventType.ONLINE, session.userId, conversationId) : null;
+    }
+
+    /**
+     * Removes a subscription of a session.
+     *
+     * @param sessionId      the WebSocket session id.
+     * @param subscriptionId the STOMP subscription id.
+     * @return the OFFLINE event if the user is no longer present in the conversation, otherwise null.
+     */
+    public PresenceEvent unsubscribe(String sessionId, String subscriptionId) {
+        SessionState session = sessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        Long conversationId;
+        synchronized (session) {
+            conversationId = session.subscriptions.remove(subscriptionId);
+        }
+        return conversationId != null ? leave(session.userId, conversationId) : null;
+    }
+
+    /**
+     * Removes a session and all of its subscriptions.
+     *
+     * @param sessionId the WebSocket session id.
+     * @return the OFFLINE events for the conversations the user is no longer present in.
+     */
+    public List<PresenceEvent> disconnect(String sessionId) {
+        expiry.cancel(sessionId);
+        return remove(sessionId);
+    }
+
+    /**
+     * Expires the sessions that have been silent for longer than the TTL.
+     *
+     * @param nowMillis the current time, in milliseconds.
+     * @return the OFFLINE events caused by the expired sessions.
+     */
+    public List<PresenceEvent> expire(long nowMillis) {
+        List<PresenceEvent> events = new ArrayList<>();
+        expiry.advance(nowMillis, sessionId -> events.addAll(remove(sessionId)));
+        return events;
+    }
+
+    /**
+     * Returns the id of the user of a tracked session.
+     *
+     * @param sessionId the WebSocket session id.
+     * @return the user id, or null if the session is not tracked.
+     */
+    public Long userId(String sessionId) {
+        SessionState session = sessions.get(sessionId);
+        return session != null ? session.userId : null;
+    }
+
+    /**
+     * Returns whether a user is present in a conversation.
+     *
+     * @param userId         the user id.
+     * @param conversationId the conversation id.
+     * @return {@code true} if one of the user's sessions is subscribed to the conversation.
+     */
+    public boolean isPresent(long userId, long conversationId) {
+        PresenceSet members = conversations.get(conversationId);
+        if (members == null) {
+            return false;
+        }
+        synchronized (members) {
+            return members.contains(userId);
+        }
+    }
+
+    /**
+     * Returns the users present in a conversation.
+     *
+     * @param conversationId the conversation id.
+     * @return the user ids, in ascending order.
+     */
+    public long[] members(long conversationId) {
+        PresenceSet members = conversations.get(conversationId);
+        if (members == null) {
+            return new long[0];
+        }
+        synchronized (members) {
+            return members.toArray();
+        }
+    }
+
+    /**
+     * Returns the number of tracked sessions.
+     *
+     * @return the number of sessions.
+     */
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    private List<PresenceEvent> remove(String sessionId) {
+        SessionState session = sessions.remove(sessionId);
+        if (session == null) {
+            return List.of();
+        }
+        List<Long> conversationIds;
+        synchronized (session) {
+            session.closed = true;
+            conversationIds = new ArrayList<>(session.subscriptions.values());
+            session.subscriptions.clear();
+        }
+        List<PresenceEvent> events = new ArrayList<>();
+        for (Long conversationId : conversationIds) {
+            PresenceEvent event = leave(session.userId, conversationId);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private PresenceEvent leave(long userId, long conversationId) {
+        boolean[] left = new boolean[1];
+        conversations.computeIfPresent(conversationId, (id, members) -> {
+            synchronized (members) {
+                left[0] = members.remove(userId);
+                return members.isEmpty() ? null : members;
+            }
+        });
+        return left[0] ? new PresenceEvent(PresenceEventType.OFFLINE, userId, conversationId) : null;
+    }
+
+    /**
+     * Presence state of one session; {@code subscriptions} maps subscription ids to conversation ids.
+     */
+    private static final class SessionState {
+        private final long userId;
+        private final Map<String, Long> subscriptions = new HashMap<>(4);
+        private boolean closed;
+
+        private SessionState(long userId) {
+            this.userId = userId;
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.messages.engine.presence;
+
+import com.messages.engine.dto.PresenceEvent;
+
+/**
+ * Delivers presence and typing events to the subscribers of the conversation's presence topic.
+ */
+public interface PresenceTransport {
+
+    /**
+     * Publishes a presence event.
+     *
+     * @param event the event.
+     */
+    void publish(PresenceEvent event);
+
+}
@@ -0,0 +1,156 @@
+package com.messages.engine.presence;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel expiring keys after a deadline.
+ * <p>
+ * Every key has one entry, filed in the bucket of the tick its deadline falls in. Pushing a deadline back
+ * only updates the entry; the entry is moved to its new bucket lazily, when {@link #advance} visits the old
+ * one. Scheduling and cancelling are therefore O(1) and safe from any thread, which suits signals refreshed
+ * far more often than they expire (heartbeats, typing). {@link #advance} is called by a single ticking thread.
+ * Expiry happens up to one tick late.
+ * </p>
+ *
+ * @param <K> the type of the keys.
+ */
+public class TimingWheel<K> {
+
+    private final long tickMillis;
+    private final Queue<Entry<K>>[] buckets;
+    private final int mask;
+    private final Map<K, Entry<K>> entries = new ConcurrentHashMap<>();
+
+    /** Next tick to be processed by {@link #advance}. */
+    private volatile long currentTick;
+
+    /**
+     * Creates the wheel.
+     *
+     * @param tickMillis  duration of one tick, in milliseconds.
+     * @param wheelSize   number of buckets; rounded up to a power of two.
+     * @param startMillis the current time, in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1);
+        this.tickMillis = tickMillis;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the expiry of a key, replacing its previous deadline.
+     *
+     * @param key            the key.
+     * @param deadlineMillis the time at which the key expires, in milliseconds.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        entries.compute(key, (k, entry) -> {
+            if (entry != null) {
+                entry.deadline = deadlineMillis;
+                return entry;
+            }
+            Entry<K> created = new Entry<>(k, deadlineMillis);
+            bucketFor(deadlineMillis, currentTick).add(created);
+            return created;
+        });
+    }
+
+    /**
+     * Removes a key without expiring it.
+     *
+     * @param key the key.
+     * @return {@code true} if the key was scheduled.
+     */
+    public boolean cancel(K key) {
+        return entries.remove(key) != null;
+    }
+
+    /**
+     * Returns whether a key is scheduled.
+     *
+     * @param key the key.
+     * @return {@code true} if the key is scheduled and has not expired yet.
+     */
+    public boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Returns the number of scheduled keys.
+     *
+     * @return the number of keys.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Processes the ticks up to {@code nowMillis}, handing every key whose deadline has passed to {@code expired}.
+     *
+     * @param nowMillis the current time, in milliseconds.
+     * @param expired   callback receiving the expired keys; invoked after the key has been removed.
+     */
+    public synchronized void advance(long nowMillis, Consumer<K> expired) {
+        long targetTick = nowMillis / tickMillis;
+        // Entries not due yet are filed from the next tick on, so this pass does not revisit them.
+        long nextTick = targetTick + 1;
+        for (int visited = 0; currentTick <= targetTick && visited < buckets.length; visited++) {
+            Queue<Entry<K>> bucket = buckets[(int) (currentTick & mask)];
+            for (int pending = bucket.size(); pending > 0; pending--) {
+                Entry<K> entry = bucket.poll();
+                if (entry == null) {
+                    break;
+                }
+                boolean[] removed = new boolean[1];
+                entries.computeIfPresent(entry.key, (k, current) -> {
+                    if (current != entry) {
+                        return current;
+                    }
+                    if (current.deadline <= nowMillis) {
+                        removed[0] = true;
+                        return null;
+                    }
+                    bucketFor(current.deadline, nextTick).add(current);
+                    return current;
+                });
+                if (removed[0]) {
+                    expired.accept(entry.key);
+                }
+            }
+            currentTick++;
+        }
+        currentTick = Math.max(currentTick, nextTick);
+    }
+
+    private Queue<Entry<K>> bucketFor(long deadlineMillis, long earliestTick) {
+        long tick = Math.max(deadlineMillis / tickMillis, earliestTick);
+        return buckets[(int) (tick & mask)];
+    }
+
+    /**
+     * Scheduled key; {@code deadline} may be pushed back by any thread.
+     */
+    private static final class Entry<K> {
+        private final K key;
+        private volatile long deadline;
+
+        private Entry(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+}
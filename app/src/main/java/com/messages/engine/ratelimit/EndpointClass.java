@@ -0,0 +1,20 @@
+package com.messages.engine.ratelimit;
+
+/**
+ * Classes of endpoints sharing a per-user rate limit ({@code chat.rate-limit.endpoints.<class>}).
+ */
+public enum EndpointClass {
+
+    /** Chat message sends: {@code /app/chat.sendMessage}, {@code POST /api/chat/process} and {@code POST /api/messages}. */
+    MESSAGES,
+
+    /** Typing indicators: {@code /app/typing}. */
+    TYPING,
+
+    /** Delivery and read receipts: {@code /app/receipts}. */
+    RECEIPTS,
+
+    /** Every other REST request. */
+    API
+
+}
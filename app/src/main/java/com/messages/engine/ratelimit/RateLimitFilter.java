@@ -0,0 +1,87 @@
+package com.messages.engine.ratelimit;
+
+import com.messages.engine.security.ChatUserPrincipal;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter applying the per-user rate limits of {@link RateLimiter} to REST requests ({@code /api/**}).
+ * <p>
+ * Runs after authentication, so requests are counted against their user's bucket; anonymous ones (login,
+ * signup, refresh) against their client address'. Message sends ({@code POST /api/chat/process} and
+ * {@code POST /api/messages}) use the {@link EndpointClass#MESSAGES} limit, every other request the
+ * {@link EndpointClass#API} one. Rejected requests are answered with 429 and a {@code Retry-After} header,
+ * before reaching any controller.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Admits the request, or answers 429 if its caller's bucket is empty.
+     *
+     * @param request     the incoming HTTP request.
+     * @param response    the HTTP response.
+     * @param filterChain the filter chain.
+     * @throws ServletException if an error occurs during the filtering.
+     * @throws IOException      if an I/O error occurs.
+     */
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        Long userId = ChatUserPrincipal.userIdOf(SecurityContextHolder.getContext().getAuthentication());
+        Object subject = userId != null ? userId : "ip:" + request.getRemoteAddr();
+        EndpointClass endpointClass = endpointClassOf(request);
+        long wait = rateLimiter.tryAcquire(endpointClass, subject);
+        if (wait > 0) {
+            log.debug("Rate limit {} exceeded by {} on {}", endpointClass, subject, request.getRequestURI());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(RateLimiter.retryAfterSeconds(wait)));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"error\": \"Too many requests\"}");
+            response.getWriter().flush();
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Limits the REST API only: the WebSocket handshake, JWKS and actuator endpoints are not counted.
+     *
+     * @param request the incoming HTTP request.
+     * @return whether the request is outside {@code /api/}.
+     */
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/api/");
+    }
+
+    private static EndpointClass endpointClassOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (HttpMethod.POST.matches(request.getMethod())
+                && ("/api/chat/process".equals(path) || "/api/messages".equals(path))) {
+            return EndpointClass.MESSAGES;
+        }
+        return EndpointClass.API;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.messages.engine.ratelimit;
+
+import com.messages.engine.exception.RateLimitExceededException;
+import com.messages.engine.security.ChatUserPrincipal;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * STOMP channel interceptor applying the per-user rate limits of {@link RateLimiter} to SEND frames.
+ * <p>
+ * Frames to {@code /app/chat.sendMessage}, {@code /app/typing} and {@code /app/receipts} are counted against
+ * the session user's {@link EndpointClass#MESSAGES}, {@link EndpointClass#TYPING} and
+ * {@link EndpointClass#RECEIPTS} buckets; other frames are not limited. A frame exceeding its limit is rejected
+ * before reaching the controller, with a {@link RateLimitExceededException} that the client receives as an
+ * ERROR frame. The check runs on the thread sending the frame into the inbound channel, so a flooding session
+ * does not occupy the inbound executor.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitInterceptor implements ChannelInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Admits the frame, or rejects it if its user's bucket is empty.
+     *
+     * @param message the inbound message.
+     * @param channel the inbound channel.
+     * @return the unchanged message.
+     * @throws RateLimitExceededException if the frame exceeds its user's limit.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        EndpointClass endpointClass = endpointClassOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        if (endpointClass == null) {
+            return message;
+        }
+        Long userId = ChatUserPrincipal.userIdOf(SimpMessageHeaderAccessor.getUser(message.getHeaders()));
+        Object subject = userId != null ? userId : SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        long wait = rateLimiter.tryAcquire(endpointClass, subject);
+        if (wait > 0) {
+            log.debug("Rate limit {} exceeded by {}", endpointClass, subject);
+            long retryAfter = RateLimiter.retryAfterSeconds(wait);
+            throw new RateLimitExceededException(
+                    "Rate limit exceeded, retry after " + retryAfter + "s", retryAfter);
+        }
+        return message;
+    }
+
+    private static EndpointClass endpointClassOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        return switch (destination) {
+            case "/app/chat.sendMessage" -> EndpointClass.MESSAGES;
+            case "/app/typing" -> EndpointClass.TYPING;
+            case "/app/receipts" -> EndpointClass.RECEIPTS;
+            default -> null;
+        };
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.messages.engine.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.messages.engine.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limits per user and endpoint class, and per conversation.
+ * <p>
+ * Each (endpoint class, user) and each conversation has its own {@link TokenBucket}, created full on first use
+ * and kept in a cache bounded by {@code chat.rate-limit.max-tracked-keys} that drops buckets unused for
+ * {@code chat.rate-limit.idle-timeout}. Admission takes no lock: the cache lookup is concurrent and the bucket a
+ * single atomic value. Limits not configured, and all limits when {@code chat.rate-limit.enabled} is false,
+ * admit everything.
+ * </p>
+ * <p>
+ * Meters: {@code chat.ratelimit.allowed} and {@code chat.ratelimit.rejected}, tagged with
+ * {@code limit=messages|typing|receipts|api|conversation}, and {@code chat.ratelimit.buckets} (buckets kept).
+ * </p>
+ */
+@Component
+public class RateLimiter {
+
+    private static final String CONVERSATION = "conversation";
+
+    private final boolean enabled;
+    private final Map<EndpointClass, Scope> endpoints = new EnumMap<>(EndpointClass.class);
+    private final Scope conversations;
+    private final Cache<String, TokenBucket> buckets;
+
+    /**
+     * A configured limit and its meters.
+     */
+    private record Scope(String name, long interval, int capacity, Counter allowed, Counter rejected) {
+
+        static Scope of(String name, RateLimitProperties.Limit limit, MeterRegistry meterRegistry) {
+            if (limit == null) {
+                return null;
+            }
+            return new Scope(name, limit.intervalNanos(), limit.capacity(),
+                    Counter.builder("chat.ratelimit.allowed").tag("limit", name)
+                            .description("Requests admitted by a rate limit").register(meterRegistry),
+                    Counter.builder("chat.ratelimit.rejected").tag("limit", name)
+                            .description("Requests rejected by a rate limit").register(meterRegistry));
+        }
+    }
+
+    /**
+     * Creates the limiter and registers its meters.
+     *
+     * @param properties    the limits.
+     * @param meterRegistry the registry to publish meters to.
+     */
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        properties.endpoints().forEach((endpointClass, limit) -> endpoints.put(endpointClass,
+                Scope.of(endpointClass.name().toLowerCase(), limit, meterRegistry)));
+        this.conversations = Scope.of(CONVERSATION, properties.perConversation(), meterRegistry);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxTrackedKeys())
+                .expireAfterAccess(properties.idleTimeout())
+                .build();
+        Gauge.builder("chat.ratelimit.buckets", buckets, Cache::estimatedSize)
+                .description("Rate limit buckets kept")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token of a user's bucket for an endpoint class.
+     *
+     * @param endpointClass the class of the endpoint called.
+     * @param subject       the caller: a user id, or a client address for anonymous requests.
+     * @return {@code 0} if the request is admitted, otherwise the nanoseconds until it would be.
+     */
+    public long tryAcquire(EndpointClass endpointClass, Object subject) {
+        return tryAcquire(endpointClass, subject, System.nanoTime());
+    }
+
+    /**
+     * Takes a token of a user's bucket for an endpoint class, at the given time.
+     *
+     * @param endpointClass the class of the endpoint called.
+     * @param subject       the caller: a user id, or a client address for anonymous requests.
+     * @param now           the current time, in nanoseconds of {@link System#nanoTime()}.
+     * @return {@code 0} if the request is admitted, otherwise the nanoseconds until it would be.
+     */
+    public long tryAcquire(EndpointClass endpointClass, Object subject, long now) {
+        return acquire(endpoints.get(endpointClass), subject, now);
+    }
+
+    /**
+     * Takes a token of a conversation's bucket, shared by all its senders.
+     *
+     * @param conversationId the conversation a message is sent to.
+     * @return {@code 0} if the message is admitted, otherwise the nanoseconds until it would be.
+     */
+    public long tryAcquireConversation(Long conversationId) {
+        return tryAcquireConversation(conversationId, System.nanoTime());
+    }
+
+    /**
+     * Takes a token of a conversation's bucket, at the given time.
+     *
+     * @param conversationId the conversation a message is sent to.
+     * @param now            the current time, in nanoseconds of {@link System#nanoTime()}.
+     * @return {@code 0} if the message is admitted, otherwise the nanoseconds until it would be.
+     */
+    public long tryAcquireConversation(Long conversationId, long now) {
+        return conversationId == null ? 0 : acquire(conversations, conversationId, now);
+    }
+
+    /**
+     * Returns the number of buckets kept.
+     *
+     * @return the estimated number of (endpoint class, user) and conversation buckets.
+     */
+    public long trackedKeys() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    /**
+     * Rounds a wait up to whole seconds, as the {@code Retry-After} header requires.
+     *
+     * @param waitNanos the wait returned by a rejected acquisition, in nanoseconds.
+     * @return the wait in seconds, at least 1.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return Math.max(1, (waitNanos + second - 1) / second);
+    }
+
+    private long acquire(Scope scope, Object subject, long now) {
+        if (!enabled || scope == null || subject == null) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(scope.name() + ':' + subject, key -> new TokenBucket(now));
+        long wait = bucket.tryAcquire(now, scope.interval(), scope.capacity());
+        (wait == 0 ? scope.allowed() : scope.rejected()).increment();
+        return wait;
+    }
+
+}
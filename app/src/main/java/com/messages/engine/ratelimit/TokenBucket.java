@@ -0,0 +1,51 @@
+package com.messages.engine.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm (GCRA).
+ * <p>
+ * Instead of a token count and a refill timestamp, the bucket keeps a single value: the theoretical arrival time
+ * of the next request, which every admitted request pushes back by one emission interval. A request is admitted
+ * while that time stays within {@code capacity} intervals of now, i.e. while tokens are left; an idle bucket
+ * refills by the passing of time alone. Admission is therefore one compare-and-set on one {@link AtomicLong},
+ * retried under contention, with no lock and no background refill.
+ * </p>
+ */
+public final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param now the current time, in nanoseconds of {@link System#nanoTime()}.
+     */
+    public TokenBucket(long now) {
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if one is left.
+     *
+     * @param now      the current time, in nanoseconds of {@link System#nanoTime()}.
+     * @param interval nanoseconds to refill one token.
+     * @param capacity maximum number of tokens, i.e. the largest burst admitted.
+     * @return {@code 0} if a token was taken, otherwise the nanoseconds until one is available.
+     */
+    public long tryAcquire(long now, long interval, int capacity) {
+        long burst = interval * capacity;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + interval;
+            long ahead = next - now - burst;
+            if (ahead > 0) {
+                return ahead;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,380 @@
+package com.messages.engine.receipt;
+
+import com.messages.engine.config.ReceiptProperties;
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
+import com.messages.engine.dto.MessageReceiptsResponse;
+import com.messages.engine.dto.ReceiptBatch;
+import com.messages.engine.dto.ReceiptRequest;
+import com.messages.engine.dto.ReceiptType;
+import com.messages.engine.dto.ReceiptUpdate;
+import com.messages.engine.exception.ResourceNotFoundException;
+import com.messages.engine.model.MessageReceipt;
+import com.messages.engine.presence.PresenceTracker;
+import com.messages.engine.repository.ConversationRepository;
+import com.messages.engine.repository.MessageReceiptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivery and read receipts, stored as per-user high-water marks (see {@link MessageReceipt}).
+ * <p>
+ * Clients acknowledge the latest message they received or read ({@code /app/receipts}). These receipts are
+ * aggregated in memory per conversation and user, keeping only the greatest message ids, so a user reading
+ * fifty messages in a row costs one row update. Every {@code chat.receipts.flush-interval}, or once
+ * {@code max-pending} watermarks are waiting, they are capped at the latest message of their conversation (so
+ * that a receipt for an id not issued yet cannot mark future messages), upserted in JDBC batches with
+ * {@code INSERT ... ON CONFLICT}, the database keeping the greater of the stored and the new ids, and each
+ * conversation's changes are broadcast as one {@link ReceiptBatch} frame on
+ * {@code /topic/conversations.{id}.receipts}.
+ * </p>
+ * <p>
+ * When a batch fails with a transient error (connection lost, timeout, deadlock), its watermarks are kept for
+ * the next flush. Any other failure is retried row by row, and rows that still fail, e.g. for a user or
+ * conversation deleted meanwhile, are dropped and counted in {@code chat.receipts.dropped}, so that they
+ * cannot block the receipts written after them.
+ * </p>
+ * <p>
+ * Receipts are only accepted from users present in the conversation, i.e. holding an authorized subscription
+ * to one of its topics, so recording one costs no database access. Receipts not flushed yet are lost if the
+ * node stops abruptly; clients re-acknowledge on their next read.
+ * </p>
+ */
+@Service
+@Slf4j
+public class ReceiptService {
+
+    /**
+     * Upsert keeping the greater watermarks. Unlike {@code MERGE}, {@code ON CONFLICT} stays an upsert when two
+     * nodes insert the same row concurrently.
+     */
+    private static final String UPSERT_SQL = """
+            INSERT INTO message_receipts (conversation_id, user_id, delivered_up_to, read_up_to, updated_at)
+            VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)
+            ON CONFLICT (conversation_id, user_id) DO UPDATE SET
+                delivered_up_to = GREATEST(message_receipts.delivered_up_to, EXCLUDED.delivered_up_to),
+                read_up_to = GREATEST(message_receipts.read_up_to, EXCLUDED.read_up_to),
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    /**
+     * Latest message id of existing conversations, each read from the top of the
+     * {@code (conversation_id, id)} index; the ids are appended as an {@code IN} list.
+     */
+    private static final String LATEST_MESSAGES_SQL = """
+            SELECT c.id, (SELECT MAX(m.id) FROM messages m WHERE m.conversation_id = c.id)
+            FROM conversations c
+            WHERE c.id IN (%s)
+            """;
+
+    private final ReceiptProperties properties;
+    private final PresenceTracker presenceTracker;
+    private final MessageReceiptRepository receiptRepository;
+    private final ConversationRepository conversationRepository;
+    private final UserDirectory userDirectory;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    /** Pending watermarks per conversation and user; the inner maps are only accessed inside compute calls. */
+    private final Map<Long, Map<Long, Watermark>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private final Counter received;
+    private final DistributionSummary flushedRows;
+    private final Counter dropped;
+
+    /**
+     * Watermarks of one user in one conversation.
+     */
+    record Watermark(long deliveredUpTo, long readUpTo) {
+
+        Watermark max(Watermark other) {
+            return new Watermark(Math.max(deliveredUpTo, other.deliveredUpTo), Math.max(readUpTo, other.readUpTo));
+        }
+
+        Watermark cappedAt(long latestMessageId) {
+            return new Watermark(Math.min(deliveredUpTo, latestMessageId), Math.min(readUpTo, latestMessageId));
+        }
+
+    }
+
+    /**
+     * Creates the service and starts the flush thread.
+     *
+     * @param properties             receipt settings.
+     * @param presenceTracker        presence state, telling which users may acknowledge in a conversation.
+     * @param receiptRepository      repository reading the stored watermarks.
+     * @param conversationRepository repository checking conversation membership for queries.
+     * @param userDirectory          directory resolving the querying user.
+     * @param jdbcTemplate           template running the batched upserts.
+     * @param messagingTemplate      template broadcasting the receipt batches.
+     * @param meterRegistry          registry for the receipt metrics.
+     */
+    public ReceiptService(ReceiptProperties properties, PresenceTracker presenceTracker,
+                          MessageReceiptRepository receiptRepository, ConversationRepository conversationRepository,
+                          UserDirectory userDirectory, JdbcTemplate jdbcTemplate,
+                          SimpMessagingTemplate messagingTemplate, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.presenceTracker = presenceTracker;
+        this.receiptRepository = receiptRepository;
+        this.conversationRepository = conversationRepository;
+        this.userDirectory = userDirectory;
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.received = Counter.builder("chat.receipts.received")
+                .description("Receipts received from clients")
+                .register(meterRegistry);
+        this.flushedRows = DistributionSummary.builder("chat.receipts.flushed")
+                .description("Watermarks written per flush")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.receipts.dropped")
+                .description("Watermarks dropped because they cannot be written")
+                .register(meterRegistry);
+        long intervalMillis = properties.flushInterval().toMillis();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("receipt-flusher-"));
+        this.flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a receipt of a user.
+     *
+     * @param userId  the acknowledging user.
+     * @param request the receipt.
+     */
+    public void record(Long userId, ReceiptRequest request) {
+        if (userId == null || request.conversationId() == null || request.messageId() == null
+                || request.type() == null) {
+            return;
+        }
+        if (!presenceTracker.isPresent(userId, request.conversationId())) {
+            log.debug("Ignoring receipt of user {} not present in conversation {}", userId, request.conversationId());
+            return;
+        }
+        long messageId = request.messageId();
+        // Reading a message implies it was delivered.
+        Watermark watermark = new Watermark(messageId, request.type() == ReceiptType.READ ? messageId : 0);
+        merge(request.conversationId(), Map.of(userId, watermark));
+        received.increment();
+        if (pendingCount.get() >= properties.maxPending() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Returns the users a message has been delivered to and read by, from the stored and pending watermarks.
+     *
+     * @param username       the querying user, who must be a participant of the conversation.
+     * @param conversationId the conversation id.
+     * @param messageId      the message id.
+     * @return the receipts of the message.
+     * @throws ResourceNotFoundException if the conversation does not exist or the user is not a participant.
+     */
+    public MessageReceiptsResponse receipts(String username, Long conversationId, long messageId) {
+        Long userId = userDirectory.findByUserName(username)
+                .map(UserEntry::id)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "userName", username));
+        if (!conversationRepository.existsByIdAndParticipants_Id(conversationId, userId)) {
+            throw new ResourceNotFoundException("Conversation", "id", conversationId);
+        }
+        Map<Long, Watermark> watermarks = new TreeMap<>();
+        receiptRepository.findByConversationIdAndDeliveredUpToGreaterThanEqual(conversationId, messageId)
+                .forEach(receipt -> watermarks.put(receipt.getUserId(),
+                        new Watermark(receipt.getDeliveredUpTo(), receipt.getReadUpTo())));
+        pending.computeIfPresent(conversationId, (id, users) -> {
+            users.forEach((user, watermark) -> watermarks.merge(user, watermark, Watermark::max));
+            return users;
+        });
+        List<Long> deliveredTo = new ArrayList<>();
+        List<Long> readBy = new ArrayList<>();
+        watermarks.forEach((user, watermark) -> {
+            if (watermark.deliveredUpTo() >= messageId) {
+                deliveredTo.add(user);
+            }
+            if (watermark.readUpTo() >= messageId) {
+                readBy.add(user);
+            }
+        });
+        return new MessageReceiptsResponse(conversationId, messageId, deliveredTo, readBy);
+    }
+
+    /**
+     * Writes the pending watermarks and broadcasts them per conversation.
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        Map<Long, Map<Long, Watermark>> batch = new HashMap<>();
+        for (Long conversationId : pending.keySet()) {
+            Map<Long, Watermark> users = pending.remove(conversationId);
+            if (users != null) {
+                pendingCount.addAndGet(-users.size());
+                batch.put(conversationId, users);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batch = capAtLatestMessages(batch);
+        } catch (RuntimeException ex) {
+            retryLater(batch, ex);
+            return;
+        }
+        List<Object[]> rows = rowsOf(batch);
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows, properties.batchSize(), (statement, row) -> {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setLong(i + 1, (Long) row[i]);
+                }
+            });
+        } catch (RuntimeException ex) {
+            if (isTransient(ex)) {
+                retryLater(batch, ex);
+                return;
+            }
+            log.warn("Error writing {} receipt watermarks, writing them one by one: {}", rows.size(), ex.getMessage());
+            batch = writeOneByOne(batch);
+            rows = rowsOf(batch);
+        }
+        flushedRows.record(rows.size());
+        batch.forEach(this::broadcast);
+    }
+
+    /**
+     * Writes the pending watermarks and stops the flush thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Caps the watermarks at the latest message of their conversation, dropping those of deleted conversations.
+     */
+    private Map<Long, Map<Long, Watermark>> capAtLatestMessages(Map<Long, Map<Long, Watermark>> batch) {
+        Map<Long, Long> latest = new HashMap<>();
+        List<Long> conversationIds = new ArrayList<>(batch.keySet());
+        for (int from = 0; from < conversationIds.size(); from += properties.batchSize()) {
+            List<Long> chunk = conversationIds.subList(from,
+                    Math.min(from + properties.batchSize(), conversationIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(LATEST_MESSAGES_SQL.formatted(placeholders),
+                    (RowCallbackHandler) row -> latest.put(row.getLong(1), row.getLong(2)), chunk.toArray());
+        }
+        Map<Long, Map<Long, Watermark>> capped = new HashMap<>();
+        batch.forEach((conversationId, users) -> {
+            Long latestMessageId = latest.get(conversationId);
+            if (latestMessageId == null) {
+                dropped.increment(users.size());
+                return;
+            }
+            Map<Long, Watermark> cappedUsers = new HashMap<>();
+            users.forEach((userId, watermark) -> {
+                Watermark cappedWatermark = watermark.cappedAt(latestMessageId);
+                if (cappedWatermark.deliveredUpTo() > 0) {
+                    cappedUsers.put(userId, cappedWatermark);
+                }
+            });
+            if (!cappedUsers.isEmpty()) {
+                capped.put(conversationId, cappedUsers);
+            }
+        });
+        return capped;
+    }
+
+    /**
+     * Upserts the watermarks one statement at a time, keeping those failing transiently for the next flush
+     * and dropping the others.
+     *
+     * @return the written watermarks.
+     */
+    private Map<Long, Map<Long, Watermark>> writeOneByOne(Map<Long, Map<Long, Watermark>> batch) {
+        Map<Long, Map<Long, Watermark>> written = new HashMap<>();
+        batch.forEach((conversationId, users) -> users.forEach((userId, watermark) -> {
+            try {
+                jdbcTemplate.update(UPSERT_SQL, conversationId, userId, watermark.deliveredUpTo(),
+                        watermark.readUpTo());
+                written.computeIfAbsent(conversationId, id -> new HashMap<>()).put(userId, watermark);
+            } catch (RuntimeException ex) {
+                if (isTransient(ex)) {
+                    merge(conversationId, Map.of(userId, watermark));
+                } else {
+                    log.warn("Dropping receipt watermark of user {} in conversation {}: {}",
+                            userId, conversationId, ex.getMessage());
+                    dropped.increment();
+                }
+            }
+        }));
+        return written;
+    }
+
+    private void retryLater(Map<Long, Map<Long, Watermark>> batch, RuntimeException ex) {
+        log.error("Error writing receipt watermarks of {} conversations, retrying with the next flush: {}",
+                batch.size(), ex.getMessage(), ex);
+        batch.forEach(this::merge);
+    }
+
+    private static List<Object[]> rowsOf(Map<Long, Map<Long, Watermark>> batch) {
+        List<Object[]> rows = new ArrayList<>();
+        batch.forEach((conversationId, users) -> users.forEach((userId, watermark) -> rows.add(new Object[]{
+                conversationId, userId, watermark.deliveredUpTo(), watermark.readUpTo()})));
+        return rows;
+    }
+
+    /**
+     * Tells whether a failure may succeed when retried as is: lost connections, timeouts, deadlocks.
+     */
+    private static boolean isTransient(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException || ex instanceof RecoverableDataAccessException
+                || ex instanceof DataAccessResourceFailureException;
+    }
+
+    private void merge(Long conversationId, Map<Long, Watermark> watermarks) {
+        pending.compute(conversationId, (id, users) -> {
+            Map<Long, Watermark> merged = users != null ? users : new HashMap<>();
+            int before = merged.size();
+            watermarks.forEach((userId, watermark) -> merged.merge(userId, watermark, Watermark::max));
+            pendingCount.addAndGet(merged.size() - before);
+            return merged;
+        });
+    }
+
+    private void broadcast(Long conversationId, Map<Long, Watermark> users) {
+        List<ReceiptUpdate> updates = new ArrayList<>(users.size());
+        users.forEach((userId, watermark) ->
+                updates.add(new ReceiptUpdate(userId, watermark.deliveredUpTo(), watermark.readUpTo())));
+        try {
+            messagingTemplate.convertAndSend(WebSocketConfig.conversationReceiptsTopic(conversationId),
+                    new ReceiptBatch(conversationId, updates));
+        } catch (Exception ex) {
+            log.error("Error broadcasting {} receipts of conversation {}: {}",
+                    updates.size(), conversationId, ex.getMessage(), ex);
+        }
+    }
+
+}
@@ -9,4 +9,14 @@ import org.springframework.stereotype.Repository;
  */
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    /**
+     * Checks whether a user participates in a conversation.
+     *
+     * @param conversationId the conversation id.
+     * @param userId         the user id.
+     * @return true if the user is a participant of the conversation.
+     */
+    boolean existsByIdAndParticipants_Id(Long conversationId, Long userId);
+
 }
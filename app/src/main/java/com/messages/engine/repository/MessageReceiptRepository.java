@@ -0,0 +1,29 @@
+package com.messages.engine.repository;
+
+import com.messages.engine.model.MessageReceipt;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository of receipt watermarks.
+ * <p>
+ * Watermarks are written in batches by {@link com.messages.engine.receipt.ReceiptService}, with a monotonic
+ * upsert; this repository only reads them.
+ * </p>
+ */
+@Repository
+public interface MessageReceiptRepository extends JpaRepository<MessageReceipt, MessageReceipt.Key> {
+
+    /**
+     * Returns the watermarks of the users a message has been delivered to; since reading implies delivery,
+     * this includes every user who has read it.
+     *
+     * @param conversationId the conversation id.
+     * @param messageId      the message id.
+     * @return the watermarks reaching the message.
+     */
+    List<MessageReceipt> findByConversationIdAndDeliveredUpToGreaterThanEqual(Long conversationId, long messageId);
+
+}
@@ -1,9 +1,54 @@
 package com.messages.engine.repository;
 
 import com.messages.engine.model.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-}
\ No newline at end of file
+
+    /**
+     * Id, content and author of a message, read without loading the related entities.
+     */
+    interface MessageSummary {
+
+        Long getId();
+
+        String getContent();
+
+        Long getUserId();
+
+        Long getConversationId();
+
+    }
+
+    /**
+     * Returns the messages of a conversation that follow a given message, oldest first.
+     *
+     * @param conversationId the conversation id.
+     * @param afterId        the id after which messages are returned.
+     * @param limit          the maximum number of messages.
+     * @return the message summaries.
+     */
+    @Query("select m.id as id, m.content as content, m.user.id as userId, m.conversation.id as conversationId "
+            + "from Message m where m.conversation.id = :conversationId and m.id > :afterId order by m.id")
+    List<MessageSummary> findSummariesAfter(@Param("conversationId") Long conversationId,
+                                            @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Returns the latest messages of a conversation, newest first.
+     *
+     * @param conversationId the conversation id.
+     * @param limit          the maximum number of messages.
+     * @return the message summaries.
+     */
+    @Query("select m.id as id, m.content as content, m.user.id as userId, m.conversation.id as conversationId "
+            + "from Message m where m.conversation.id = :conversationId order by m.id desc")
+    List<MessageSummary> findLatestSummaries(@Param("conversationId") Long conversationId, Limit limit);
+
+}
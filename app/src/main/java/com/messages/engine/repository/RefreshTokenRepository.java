@@ -0,0 +1,66 @@
+package com.messages.engine.repository;
+
+import com.messages.engine.model.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository of refresh tokens, see {@link com.messages.engine.security.RefreshTokenService}.
+ */
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    /**
+     * Returns a token locked for the rest of the transaction, so that concurrent exchanges of the same token
+     * are serialized and only the first one succeeds.
+     *
+     * @param tokenHash the hash of the token.
+     * @return the token, if known.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from RefreshToken t where t.tokenHash = :tokenHash")
+    Optional<RefreshToken> findForUpdate(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Deletes the tokens of a family.
+     *
+     * @param familyId the family id.
+     * @return the number of deleted tokens.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken t where t.familyId = :familyId")
+    int deleteByFamilyId(@Param("familyId") String familyId);
+
+    /**
+     * Deletes the tokens of a user.
+     *
+     * @param userId the user id.
+     * @return the number of deleted tokens.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken t where t.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Deletes the tokens expired before a time.
+     *
+     * @param time the time.
+     * @return the number of deleted tokens.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RefreshToken t where t.expiresAt < :time")
+    int deleteExpiredBefore(@Param("time") Instant time);
+
+}
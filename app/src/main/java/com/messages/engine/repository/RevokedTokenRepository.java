@@ -0,0 +1,40 @@
+package com.messages.engine.repository;
+
+import com.messages.engine.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository of revoked access token ids, see {@link com.messages.engine.security.TokenRevocationService}.
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Returns the ids of the revoked tokens that have not expired yet.
+     *
+     * @param now the current time.
+     * @return the token ids.
+     */
+    @Query("select r.jti from RevokedToken r where r.expiresAt > :now")
+    List<String> findJtisExpiringAfter(@Param("now") Instant now);
+
+    /**
+     * Deletes the rows of tokens expired before a time.
+     *
+     * @param time the time.
+     * @return the number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedToken r where r.expiresAt < :time")
+    int deleteExpiredBefore(@Param("time") Instant time);
+
+}
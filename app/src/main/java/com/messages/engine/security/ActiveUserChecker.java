@@ -0,0 +1,64 @@
+package com.messages.engine.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.messages.engine.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived revocation check of users authenticated from token claims alone.
+ * <p>
+ * A token stays valid until it expires, even if its user is deleted meanwhile. Whether a user still exists
+ * is looked up at most once per {@code jwt.user-check-interval} per user and node, so a deleted user's tokens
+ * stop working within that interval at the cost of one query per active user and interval, instead of one
+ * per request.
+ * </p>
+ */
+@Component
+public class ActiveUserChecker {
+
+    private final LoadingCache<Long, Boolean> activeUsers;
+
+    /**
+     * Creates the checker.
+     *
+     * @param userRepository repository checking that users exist.
+     * @param checkInterval  time for which a user's status is reused.
+     * @param meterRegistry  registry for the cache metrics.
+     */
+    public ActiveUserChecker(UserRepository userRepository,
+                             @Value("${jwt.user-check-interval:60s}") Duration checkInterval,
+                             MeterRegistry meterRegistry) {
+        this.activeUsers = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(checkInterval)
+                .recordStats()
+                .build(userRepository::existsById);
+        CaffeineCacheMetrics.monitor(meterRegistry, activeUsers, "jwt.active-users");
+    }
+
+    /**
+     * Returns whether a user may still authenticate with previously issued tokens.
+     *
+     * @param userId the user id of a token.
+     * @return whether the user exists, as of at most {@code jwt.user-check-interval} ago.
+     */
+    public boolean isActive(Long userId) {
+        return Boolean.TRUE.equals(activeUsers.get(userId));
+    }
+
+    /**
+     * Forgets the status of a user, e.g. after deleting it, so that the next check queries it again.
+     *
+     * @param userId the user id.
+     */
+    public void invalidate(Long userId) {
+        activeUsers.invalidate(userId);
+    }
+
+}
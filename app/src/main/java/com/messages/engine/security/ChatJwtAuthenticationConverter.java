@@ -0,0 +1,51 @@
+package com.messages.engine.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Converts the tokens decoded by the OAuth2 resource server into the same authentication as
+ * {@link JwtAuthenticationFilter}: a {@link ChatUserPrincipal} with the authorities of the {@code roles} claim.
+ * Tokens without a user id claim get Spring's default {@code JwtAuthenticationToken}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatJwtAuthenticationConverter implements Converter<Jwt, AbstractAuthenticationToken> {
+
+    private final ActiveUserChecker activeUserChecker;
+
+    private final JwtAuthenticationConverter defaultConverter = new JwtAuthenticationConverter();
+
+    /**
+     * Builds the authentication of a decoded token.
+     *
+     * @param jwt the decoded token.
+     * @return the authentication.
+     * @throws DisabledException if the token's user no longer exists.
+     */
+    @Override
+    public AbstractAuthenticationToken convert(@NonNull Jwt jwt) {
+        Object userId = jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM);
+        if (!(userId instanceof Number id)) {
+            return defaultConverter.convert(jwt);
+        }
+        if (!activeUserChecker.isActive(id.longValue())) {
+            throw new DisabledException("User " + id + " no longer exists");
+        }
+        List<String> roles = jwt.getClaimAsStringList(JwtTokenProvider.ROLES_CLAIM);
+        return UsernamePasswordAuthenticationToken.authenticated(
+                new ChatUserPrincipal(id.longValue(), jwt.getSubject()), null,
+                roles != null ? AuthorityUtils.createAuthorityList(roles) : List.of());
+    }
+
+}
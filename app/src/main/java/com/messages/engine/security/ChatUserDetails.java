@@ -0,0 +1,33 @@
+package com.messages.engine.security;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * {@link org.springframework.security.core.userdetails.UserDetails} of a chat user, also carrying the user's
+ * database id so that the tokens issued on login can embed it.
+ */
+@Getter
+public class ChatUserDetails extends User {
+
+    /** The user's database id. */
+    private final Long userId;
+
+    /**
+     * Creates the user details.
+     *
+     * @param userId      the user's id.
+     * @param username    the user's name.
+     * @param password    the encoded password.
+     * @param authorities the granted authorities.
+     */
+    public ChatUserDetails(Long userId, String username, String password,
+                           Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+
+}
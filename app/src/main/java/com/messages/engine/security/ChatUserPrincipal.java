@@ -0,0 +1,43 @@
+package com.messages.engine.security;
+
+import org.springframework.security.core.Authentication;
+
+import java.security.Principal;
+
+/**
+ * Principal of an authenticated STOMP session or API request: the user's name and database id.
+ * <p>
+ * Built from the claims of a verified token, by {@link JwtAuthenticationFilter} for each request and by
+ * {@link StompAuthenticationInterceptor} once on CONNECT, where it is kept with the session, so handlers get
+ * the user id without querying the database.
+ * </p>
+ *
+ * @param userId the user's id.
+ * @param name   the user's name.
+ */
+public record ChatUserPrincipal(Long userId, String name) implements Principal {
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the user id of a session principal.
+     *
+     * @param principal the principal of a STOMP session, message or HTTP request, possibly null.
+     * @return the user id, or null if the principal carries none.
+     */
+    public static Long userIdOf(Principal principal) {
+        if (principal instanceof Authentication authentication) {
+            if (authentication.getPrincipal() instanceof ChatUserPrincipal user) {
+                return user.userId();
+            }
+            if (authentication.getPrincipal() instanceof ChatUserDetails details) {
+                return details.getUserId();
+            }
+        }
+        return principal instanceof ChatUserPrincipal user ? user.userId() : null;
+    }
+
+}
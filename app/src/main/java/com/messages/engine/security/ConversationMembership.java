@@ -0,0 +1,32 @@
+package com.messages.engine.security;
+
+import com.messages.engine.repository.ConversationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Check that a user takes part in a conversation before it may send to it.
+ * <p>
+ * Membership is always read from the participants in the database. Presence is not used: it only ends on
+ * UNSUBSCRIBE or DISCONNECT, so a user who left the conversation but kept its subscription is still present.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversationMembership {
+
+    private final ConversationRepository conversationRepository;
+
+    /**
+     * Returns whether a user takes part in a conversation.
+     *
+     * @param userId         the user id; null for an unknown user.
+     * @param conversationId the conversation id.
+     * @return {@code true} if the user is a participant of the conversation.
+     */
+    public boolean isParticipant(Long userId, Long conversationId) {
+        return userId != null && conversationId != null
+                && conversationRepository.existsByIdAndParticipants_Id(conversationId, userId);
+    }
+
+}
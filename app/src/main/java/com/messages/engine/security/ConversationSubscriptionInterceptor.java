@@ -0,0 +1,84 @@
+package com.messages.engine.security;
+
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.repository.ConversationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP channel interceptor that authorizes SUBSCRIBE frames for conversation topics.
+ * <p>
+ * A subscription to {@code /topic/conversations.{conversationId}} (or one of its variants such as
+ * the {@code .batch} and {@code .presence} topics) is only accepted when the session's user is a participant
+ * of that conversation. Every other broker topic is rejected, as is any destination containing a pattern
+ * character ({@code *}, {@code ?}, {@code #} or <code>{</code>): the simple broker matches subscriptions as Ant
+ * patterns and the relayed broker as AMQP topic patterns, so {@code /topic/**} or {@code /topic/#} would
+ * otherwise receive every conversation. The broker queues ({@code /queue}) are only reachable through the
+ * session-scoped user destinations ({@code /user/queue/...}). Rejected subscriptions make the broker answer
+ * with a STOMP ERROR frame. The user id comes from the session principal resolved on CONNECT
+ * ({@link StompAuthenticationInterceptor}).
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSubscriptionInterceptor implements ChannelInterceptor {
+
+    /** Characters of the Ant and AMQP destination patterns. */
+    private static final Pattern PATTERN_CHARACTERS = Pattern.compile("[*?#{]");
+
+    private final ConversationRepository conversationRepository;
+
+    /**
+     * Checks conversation membership before a SUBSCRIBE frame reaches the broker.
+     *
+     * @param message the inbound message.
+     * @param channel the inbound channel.
+     * @return the unchanged message if the subscription is allowed.
+     * @throws AccessDeniedException if the subscription is not allowed.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || PATTERN_CHARACTERS.matcher(destination).find()) {
+            log.warn("Rejected subscription to {} for session {}", destination, accessor.getSessionId());
+            throw new AccessDeniedException("Subscription to " + destination + " is not allowed");
+        }
+        if (destination.startsWith(WebSocketConfig.BROKER_QUEUE_PREFIX)) {
+            log.warn("Rejected subscription to {} for session {}", destination, accessor.getSessionId());
+            throw new AccessDeniedException("Subscription to " + destination + " is not allowed");
+        }
+        if (!destination.startsWith(WebSocketConfig.BROKER_TOPIC_PREFIX)) {
+            return message;
+        }
+        Long conversationId = WebSocketConfig.conversationIdOf(destination);
+        Principal principal = accessor.getUser();
+        Long userId = ChatUserPrincipal.userIdOf(principal);
+        if (conversationId == null || userId == null) {
+            log.warn("Rejected subscription to {} for session {}", destination, accessor.getSessionId());
+            throw new AccessDeniedException("Subscription to " + destination + " is not allowed");
+        }
+        if (!conversationRepository.existsByIdAndParticipants_Id(conversationId, userId)) {
+            log.warn("User {} is not a participant of conversation {}", principal.getName(), conversationId);
+            throw new AccessDeniedException("Not a participant of conversation " + conversationId);
+        }
+        return message;
+    }
+
+}
@@ -1,10 +1,13 @@
 package com.messages.engine.security;
 
-import com.messages.engine.model.User;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
 import com.messages.engine.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -12,18 +15,23 @@ import org.springframework.stereotype.Service;
 /**
  * Custom implementation of {@link UserDetailsService} to load user-specific data.
  * <p>
- * This service retrieves a {@link User} from the data store using {@link UserRepository}
- * and builds a Spring Security {@link UserDetails} object to be used for authentication.
+ * This service retrieves a user through the {@link UserDirectory} cache, loaded from {@link UserRepository},
+ * and builds a {@link ChatUserDetails} object, carrying the user id, to be used for authentication.
+ * As {@link UserDetailsPasswordService}, it stores the passwords rehashed on login when their hash no longer
+ * has the configured work factor.
  * </p>
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     /** Repository for accessing User entities. */
     private final UserRepository userRepository;
 
+    /** Cache of the users, looked up on every login. */
+    private final UserDirectory userDirectory;
+
     /**
      * Loads the user by username.
      *
@@ -33,17 +41,33 @@ public class CustomUserDetailsService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUserName(username)
+        UserEntry user = userDirectory.findByUserName(username)
                 .orElseThrow(() -> {
                     log.error("User not found with username: {}", username);
                     return new UsernameNotFoundException("User not found with username: " + username);
                 });
 
-        // Build and return the UserDetails object using Spring Security's User builder.
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUserName())
-                .password(user.getPassword())
-                .authorities("USER")  // For simplicity, we assign a "USER" role; extend as needed.
-                .build();
+        // The user id is kept so that the tokens issued on login carry it.
+        // For simplicity, we assign a "USER" role; extend as needed.
+        return new ChatUserDetails(user.id(), user.userName(), user.password(),
+                AuthorityUtils.createAuthorityList("USER"));
+    }
+
+    /**
+     * Stores a user's password rehashed by the password encoder after a successful login.
+     *
+     * @param user        the authenticated user.
+     * @param newPassword the new password hash.
+     * @return the user with the new password hash.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.findByUserName(user.getUsername()).ifPresent(entity -> {
+            entity.setPassword(newPassword);
+            userDirectory.invalidate(userRepository.save(entity));
+            log.info("Rehashed the password of user {}", user.getUsername());
+        });
+        Long userId = user instanceof ChatUserDetails details ? details.getUserId() : null;
+        return new ChatUserDetails(userId, user.getUsername(), newPassword, user.getAuthorities());
     }
 }
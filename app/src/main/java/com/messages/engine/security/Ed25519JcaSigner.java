@@ -0,0 +1,75 @@
+package com.messages.engine.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.impl.BaseJWSProvider;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * EdDSA (Ed25519) {@link JWSSigner} on the JDK's own Ed25519 implementation.
+ * <p>
+ * Nimbus' {@code Ed25519Signer} requires Google Tink; the JDK has implemented Ed25519 since Java 15.
+ * Thread-safe: every signature uses its own {@link Signature} instance.
+ * </p>
+ */
+public class Ed25519JcaSigner extends BaseJWSProvider implements JWSSigner {
+
+    /** DER prefix of a PKCS#8 Ed25519 private key, followed by the 32 raw key bytes. */
+    private static final byte[] PKCS8_PREFIX = HexFormat.of().parseHex("302e020100300506032b657004220420");
+
+    private final PrivateKey privateKey;
+
+    /**
+     * Creates a signer.
+     *
+     * @param key an Ed25519 key pair including its private part.
+     * @throws JOSEException if the key is not a private Ed25519 key.
+     */
+    public Ed25519JcaSigner(OctetKeyPair key) throws JOSEException {
+        super(Set.of(JWSAlgorithm.EdDSA, JWSAlgorithm.Ed25519));
+        if (!Curve.Ed25519.equals(key.getCurve()) || key.getD() == null) {
+            throw new JOSEException("A private Ed25519 key is required");
+        }
+        try {
+            this.privateKey = KeyFactory.getInstance("Ed25519")
+                    .generatePrivate(new PKCS8EncodedKeySpec(concat(PKCS8_PREFIX, key.getDecodedD())));
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Invalid Ed25519 private key: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Base64URL sign(JWSHeader header, byte[] signingInput) throws JOSEException {
+        if (!supportedJWSAlgorithms().contains(header.getAlgorithm())) {
+            throw new JOSEException("Unsupported JWS algorithm " + header.getAlgorithm());
+        }
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(privateKey);
+            signature.update(signingInput);
+            return Base64URL.encode(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Ed25519 signing failed: " + e.getMessage(), e);
+        }
+    }
+
+    static byte[] concat(byte[] prefix, byte[] key) {
+        byte[] encoded = new byte[prefix.length + key.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(key, 0, encoded, prefix.length, key.length);
+        return encoded;
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.messages.engine.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.impl.BaseJWSProvider;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.util.Base64URL;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * EdDSA (Ed25519) {@link JWSVerifier} on the JDK's own Ed25519 implementation; see {@link Ed25519JcaSigner}.
+ */
+public class Ed25519JcaVerifier extends BaseJWSProvider implements JWSVerifier {
+
+    /** DER prefix of an X.509 Ed25519 public key, followed by the 32 raw key bytes. */
+    private static final byte[] X509_PREFIX = HexFormat.of().parseHex("302a300506032b6570032100");
+
+    private final PublicKey publicKey;
+
+    /**
+     * Creates a verifier.
+     *
+     * @param key an Ed25519 public key.
+     * @throws JOSEException if the key is not an Ed25519 key.
+     */
+    public Ed25519JcaVerifier(OctetKeyPair key) throws JOSEException {
+        super(Set.of(JWSAlgorithm.EdDSA, JWSAlgorithm.Ed25519));
+        if (!Curve.Ed25519.equals(key.getCurve())) {
+            throw new JOSEException("An Ed25519 key is required");
+        }
+        try {
+            this.publicKey = KeyFactory.getInstance("Ed25519")
+                    .generatePublic(new X509EncodedKeySpec(Ed25519JcaSigner.concat(X509_PREFIX, key.getDecodedX())));
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Invalid Ed25519 public key: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature) throws JOSEException {
+        if (!supportedJWSAlgorithms().contains(header.getAlgorithm())) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(publicKey);
+            verifier.update(signingInput);
+            return verifier.verify(signature.decode());
+        } catch (SignatureException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            throw new JOSEException("Ed25519 verification failed: " + e.getMessage(), e);
+        }
+    }
+
+}
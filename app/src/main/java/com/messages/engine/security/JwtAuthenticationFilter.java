@@ -1,6 +1,7 @@
 package com.messages.engine.security;
 
 import com.messages.engine.exception.JwtAuthenticationException;
+import com.nimbusds.jwt.JWTClaimsSet;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -23,6 +24,10 @@ import java.io.IOException;
  * Filter that intercepts incoming HTTP requests, extracts a JWT token from the
  * Authorization header, validates it, and sets the corresponding Authentication in the
  * SecurityContext. This filter is applied once per request.
+ * <p>
+ * The authentication's principal is a {@link ChatUserPrincipal} built from the token's {@code uid}
+ * and {@code roles} claims, so authenticating a request costs no database query.
+ * </p>
  */
 @Component
 @RequiredArgsConstructor
@@ -35,13 +40,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenProvider jwtTokenProvider;
 
     /**
-     * Service for loading user-specific data during authentication.
+     * Service for loading user-specific data of tokens without a user id claim.
      */
     private final UserDetailsService customUserDetailsService;
 
     /**
-     * Extracts the JWT token from the Authorization header, validates it, and if valid,
-     * loads the user details to set the authentication in the SecurityContext.
+     * Periodic check that the users of valid tokens still exist.
+     */
+    private final ActiveUserChecker activeUserChecker;
+
+    /**
+     * Extracts the JWT token from the Authorization header, verifies it once (verified tokens are cached
+     * by {@link JwtTokenProvider}), and if valid, sets the authentication built from its claims in the
+     * SecurityContext.
      *
      * @param request     the incoming HTTP request.
      * @param response    the HTTP response.
@@ -56,11 +67,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = extractJwtFromRequest(request);
-            if (StringUtils.hasText(jwt) && jwtTokenProvider.validateToken(jwt)) {
-                String username = jwtTokenProvider.getUsernameFromJWT(jwt);
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            JWTClaimsSet claims = StringUtils.hasText(jwt) ? jwtTokenProvider.verify(jwt).orElse(null) : null;
+            UsernamePasswordAuthenticationToken authenticationToken = claims != null ? authenticate(claims) : null;
+            if (authenticationToken != null) {
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
@@ -70,6 +79,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Builds the authentication of verified claims. Tokens carrying the user id and authorities need no
+     * query, apart from the periodic {@link ActiveUserChecker} lookup; older tokens carrying only the user name
+     * are resolved through the user details service.
+     *
+     * @param claims the verified claims.
+     * @return the authentication, or null if the user no longer exists.
+     */
+    private UsernamePasswordAuthenticationToken authenticate(JWTClaimsSet claims) {
+        ChatUserPrincipal principal = jwtTokenProvider.principalOf(claims);
+        if (principal != null) {
+            if (!activeUserChecker.isActive(principal.userId())) {
+                log.warn("Rejected token of removed user {}", principal.userId());
+                return null;
+            }
+            return UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                    jwtTokenProvider.authoritiesOf(claims));
+        }
+        UserDetails userDetails = customUserDetailsService.loadUserByUsername(claims.getSubject());
+        Object legacyPrincipal = userDetails instanceof ChatUserDetails details
+                ? new ChatUserPrincipal(details.getUserId(), details.getUsername()) : userDetails;
+        return UsernamePasswordAuthenticationToken.authenticated(legacyPrincipal, null, userDetails.getAuthorities());
+    }
+
     /**
      * Extracts the JWT token from the Authorization header in the HTTP request.
      *
@@ -0,0 +1,209 @@
+package com.messages.engine.security;
+
+import com.messages.engine.exception.KeyLoadingException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of the keys tokens are signed and verified with, identified by their {@code kid}.
+ * <p>
+ * The first key of the configured algorithm signs new tokens; every key of the set verifies the tokens
+ * naming it in their {@code kid} header. Rotating keys therefore means publishing the new key first in the set
+ * while keeping the old one until the last token it signed has expired. Supported keys: RSA ({@code RS256}),
+ * EC P-256 ({@code ES256}) and Ed25519 ({@code EdDSA}). Signers and verifiers are created once and are
+ * thread-safe.
+ * </p>
+ */
+public final class JwtKeyRing {
+
+    private final String signingKeyId;
+    private final JWSAlgorithm algorithm;
+    private final JWSSigner signer;
+    private final Map<String, JWSVerifier> verifiers;
+    private final JWKSet publicKeys;
+
+    private JwtKeyRing(String signingKeyId, JWSAlgorithm algorithm, JWSSigner signer,
+                       Map<String, JWSVerifier> verifiers, JWKSet publicKeys) {
+        this.signingKeyId = signingKeyId;
+        this.algorithm = algorithm;
+        this.signer = signer;
+        this.verifiers = verifiers;
+        this.publicKeys = publicKeys;
+    }
+
+    /**
+     * Creates a key ring.
+     *
+     * @param keys      the keys, with the private part of at least the signing key; keys without a {@code kid}
+     *                  are identified by their thumbprint.
+     * @param algorithm the signing algorithm: the first private key of this algorithm signs.
+     * @return the key ring.
+     * @throws KeyLoadingException if no key can sign with the algorithm, or a key is not supported.
+     */
+    public static JwtKeyRing of(JWKSet keys, JWSAlgorithm algorithm) {
+        try {
+            String signingKeyId = null;
+            JWSSigner signer = null;
+            Map<String, JWSVerifier> verifiers = new LinkedHashMap<>();
+            List<JWK> identified = new ArrayList<>();
+            for (JWK jwk : keys.getKeys()) {
+                JWK key = withKeyId(jwk);
+                String keyId = key.getKeyID();
+                identified.add(key);
+                verifiers.put(keyId, verifierOf(key));
+                if (signer == null && key.isPrivate() && algorithm.equals(algorithmOf(key))) {
+                    signingKeyId = keyId;
+                    signer = signerOf(key);
+                }
+            }
+            if (signer == null) {
+                throw new KeyLoadingException("No private key for " + algorithm + " in the JWT key set");
+            }
+            return new JwtKeyRing(signingKeyId, algorithm, signer, Map.copyOf(verifiers),
+                    new JWKSet(identified).toPublicJWKSet());
+        } catch (JOSEException | ParseException e) {
+            throw new KeyLoadingException("Invalid JWT key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the algorithm a key signs with.
+     *
+     * @param key the key.
+     * @return its {@code alg}, or the algorithm implied by its type and curve.
+     * @throws JOSEException if the key type or curve is not supported.
+     */
+    public static JWSAlgorithm algorithmOf(JWK key) throws JOSEException {
+        if (key.getAlgorithm() != null) {
+            return JWSAlgorithm.parse(key.getAlgorithm().getName());
+        }
+        if (key instanceof RSAKey) {
+            return JWSAlgorithm.RS256;
+        }
+        if (key instanceof ECKey ecKey && Curve.P_256.equals(ecKey.getCurve())) {
+            return JWSAlgorithm.ES256;
+        }
+        if (key instanceof OctetKeyPair okp && Curve.Ed25519.equals(okp.getCurve())) {
+            return JWSAlgorithm.EdDSA;
+        }
+        throw new JOSEException("Unsupported JWT key type " + key.getKeyType());
+    }
+
+    /**
+     * Returns the header of new tokens: the signing algorithm and key id.
+     *
+     * @return the JWS header.
+     */
+    public JWSHeader header() {
+        return new JWSHeader.Builder(algorithm)
+                .type(JOSEObjectType.JWT)
+                .keyID(signingKeyId)
+                .build();
+    }
+
+    /**
+     * Returns the signer of new tokens.
+     *
+     * @return the signer of the signing key.
+     */
+    public JWSSigner signer() {
+        return signer;
+    }
+
+    /**
+     * Verifies a token's signature with the key named by its {@code kid}; tokens without one (issued before
+     * key ids were introduced) are tried against every key of their algorithm.
+     *
+     * @param jwt the parsed token.
+     * @return whether the signature is valid.
+     * @throws JOSEException if verification fails unexpectedly.
+     */
+    public boolean verify(SignedJWT jwt) throws JOSEException {
+        String keyId = jwt.getHeader().getKeyID();
+        if (keyId != null) {
+            JWSVerifier verifier = verifiers.get(keyId);
+            return verifier != null && jwt.verify(verifier);
+        }
+        for (JWSVerifier verifier : verifiers.values()) {
+            if (verifier.supportedJWSAlgorithms().contains(jwt.getHeader().getAlgorithm()) && jwt.verify(verifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the public keys, for publishing as a JWK Set.
+     *
+     * @return the public parts of all keys.
+     */
+    public JWKSet publicKeys() {
+        return publicKeys;
+    }
+
+    /**
+     * Returns the id of the signing key.
+     *
+     * @return the {@code kid} of new tokens.
+     */
+    public String signingKeyId() {
+        return signingKeyId;
+    }
+
+    private static JWK withKeyId(JWK key) throws JOSEException, ParseException {
+        if (key.getKeyID() != null) {
+            return key;
+        }
+        Map<String, Object> json = key.toJSONObject();
+        json.put("kid", key.computeThumbprint().toString());
+        return JWK.parse(json);
+    }
+
+    private static JWSSigner signerOf(JWK key) throws JOSEException {
+        if (key instanceof RSAKey rsaKey) {
+            return new RSASSASigner(rsaKey);
+        }
+        if (key instanceof ECKey ecKey) {
+            return new ECDSASigner(ecKey);
+        }
+        if (key instanceof OctetKeyPair okp) {
+            return new Ed25519JcaSigner(okp);
+        }
+        throw new JOSEException("Unsupported JWT key type " + key.getKeyType());
+    }
+
+    private static JWSVerifier verifierOf(JWK key) throws JOSEException {
+        if (key instanceof RSAKey rsaKey) {
+            return new RSASSAVerifier(rsaKey);
+        }
+        if (key instanceof ECKey ecKey) {
+            return new ECDSAVerifier(ecKey);
+        }
+        if (key instanceof OctetKeyPair okp) {
+            return new Ed25519JcaVerifier(okp);
+        }
+        throw new JOSEException("Unsupported JWT key type " + key.getKeyType());
+    }
+
+}
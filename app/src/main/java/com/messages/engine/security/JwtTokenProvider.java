@@ -1,32 +1,83 @@
 package com.messages.engine.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.messages.engine.exception.KeyLoadingException;
 import com.nimbusds.jose.*;
-import com.nimbusds.jose.crypto.RSASSASigner;
-import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jwt.*;
 import com.messages.engine.exception.JwtAuthenticationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.stereotype.Component;
-import com.messages.engine.service.SecretManagerService;
+import org.springframework.util.StringUtils;
+import com.messages.engine.service.SecretProvider;
 
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.*;
 import java.text.ParseException;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies the signed JWTs of authenticated users.
+ * <p>
+ * Tokens are signed with the key ring held in the {@code gcp.secret.jwt-key-set} secret, a JWK Set with private
+ * keys: the first key of the {@code jwt.algorithm} ({@code RS256}, {@code ES256} or {@code EdDSA}) signs, every
+ * key verifies the tokens naming it in their {@code kid} header, and the secret is re-read every
+ * {@code jwt.key-refresh-interval}, so keys rotate without a restart (see {@link JwtKeyRing}). Without that
+ * secret, the RSA key pair of the {@code gcp.secret.jwt-private-key} and {@code jwt-public-key} secrets is used
+ * with RS256. The public keys are published by {@code JwksController}.
+ * </p>
+ * <p>
+ * Tokens carry the user's name ({@code sub}), id ({@code uid}) and authorities ({@code roles}), so requests
+ * can be authenticated from a verified token without loading the user (see {@link #principalOf} and
+ * {@link #authoritiesOf}).
+ * </p>
+ * <p>
+ * Verified tokens are cached by their SHA-256 hash until they expire (at most {@code jwt.verified-cache-size}
+ * tokens), so a client sending the same token with every request pays for one signature verification only.
+ * Tokens failing verification are not cached.
+ * </p>
+ * <p>
+ * Tokens are short-lived and renewed with refresh tokens (see {@link RefreshTokenService}); each carries an id
+ * ({@code jti}) so that it can be revoked before it expires, checked against the in-memory filter of
+ * {@link TokenRevocationService} on every verification.
+ * </p>
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class JwtTokenProvider {
 
-    private final SecretManagerService secretManagerService;
+    /** Claim holding the user id. */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /** Claim holding the names of the user's authorities. */
+    public static final String ROLES_CLAIM = "roles";
+
+    private final SecretProvider secretProvider;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TokenRevocationService tokenRevocationService;
 
     @Value("${gcp.secret.jwt-private-key}")
     private String privateKeySecretName;
@@ -37,36 +88,114 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration-ms}")
     private long jwtExpirationInMs;
 
-    private PrivateKey privateKey;
-    private PublicKey publicKey;
+    @Value("${gcp.secret.jwt-key-set:}")
+    private String keySetSecretName;
+
+    @Value("${jwt.algorithm:RS256}")
+    private String algorithm;
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private long verifiedCacheSize;
+
+    /** Current keys, replaced as a whole when the key set secret changes. */
+    private volatile JwtKeyRing keyRing;
+
+    /** Claims of verified tokens by token hash, each expiring with its token. */
+    private Cache<String, JWTClaimsSet> verifiedTokens;
 
     @PostConstruct
     public void init() {
-        String privateKeyPem = secretManagerService.getSecret(privateKeySecretName);
-        String publicKeyPem = secretManagerService.getSecret(publicKeySecretName);
-        this.privateKey = loadPrivateKey(privateKeyPem);
-        this.publicKey = loadPublicKey(publicKeyPem);
+        this.keyRing = loadKeyRing();
+        log.info("Signing JWTs with {} key {}", algorithm, keyRing.signingKeyId());
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, JWTClaimsSet>() {
+                    @Override
+                    public long expireAfterCreate(String hash, JWTClaimsSet claims, long currentTime) {
+                        return untilExpiry(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String hash, JWTClaimsSet claims, long currentTime,
+                                                  long currentDuration) {
+                        return untilExpiry(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String hash, JWTClaimsSet claims, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+    }
+
+    /**
+     * Re-reads the key set secret, so that added keys sign or verify and removed keys stop verifying.
+     * A key set that fails to load is logged and the current keys are kept.
+     */
+    @Scheduled(initialDelayString = "${jwt.key-refresh-interval:PT5M}",
+            fixedDelayString = "${jwt.key-refresh-interval:PT5M}")
+    public void refreshKeys() {
+        if (!StringUtils.hasText(keySetSecretName)) {
+            return;
+        }
+        try {
+            JwtKeyRing refreshed = loadKeyRing();
+            if (!refreshed.publicKeys().toString().equals(keyRing.publicKeys().toString())) {
+                keyRing = refreshed;
+                // Tokens of removed keys must not stay valid through the cache.
+                verifiedTokens.invalidateAll();
+                log.info("JWT keys changed; signing with key {}", refreshed.signingKeyId());
+            }
+        } catch (RuntimeException e) {
+            log.error("Error refreshing the JWT keys, keeping the current ones: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the public keys verifying the issued tokens.
+     *
+     * @return the JWK Set of the public keys.
+     */
+    public JWKSet publicKeys() {
+        return keyRing.publicKeys();
     }
 
+    /**
+     * Issues a token for an authenticated user.
+     *
+     * @param authentication the authentication, whose principal carries the user id
+     *                       (see {@link ChatUserPrincipal#userIdOf}).
+     * @return the signed, serialized token.
+     * @throws JwtAuthenticationException if the principal carries no user id or signing fails.
+     */
     public String generateToken(Authentication authentication) {
         String username = authentication.getName();
+        Long userId = ChatUserPrincipal.userIdOf(authentication);
+        if (userId == null) {
+            throw new JwtAuthenticationException("No user id to issue a token for " + username);
+        }
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
         try {
             JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
                     .subject(username)
+                    .claim(USER_ID_CLAIM, userId)
+                    .claim(ROLES_CLAIM, authentication.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .toList())
+                    .jwtID(UUID.randomUUID().toString())
                     .issueTime(now)
                     .expirationTime(expiryDate)
                     .build();
 
-            JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256)
-                    .type(JOSEObjectType.JWT)
-                    .build();
-
-            SignedJWT signedJWT = new SignedJWT(header, claimsSet);
-            JWSSigner signer = new RSASSASigner(privateKey);
-            signedJWT.sign(signer);
+            JwtKeyRing keys = keyRing;
+            SignedJWT signedJWT = new SignedJWT(keys.header(), claimsSet);
+            signedJWT.sign(keys.signer());
 
             return signedJWT.serialize();
         } catch (JOSEException e) {
@@ -75,48 +204,144 @@ public class JwtTokenProvider {
         }
     }
 
-    public String getUsernameFromJWT(String token) {
-        try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            if (validateSignature(signedJWT)) {
-                JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
-                return claimsSet.getSubject();
-            } else {
-                throw new JwtAuthenticationException("Invalid JWT signature");
-            }
-        } catch (ParseException e) {
-            log.error("Error parsing JWT token: {}", e.getMessage(), e);
-            throw new JwtAuthenticationException("Could not parse token", e);
+    /**
+     * Verifies a token's signature and expiry, using the cache of verified tokens, and that it has not been
+     * revoked.
+     *
+     * @param token the serialized JWT.
+     * @return the token's claims, or empty if the token is malformed, wrongly signed, expired or revoked.
+     */
+    public Optional<JWTClaimsSet> verify(String token) {
+        return verifySignature(token).filter(claims -> !tokenRevocationService.isRevoked(claims.getJWTID()));
+    }
+
+    /**
+     * Revokes a token before it expires (see {@link TokenRevocationService}).
+     *
+     * @param claims the claims of a verified token.
+     */
+    public void revoke(JWTClaimsSet claims) {
+        if (claims.getJWTID() != null) {
+            tokenRevocationService.revoke(claims.getJWTID(), claims.getExpirationTime().toInstant());
         }
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Returns the lifetime of the issued tokens.
+     *
+     * @return the lifetime in milliseconds.
+     */
+    public long getExpirationInMs() {
+        return jwtExpirationInMs;
+    }
+
+    private Optional<JWTClaimsSet> verifySignature(String token) {
+        String hash = hash(token);
+        JWTClaimsSet cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
             if (!validateSignature(signedJWT)) {
                 log.error("JWT token signature validation failed");
-                return false;
+                return Optional.empty();
             }
             JWTClaimsSet claimsSet = signedJWT.getJWTClaimsSet();
             Date expirationTime = claimsSet.getExpirationTime();
-            return new Date().before(expirationTime);
+            if (expirationTime == null || !new Date().before(expirationTime)) {
+                return Optional.empty();
+            }
+            verifiedTokens.put(hash, claimsSet);
+            return Optional.of(claimsSet);
         } catch (ParseException e) {
             log.error("Error parsing JWT token: {}", e.getMessage(), e);
-            return false;
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the principal described by verified claims.
+     *
+     * @param claims the claims of a verified token.
+     * @return the principal, or null if the token carries no user id (issued before ids were embedded).
+     */
+    public ChatUserPrincipal principalOf(JWTClaimsSet claims) {
+        try {
+            Long userId = claims.getLongClaim(USER_ID_CLAIM);
+            return userId != null ? new ChatUserPrincipal(userId, claims.getSubject()) : null;
+        } catch (ParseException e) {
+            log.warn("Invalid {} claim: {}", USER_ID_CLAIM, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the authorities listed in verified claims.
+     *
+     * @param claims the claims of a verified token.
+     * @return the authorities; empty if the token lists none.
+     */
+    public List<GrantedAuthority> authoritiesOf(JWTClaimsSet claims) {
+        try {
+            List<String> roles = claims.getStringListClaim(ROLES_CLAIM);
+            return roles != null ? AuthorityUtils.createAuthorityList(roles) : List.of();
+        } catch (ParseException e) {
+            log.warn("Invalid {} claim: {}", ROLES_CLAIM, e.getMessage());
+            return List.of();
         }
     }
 
+    public String getUsernameFromJWT(String token) {
+        return verify(token)
+                .map(JWTClaimsSet::getSubject)
+                .orElseThrow(() -> new JwtAuthenticationException("Invalid or expired JWT"));
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isPresent();
+    }
+
     private boolean validateSignature(SignedJWT signedJWT) {
         try {
-            RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
-            JWSVerifier verifier = new RSASSAVerifier(rsaPublicKey);
-            return signedJWT.verify(verifier);
+            return keyRing.verify(signedJWT);
         } catch (JOSEException e) {
             log.error("Error validating JWT signature: {}", e.getMessage(), e);
             return false;
         }
     }
 
+    private static long untilExpiry(JWTClaimsSet claims) {
+        return TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, claims.getExpirationTime().getTime() - System.currentTimeMillis()));
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private JwtKeyRing loadKeyRing() {
+        if (StringUtils.hasText(keySetSecretName)) {
+            try {
+                JWKSet keys = JWKSet.parse(secretProvider.getSecret(keySetSecretName));
+                return JwtKeyRing.of(keys, JWSAlgorithm.parse(algorithm));
+            } catch (ParseException e) {
+                throw new KeyLoadingException("Failed to parse the JWT key set", e);
+            }
+        }
+        // Both halves are fetched together, concurrently when the provider supports it.
+        Map<String, String> pems = secretProvider.getSecrets(List.of(publicKeySecretName, privateKeySecretName));
+        RSAKey rsaKey = new RSAKey.Builder((RSAPublicKey) loadPublicKey(pems.get(publicKeySecretName)))
+                .privateKey(loadPrivateKey(pems.get(privateKeySecretName)))
+                .build();
+        return JwtKeyRing.of(new JWKSet(rsaKey), JWSAlgorithm.RS256);
+    }
+
     /**
      * Loads an RSA private key from a PEM-formatted string.
      *
@@ -2,8 +2,12 @@ package com.messages.engine.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.messages.engine.dto.LoginRequest;
+import com.messages.engine.dto.LoginResponse;
+import com.messages.engine.exception.PasswordHashingRejectedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -17,18 +21,30 @@ import java.io.IOException;
 
 /**
  * Custom authentication filter that reads login credentials from the request,
- * authenticates the user, and upon success generates a JWT token.
+ * authenticates the user, and upon success generates a JWT access token and a refresh token.
  *
  * This filter extends UsernamePasswordAuthenticationFilter and overrides
  * attemptAuthentication, successfulAuthentication, and unsuccessfulAuthentication.
+ * <p>
+ * Logins are throttled by the {@link LoginAttemptService}: a username or client address that is locked out is
+ * refused with {@code 429 Too Many Requests} before its password is checked, failed logins are counted for both,
+ * and a successful login resets the count of the username. Logins refused because password hashing is
+ * overloaded are not counted as failures.
+ * </p>
  */
 @Slf4j
 @RequiredArgsConstructor
 public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private final JwtTokenProvider jwtTokenProvider;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptService loginAttemptService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /** Request attribute holding the username of the login request, for counting its outcome. */
+    private static final String LOGIN_USERNAME_ATTRIBUTE = JwtUsernamePasswordAuthenticationFilter.class.getName()
+            + ".username";
+
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response)
             throws AuthenticationException {
@@ -36,6 +52,10 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
             // Read and parse the login request JSON to a LoginRequest record
             LoginRequest loginRequest = objectMapper.readValue(request.getInputStream(), LoginRequest.class);
             log.info("Attempting authentication for user: {}", loginRequest.username());
+            request.setAttribute(LOGIN_USERNAME_ATTRIBUTE, loginRequest.username());
+            if (loginAttemptService.isBlocked(loginRequest.username(), request.getRemoteAddr())) {
+                throw new LockedException("Too many failed attempts. Please try again later.");
+            }
             UsernamePasswordAuthenticationToken authToken =
                     new UsernamePasswordAuthenticationToken(loginRequest.username(), loginRequest.password());
             return getAuthenticationManager().authenticate(authToken);
@@ -51,11 +71,14 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
                                             FilterChain chain,
                                             Authentication authResult)
             throws IOException, ServletException {
-        // Generate JWT token upon successful authentication
+        loginAttemptService.loginSucceeded((String) request.getAttribute(LOGIN_USERNAME_ATTRIBUTE));
+        // Generate the access and refresh tokens upon successful authentication
         String token = jwtTokenProvider.generateToken(authResult);
+        String refreshToken = refreshTokenService.issue(ChatUserPrincipal.userIdOf(authResult));
         log.info("Authentication successful for user: {}. Token generated.", authResult.getName());
         response.setContentType("application/json");
-        response.getWriter().write("{\"token\": \"" + token + "\"}");
+        objectMapper.writeValue(response.getWriter(),
+                new LoginResponse(token, refreshToken, jwtTokenProvider.getExpirationInMs() / 1000));
         response.getWriter().flush();
     }
 
@@ -65,7 +88,17 @@ public class JwtUsernamePasswordAuthenticationFilter extends UsernamePasswordAut
                                               AuthenticationException failed)
             throws IOException, ServletException {
         log.warn("Authentication failed: {}", failed.getMessage());
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        if (failed instanceof PasswordHashingRejectedException) {
+            // Overloaded rather than wrong credentials: tell the client to retry.
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+        } else if (failed instanceof LockedException) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        } else {
+            loginAttemptService.loginFailed((String) request.getAttribute(LOGIN_USERNAME_ATTRIBUTE),
+                    request.getRemoteAddr());
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        }
         response.setContentType("application/json");
         response.getWriter().write("{\"error\": \"" + failed.getMessage() + "\"}");
         response.getWriter().flush();
@@ -0,0 +1,43 @@
+package com.messages.engine.security;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link JwtDecoder} of the OAuth2 resource server, verifying tokens with the application's key ring.
+ * <p>
+ * Verification goes through {@link JwtTokenProvider#verify}, so a token already verified by
+ * {@link JwtAuthenticationFilter} for the same request is a cache hit, and every algorithm of the key ring,
+ * including EdDSA, is supported. Other services verify the tokens against the published JWK Set instead.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class KeyRingJwtDecoder implements JwtDecoder {
+
+    private final JwtTokenProvider jwtTokenProvider;
+
+    /**
+     * Verifies and decodes a token.
+     *
+     * @param token the serialized JWT.
+     * @return the decoded token.
+     * @throws BadJwtException if the token is malformed, wrongly signed or expired.
+     */
+    @Override
+    public Jwt decode(String token) {
+        JWTClaimsSet claims = jwtTokenProvider.verify(token)
+                .orElseThrow(() -> new BadJwtException("Invalid or expired token"));
+        return Jwt.withTokenValue(token)
+                .header("typ", "JWT")
+                .claims(values -> values.putAll(claims.getClaims()))
+                .issuedAt(claims.getIssueTime() != null ? claims.getIssueTime().toInstant() : null)
+                .expiresAt(claims.getExpirationTime().toInstant())
+                .build();
+    }
+
+}
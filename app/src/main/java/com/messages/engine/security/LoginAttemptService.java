@@ -1,55 +1,194 @@
 package com.messages.engine.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.messages.engine.config.LoginAttemptProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service to track and limit login attempts, preventing brute force attacks.
+ * <p>
+ * Failed logins are counted per username and per client address in a sliding window of
+ * {@code chat.login-attempts.window}, approximated by the counts of the current and previous fixed windows (the
+ * previous one weighted by its share still inside the sliding window). A username or address exceeding its limit
+ * is locked for {@code chat.login-attempts.lock-time}. Counters are updated atomically per key, and kept in a
+ * cache bounded by {@code chat.login-attempts.max-tracked-keys} that drops each key once its window and lock have
+ * elapsed, so usernames that never log in successfully do not accumulate.
+ * </p>
+ * <p>
+ * Meters: {@code chat.login.attempts.tracked} (usernames and addresses tracked), {@code chat.login.lockouts}
+ * (locks imposed) and {@code chat.login.blocked} (logins refused because of a lock), tagged with
+ * {@code scope=user|ip}, plus the {@code login.attempts} cache meters.
+ * </p>
  */
 @Service
+@Slf4j
 public class LoginAttemptService {
 
-    private static final int MAX_ATTEMPTS = 5;
-    private static final long LOCK_TIME_MILLIS = 15 * 60 * 1000;
+    private static final String USER = "user";
+    private static final String IP = "ip";
 
-    // Map of username -> (numberOfAttempts, lockExpirationTime)
-    private final Map<String, AttemptStatus> attempts = new ConcurrentHashMap<>();
+    private final LoginAttemptProperties properties;
+    private final long windowMillis;
+    private final Cache<String, Window> attempts;
+    private final MeterRegistry meterRegistry;
 
     /**
-     * Record a failed login attempt for the given username.
+     * Failures of one key: the counts of the current fixed window and of the one before it, and the end of the
+     * key's lock, if any.
      */
-    public void loginFailed(String username) {
-        AttemptStatus status = attempts.getOrDefault(username, new AttemptStatus(0, 0));
-        int newAttempts = status.attemptCount + 1;
-        long lockTime = status.lockUntil;
+    private record Window(long start, int previous, int current, long lockUntil) {
 
-        if (newAttempts >= MAX_ATTEMPTS) {
-            lockTime = Instant.now().toEpochMilli() + LOCK_TIME_MILLIS;
+        /** Returns the window as of {@code now}, rolled over if one or more fixed windows have elapsed. */
+        Window at(long now, long length) {
+            long elapsed = now - start;
+            if (elapsed < length) {
+                return this;
+            }
+            long rolledStart = now - elapsed % length;
+            return new Window(rolledStart, elapsed < 2 * length ? current : 0, 0, lockUntil);
         }
-        attempts.put(username, new AttemptStatus(newAttempts, lockTime));
+
+        /** Returns the failures in the sliding window ending at {@code now}. */
+        double failures(long now, long length) {
+            double previousWeight = 1.0 - (double) (now - start) / length;
+            return previous * previousWeight + current;
+        }
+
+        /** Returns the time the key can be forgotten: once its failures are out of the window and its lock is over. */
+        long expiresAt(long length) {
+            return Math.max(start + 2 * length, lockUntil);
+        }
+    }
+
+    /**
+     * Creates the service and registers its meters.
+     *
+     * @param properties    login attempt limits.
+     * @param meterRegistry registry to publish the meters to.
+     */
+    public LoginAttemptService(LoginAttemptProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.windowMillis = properties.window().toMillis();
+        this.meterRegistry = meterRegistry;
+        this.attempts = Caffeine.newBuilder()
+                .maximumSize(properties.maxTrackedKeys())
+                .expireAfter(new Expiry<String, Window>() {
+                    @Override
+                    public long expireAfterCreate(String key, Window window, long currentTime) {
+                        return untilExpiry(window);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Window window, long currentTime,
+                                                  long currentDuration) {
+                        return untilExpiry(window);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Window window, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, attempts, "login.attempts");
+        Gauge.builder("chat.login.attempts.tracked", attempts, Cache::estimatedSize)
+                .description("Usernames and client addresses with recent failed logins")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a failed login attempt for the given username and client address.
+     */
+    public void loginFailed(String username, String clientIp) {
+        loginFailed(username, clientIp, System.currentTimeMillis());
     }
 
     /**
-     * Record a successful login attempt, resetting the attempt count.
+     * Record a failed login attempt at the given time.
+     */
+    public void loginFailed(String username, String clientIp, long now) {
+        fail(USER, username, properties.maxFailuresPerUser(), now);
+        if (clientIp != null) {
+            fail(IP, clientIp, properties.maxFailuresPerIp(), now);
+        }
+    }
+
+    /**
+     * Record a successful login attempt, resetting the attempt count of the username. The failures counted for
+     * the client address are kept, so that one known password does not clear an address trying many usernames.
      */
     public void loginSucceeded(String username) {
-        attempts.remove(username);
+        attempts.invalidate(key(USER, username));
+    }
+
+    /**
+     * Checks if the user or the client address is locked out.
+     */
+    public boolean isBlocked(String username, String clientIp) {
+        return isBlocked(username, clientIp, System.currentTimeMillis());
+    }
+
+    /**
+     * Checks if the user or the client address is locked out at the given time.
+     */
+    public boolean isBlocked(String username, String clientIp, long now) {
+        return blocked(USER, username, now) || (clientIp != null && blocked(IP, clientIp, now));
     }
 
     /**
-     * Checks if the user is locked out.
+     * Returns the number of usernames and client addresses currently tracked.
      */
-    public boolean isBlocked(String username) {
-        AttemptStatus status = attempts.get(username);
-        if (status == null) {
+    public long trackedKeys() {
+        attempts.cleanUp();
+        return attempts.estimatedSize();
+    }
+
+    private void fail(String scope, String value, int maxFailures, long now) {
+        String key = key(scope, value);
+        boolean[] locked = new boolean[1];
+        attempts.asMap().compute(key, (k, current) -> {
+            Window window = current != null ? current.at(now, windowMillis)
+                    : new Window(now, 0, 0, 0);
+            window = new Window(window.start(), window.previous(), window.current() + 1, window.lockUntil());
+            if (window.lockUntil() <= now && window.failures(now, windowMillis) >= maxFailures) {
+                locked[0] = true;
+                return new Window(window.start(), window.previous(), window.current(),
+                        now + properties.lockTime().toMillis());
+            }
+            return window;
+        });
+        if (locked[0]) {
+            meterRegistry.counter("chat.login.lockouts", "scope", scope).increment();
+            log.warn("Locked {} {} for {} after {} failed logins", scope, value, properties.lockTime(), maxFailures);
+        }
+    }
+
+    private boolean blocked(String scope, String value, long now) {
+        Window window = attempts.getIfPresent(key(scope, value));
+        if (window == null || window.lockUntil() <= now) {
             return false;
         }
-        // If lockUntil is in the future, user is blocked
-        return Instant.now().toEpochMilli() < status.lockUntil;
+        meterRegistry.counter("chat.login.blocked", "scope", scope).increment();
+        return true;
+    }
+
+    private long untilExpiry(Window window) {
+        return TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, window.expiresAt(windowMillis) - System.currentTimeMillis()));
     }
 
-    private record AttemptStatus(int attemptCount, long lockUntil) { }
+    private static String key(String scope, String value) {
+        return scope + ':' + value;
+    }
 }
@@ -0,0 +1,100 @@
+package com.messages.engine.security;
+
+import com.messages.engine.exception.PasswordHashingRejectedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PasswordEncoder} running the hashing of another encoder on a dedicated, bounded executor.
+ * <p>
+ * BCrypt takes tens of milliseconds of CPU per check; run on request threads, a login storm (every client
+ * logging in again after a deploy) would occupy all of them and starve chat traffic. Here at most as many
+ * passwords are hashed at once as the executor has threads, sized to the processors; the calling thread just
+ * waits. Requests that cannot be queued, or that waited longer than the queue timeout, fail with
+ * {@link PasswordHashingRejectedException} without being hashed.
+ * </p>
+ * <p>
+ * {@link #upgradeEncoding} reports BCrypt hashes of any work factor other than the configured one, so that
+ * hashes are rehashed with the current work factor on the next successful login, whether it was raised or
+ * lowered.
+ * </p>
+ */
+public class OffloadedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_STRENGTH = Pattern.compile("^\\$2[abxy]?\\$(\\d\\d)\\$");
+
+    private final PasswordEncoder delegate;
+    private final int strength;
+    private final Executor executor;
+    private final long queueTimeoutNanos;
+
+    /**
+     * Creates the encoder.
+     *
+     * @param delegate     the BCrypt encoder doing the hashing.
+     * @param strength     the work factor of the delegate.
+     * @param executor     the bounded executor to hash on.
+     * @param queueTimeout maximum time a request may wait for the executor.
+     */
+    public OffloadedPasswordEncoder(PasswordEncoder delegate, int strength, Executor executor, Duration queueTimeout) {
+        this.delegate = delegate;
+        this.strength = strength;
+        this.executor = executor;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_STRENGTH.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    private <T> T offload(Supplier<T> hashing) {
+        long submittedAt = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                if (System.nanoTime() - submittedAt > queueTimeoutNanos) {
+                    throw new PasswordHashingRejectedException("Password hashing timed out in the queue");
+                }
+                return hashing.get();
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            throw new PasswordHashingRejectedException("Password hashing is saturated", ex);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.messages.engine.security;
+
+import com.messages.engine.model.RefreshToken;
+import com.messages.engine.repository.RefreshTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and exchanges the refresh tokens that renew short-lived access tokens.
+ * <p>
+ * A refresh token is 256 random bits, given to the client once and stored only as its SHA-256 hash. Each
+ * exchange rotates it: the presented token is marked used and the next token of its family is issued. A used
+ * token presented again has leaked (either the client or an attacker holds a stale copy), so the whole family is
+ * revoked and the user has to log in again. Tokens expire after {@code jwt.refresh-expiration}.
+ * </p>
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository repository;
+    private final Duration validity;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Result of an exchange.
+     *
+     * @param userId       the user the token belongs to.
+     * @param refreshToken the next refresh token.
+     */
+    public record Rotation(Long userId, String refreshToken) {
+    }
+
+    /**
+     * Creates the service.
+     *
+     * @param repository repository of refresh tokens.
+     * @param validity   lifetime of a refresh token.
+     */
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               @Value("${jwt.refresh-expiration:P30D}") Duration validity) {
+        this.repository = repository;
+        this.validity = validity;
+    }
+
+    /**
+     * Issues the first refresh token of a login.
+     *
+     * @param userId the user id.
+     * @return the refresh token.
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for the next one of its family.
+     *
+     * @param refreshToken the presented token.
+     * @return the user and the next token.
+     * @throws BadCredentialsException if the token is unknown, expired or was already used.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotation rotate(String refreshToken) {
+        RefreshToken current = repository.findForUpdate(hash(refreshToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        Instant now = Instant.now();
+        if (current.getUsedAt() != null) {
+            int revoked = repository.deleteByFamilyId(current.getFamilyId());
+            log.warn("Refresh token of user {} reused; revoked its {} family tokens",
+                    current.getUserId(), revoked);
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (!now.isBefore(current.getExpiresAt())) {
+            throw new BadCredentialsException("Expired refresh token");
+        }
+        current.setUsedAt(now);
+        repository.save(current);
+        return new Rotation(current.getUserId(), issue(current.getUserId(), current.getFamilyId()));
+    }
+
+    /**
+     * Revokes all refresh tokens of a user, e.g. on logout.
+     *
+     * @param userId the user id.
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        repository.deleteByUserId(userId);
+    }
+
+    /**
+     * Deletes expired tokens.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval:PT1H}")
+    public void purgeExpired() {
+        int purged = repository.deleteExpiredBefore(Instant.now());
+        if (purged > 0) {
+            log.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Instant now = Instant.now();
+        RefreshToken entity = new RefreshToken();
+        entity.setTokenHash(hash(token));
+        entity.setUserId(userId);
+        entity.setFamilyId(familyId);
+        entity.setCreatedAt(now);
+        entity.setExpiresAt(now.plus(validity));
+        repository.save(entity);
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+}
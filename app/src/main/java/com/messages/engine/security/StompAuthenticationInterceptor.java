@@ -0,0 +1,129 @@
+package com.messages.engine.security;
+
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
+import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * STOMP channel interceptor that authenticates sessions on CONNECT.
+ * <p>
+ * The CONNECT frame carries the JWT in an {@code Authorization: Bearer <token>} header; without one, the
+ * user authenticated on the WebSocket handshake is accepted. The token is verified once and the
+ * {@link ChatUserPrincipal} built from its claims becomes the session's user (tokens without a user id
+ * claim are resolved with one query): Spring keeps it for the lifetime of the session and attaches it to
+ * every later frame, so SEND and SUBSCRIBE frames cost no signature check or query. SEND and SUBSCRIBE
+ * frames of sessions without such a principal are rejected.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    /** Authority granted to every authenticated user, as in {@link CustomUserDetailsService}. */
+    private static final List<GrantedAuthority> USER_AUTHORITIES = List.of(new SimpleGrantedAuthority("USER"));
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtTokenProvider jwtTokenProvider;
+
+    private final UserDirectory userDirectory;
+
+    private final ActiveUserChecker activeUserChecker;
+
+    /**
+     * Authenticates CONNECT frames and rejects frames of unauthenticated sessions.
+     *
+     * @param message the inbound message.
+     * @param channel the inbound channel.
+     * @return the message, carrying the session's user after a CONNECT.
+     * @throws AccessDeniedException if the session cannot be authenticated.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT || command == StompCommand.STOMP) {
+            // Setting the user on the mutable CONNECT headers stores it with the session.
+            accessor.setUser(authenticate(accessor));
+        } else if ((command == StompCommand.SEND || command == StompCommand.SUBSCRIBE)
+                && ChatUserPrincipal.userIdOf(accessor.getUser()) == null) {
+            log.warn("Rejected {} from unauthenticated session {}", command, accessor.getSessionId());
+            throw new AccessDeniedException("Session is not authenticated");
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(StompHeaderAccessor accessor) {
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        if (StringUtils.hasText(authorization) && authorization.startsWith(BEARER_PREFIX)) {
+            String jwt = authorization.substring(BEARER_PREFIX.length());
+            JWTClaimsSet claims = jwtTokenProvider.verify(jwt).orElseThrow(() -> {
+                log.warn("Invalid token on CONNECT of session {}", accessor.getSessionId());
+                return new AccessDeniedException("Invalid or expired token");
+            });
+            ChatUserPrincipal principal = jwtTokenProvider.principalOf(claims);
+            if (principal == null) {
+                return lookUp(accessor, claims.getSubject());
+            }
+            if (!activeUserChecker.isActive(principal.userId())) {
+                throw new AccessDeniedException("Unknown user " + principal.getName());
+            }
+            return authenticated(accessor, principal, jwtTokenProvider.authoritiesOf(claims));
+        }
+        Principal handshakeUser = accessor.getUser();
+        if (handshakeUser == null) {
+            log.warn("Rejected CONNECT without credentials from session {}", accessor.getSessionId());
+            throw new AccessDeniedException("Missing Authorization header");
+        }
+        Long userId = ChatUserPrincipal.userIdOf(handshakeUser);
+        if (userId == null) {
+            return lookUp(accessor, handshakeUser.getName());
+        }
+        return authenticated(accessor, new ChatUserPrincipal(userId, handshakeUser.getName()),
+                handshakeUser instanceof Authentication authentication
+                        ? authentication.getAuthorities() : USER_AUTHORITIES);
+    }
+
+    /**
+     * Resolves the user id of a user known by name only, from a token issued before ids were embedded.
+     */
+    private UsernamePasswordAuthenticationToken lookUp(StompHeaderAccessor accessor, String username) {
+        Long userId = userDirectory.findByUserName(username)
+                .map(UserEntry::id)
+                .orElseThrow(() -> new AccessDeniedException("Unknown user " + username));
+        return authenticated(accessor, new ChatUserPrincipal(userId, username), USER_AUTHORITIES);
+    }
+
+    private UsernamePasswordAuthenticationToken authenticated(StompHeaderAccessor accessor,
+                                                              ChatUserPrincipal principal,
+                                                              Collection<? extends GrantedAuthority> authorities) {
+        log.debug("Authenticated session {} as {} ({})", accessor.getSessionId(), principal.getName(),
+                principal.userId());
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+    }
+
+}
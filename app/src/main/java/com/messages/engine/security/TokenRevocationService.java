@@ -0,0 +1,159 @@
+package com.messages.engine.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.messages.engine.model.RevokedToken;
+import com.messages.engine.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation list of access tokens, by token id ({@code jti}).
+ * <p>
+ * Revoked ids are stored in the {@code revoked_tokens} table until their token expires. Every node keeps a Bloom
+ * filter of them, rebuilt from the table every {@code jwt.revocation.rebuild-interval}, so checking a token is a
+ * memory probe: only ids the filter reports as possibly revoked (the revoked ones, plus about
+ * {@code jwt.revocation.false-positive-rate} of the others) are confirmed in the table, and the answer is cached
+ * until the next rebuild. Revocations on this node apply at once; those of other nodes after the next rebuild.
+ * </p>
+ * <p>
+ * Meters: {@code jwt.revocation.revoked} (ids in the current filter) and {@code jwt.revocation.lookups}
+ * (table lookups, tagged with {@code result=revoked|false-positive}).
+ * </p>
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository repository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final LoadingCache<String, Boolean> confirmed;
+    private final Counter revokedLookups;
+    private final Counter falsePositives;
+
+    /** Ids revoked on this node since the start of the previous rebuild, added to the next filter. */
+    private final Set<String> recentlyRevoked = ConcurrentHashMap.newKeySet();
+
+    private volatile BloomFilter<String> filter;
+    private volatile int filtered;
+
+    /**
+     * Creates the service.
+     *
+     * @param repository          repository of revoked token ids.
+     * @param expectedRevocations number of unexpired revoked tokens the filter is sized for, at least.
+     * @param falsePositiveRate   share of valid tokens the filter reports as possibly revoked.
+     * @param rebuildInterval     interval of the filter rebuilds, also the time lookups are cached.
+     * @param meterRegistry       registry for the revocation meters.
+     */
+    public TokenRevocationService(RevokedTokenRepository repository,
+                                  @Value("${jwt.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${jwt.revocation.rebuild-interval:PT30S}") Duration rebuildInterval,
+                                  MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.confirmed = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(rebuildInterval)
+                .build(repository::existsById);
+        this.filter = newFilter(0);
+        Gauge.builder("jwt.revocation.revoked", this, service -> service.filtered)
+                .description("Revoked token ids in the Bloom filter").register(meterRegistry);
+        this.revokedLookups = Counter.builder("jwt.revocation.lookups").tag("result", "revoked")
+                .description("Token ids looked up because the Bloom filter reported them").register(meterRegistry);
+        this.falsePositives = Counter.builder("jwt.revocation.lookups").tag("result", "false-positive")
+                .description("Token ids looked up because the Bloom filter reported them").register(meterRegistry);
+    }
+
+    /**
+     * Loads the revoked ids at startup.
+     */
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Revokes a token.
+     *
+     * @param jti       the token id.
+     * @param expiresAt the token's expiry, after which the revocation is forgotten.
+     */
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        repository.save(new RevokedToken(jti, expiresAt));
+        synchronized (this) {
+            recentlyRevoked.add(jti);
+            filter.put(jti);
+        }
+        confirmed.invalidate(jti);
+        log.info("Revoked token {}", jti);
+    }
+
+    /**
+     * Returns whether a token has been revoked.
+     *
+     * @param jti the token id; tokens without one cannot be revoked.
+     * @return whether the token is revoked, as of the last rebuild for revocations of other nodes.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        boolean revoked = recentlyRevoked.contains(jti) || Boolean.TRUE.equals(confirmed.get(jti));
+        (revoked ? revokedLookups : falsePositives).increment();
+        return revoked;
+    }
+
+    /**
+     * Rebuilds the filter from the table, picking up the revocations of other nodes and dropping expired ones,
+     * and purges expired rows.
+     */
+    @Scheduled(initialDelayString = "${jwt.revocation.rebuild-interval:PT30S}",
+            fixedDelayString = "${jwt.revocation.rebuild-interval:PT30S}")
+    public void rebuild() {
+        try {
+            // Revoked before the query, hence in its result: not needed in later filters.
+            Set<String> covered = Set.copyOf(recentlyRevoked);
+            Instant now = Instant.now();
+            repository.deleteExpiredBefore(now);
+            List<String> jtis = repository.findJtisExpiringAfter(now);
+            BloomFilter<String> rebuilt = newFilter(jtis.size());
+            jtis.forEach(rebuilt::put);
+            synchronized (this) {
+                recentlyRevoked.forEach(rebuilt::put);
+                filter = rebuilt;
+                filtered = jtis.size();
+                recentlyRevoked.removeAll(covered);
+            }
+            confirmed.invalidateAll();
+        } catch (RuntimeException e) {
+            log.error("Error rebuilding the token revocation filter, keeping the current one: {}", e.getMessage(), e);
+        }
+    }
+
+    private BloomFilter<String> newFilter(int revoked) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(expectedRevocations, 2L * revoked), falsePositiveRate);
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.messages.engine.service;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.messages.engine.exception.SecretManagerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link SecretProvider} caching the secrets of another provider.
+ * <p>
+ * A secret is loaded once; when it is read after {@code refreshAfter}, the cached value is returned and reloaded
+ * in the background (refresh-ahead), so readers such as the periodic JWT key refresh never wait for the source.
+ * If the reload fails, the stale value keeps being served and the next read retries. Several secrets requested
+ * together are loaded concurrently. Cache statistics, including failed loads, are published as the
+ * {@code secrets} cache meters.
+ * </p>
+ */
+@Slf4j
+public class CachingSecretProvider implements SecretProvider, AutoCloseable {
+
+    private final SecretProvider source;
+    private final AsyncLoadingCache<String, String> secrets;
+
+    /**
+     * Creates the provider.
+     *
+     * @param source        the provider loading the secrets.
+     * @param refreshAfter  age after which a read secret is reloaded in the background.
+     * @param executor      executor of the loads.
+     * @param meterRegistry the registry to publish the cache meters to.
+     */
+    public CachingSecretProvider(SecretProvider source, Duration refreshAfter, Executor executor,
+                                 MeterRegistry meterRegistry) {
+        this.source = source;
+        this.secrets = Caffeine.newBuilder()
+                .refreshAfterWrite(refreshAfter)
+                .executor(executor)
+                .recordStats()
+                .buildAsync(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, secrets, "secrets");
+    }
+
+    @Override
+    public String getSecret(String secretName) {
+        try {
+            return secrets.get(secretName).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getSecrets(Collection<String> secretNames) {
+        try {
+            return secrets.getAll(secretNames).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Closes the source provider, if closeable.
+     *
+     * @throws Exception if closing the source fails.
+     */
+    @Override
+    public void close() throws Exception {
+        if (source instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private String load(String secretName) {
+        log.debug("Loading secret {}", SecretProvider.secretIdOf(secretName));
+        return source.getSecret(secretName);
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        if (e.getCause() instanceof SecretManagerException cause) {
+            return cause;
+        }
+        return new SecretManagerException("Failed to load secret: " + e.getCause().getMessage(), e.getCause());
+    }
+
+}
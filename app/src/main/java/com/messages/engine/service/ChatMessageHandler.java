@@ -1,12 +1,13 @@
 package com.messages.engine.service;
 
 import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
 
 /**
  * Handler for incoming chat messages. This class delegates the processing of
@@ -22,18 +23,21 @@ public class ChatMessageHandler {
     /**
      * Processes the given chat message asynchronously by delegating to the
      * {@link MessageTypeProcessor} and returns a CompletableFuture that will be completed
-     * with the processing outcome.
+     * with the processing outcome, or exceptionally if processing failed or timed out.
      *
      * @param chatMessage the chat message to process.
-     * @return a CompletableFuture containing the result string describing the outcome.
+     * @return a CompletableFuture containing the processed message and the outcome.
      */
-    public CompletableFuture<String> handleChatMessage(ChatMessage chatMessage) {
+    public CompletableFuture<ChatMessageResult> handleChatMessage(ChatMessage chatMessage) {
         return messageTypeProcessor.processMessageType(chatMessage)
                 .whenComplete((result, ex) -> {
                     if (ex != null) {
-                        log.error("Error processing message of type {}: {}", chatMessage.type(), ex.getMessage(), ex);
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null
+                                ? ex.getCause() : ex;
+                        log.error("Error processing message of type {}: {}",
+                                chatMessage.type(), cause.toString(), cause);
                     } else {
-                        log.info("Processed message of type {}: {}", chatMessage.type(), result);
+                        log.info("Processed message of type {}: {}", chatMessage.type(), result.outcome());
                     }
                 });
     }
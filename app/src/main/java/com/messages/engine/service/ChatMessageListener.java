@@ -1,52 +1,52 @@
 package com.messages.engine.service;
 
-import com.messages.engine.config.RabbitMQConfig;
 import com.messages.engine.dto.ChatMessage;
-import com.messages.engine.dto.MessageRequest;
+import com.messages.engine.websocket.ConversationBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
- * Listener service that receives chat messages from RabbitMQ,
- * persists them, performs additional processing, and forwards them via WebSocket.
+ * Listener service that receives chat messages from the configured
+ * {@link com.messages.engine.transport.ChatMessageTransport}, processes them
+ * and forwards them via WebSocket.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ChatMessageListener {
 
-    /** Template used to send messages over WebSocket. */
-    private final SimpMessagingTemplate messagingTemplate;
+    /** Broadcaster that sends messages to the conversation topics over WebSocket. */
+    private final ConversationBroadcaster conversationBroadcaster;
 
-    /** Service used to persist messages to the database. */
-    private final MessageService messageService;
+    /** Handler that applies the type-specific processing (persistence, JOIN/LEAVE). */
+    private final ChatMessageHandler chatMessageHandler;
 
     /**
-     * Listens for chat messages on the RabbitMQ chat queue.
-     * Persists the message and then broadcasts it to the WebSocket topic.
+     * Receives a chat message from the transport.
+     * Processes the message and then broadcasts it to the topic of its conversation,
+     * so that only the conversation's subscribers receive it.
+     * <p>
+     * The method does not wait for the processing, which runs on the processing executor, one message of a
+     * conversation at a time; the transport's consumer thread goes on with the next message, so that
+     * conversations are processed in parallel. The message is broadcast by the thread completing its processing,
+     * before the next message of the conversation starts, which keeps the broadcasts of a conversation in order.
+     * The transport acknowledges the message once the returned future completes, and rejects it if it fails.
+     * </p>
      *
      * @param message the received chat message.
+     * @return a future completed with the broadcast message, or exceptionally if processing or broadcasting failed.
      */
-    @RabbitListener(queues = RabbitMQConfig.CHAT_QUEUE)
-    public void receiveMessage(ChatMessage message) {
-        // Persist the message by converting ChatMessage into a MessageRequest
-        MessageRequest request =
-                new MessageRequest(
-                        message.content(),
-                        message.userId(),
-                        message.conversationId()
-                );
-
-        messageService.createMessage(request);
-
-        // Perform additional processing (e.g., logging, notifications, etc.)
-        log.info("Persisted chat message: {}", message);
-
-        // Forward the message via WebSocket to all subscribers
-        messagingTemplate.convertAndSend("/topic/public", message);
+    public CompletableFuture<ChatMessage> receiveMessage(ChatMessage message) {
+        // Persist / apply the message according to its type, then forward it, with its persisted id,
+        // via WebSocket to the conversation's subscribers
+        return chatMessageHandler.handleChatMessage(message)
+                .thenApply(result -> {
+                    conversationBroadcaster.broadcast(result.message());
+                    return result.message();
+                });
     }
 
 }
@@ -1,4 +1,33 @@
 package com.messages.engine.service;
 
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.transport.ChatMessageTransport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Producer that hands incoming chat messages to the configured {@link ChatMessageTransport}.
+ * <p>
+ * The transport delivers each message to the {@link ChatMessageListener}, which processes and
+ * broadcasts it; the caller returns as soon as the message has been published.
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
 public class ChatMessageProducer {
+
+    private final ChatMessageTransport chatMessageTransport;
+
+    /**
+     * Publishes a chat message to the transport.
+     *
+     * @param chatMessage the chat message to publish.
+     */
+    public void send(ChatMessage chatMessage) {
+        log.debug("Publishing chat message: {}", chatMessage);
+        chatMessageTransport.publish(chatMessage);
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.messages.engine.service;
+
+import com.messages.engine.exception.SecretManagerException;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * {@link SecretProvider} reading secrets without any network access, for local runs and tests.
+ * <p>
+ * A secret with id {@code jwt-private-key} (see {@link SecretProvider#secretIdOf}) is read from the
+ * {@code JWT_PRIVATE_KEY} environment variable or system property if set, otherwise from the file
+ * {@code jwt-private-key} in the configured location, e.g. {@code file:./secrets/} or {@code classpath:secrets/}.
+ * </p>
+ */
+public class LocalSecretProvider implements SecretProvider {
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final Environment environment;
+
+    /**
+     * Creates the provider.
+     *
+     * @param resourceLoader loader of the secret files.
+     * @param location       location of the secret files, ending with a {@code /}.
+     * @param environment    environment holding secrets set as variables or properties.
+     */
+    public LocalSecretProvider(ResourceLoader resourceLoader, String location, Environment environment) {
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.environment = environment;
+    }
+
+    @Override
+    public String getSecret(String secretName) {
+        String secretId = SecretProvider.secretIdOf(secretName);
+        String value = environment.getProperty(secretId.toUpperCase(Locale.ROOT).replace('-', '_'));
+        if (value != null) {
+            return value;
+        }
+        Resource resource = resourceLoader.getResource(location + secretId);
+        if (!resource.exists()) {
+            throw new SecretManagerException("Secret " + secretId + " is neither set nor found in " + location);
+        }
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SecretManagerException("Failed to read secret " + secretId + " from " + location, e);
+        }
+    }
+
+}
@@ -1,11 +1,12 @@
 package com.messages.engine.service;
 
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
 import com.messages.engine.dto.MessageRequest;
 import com.messages.engine.dto.MessageResponse;
 import com.messages.engine.exception.ResourceNotFoundException;
 import com.messages.engine.model.Conversation;
 import com.messages.engine.model.Message;
-import com.messages.engine.model.User;
 import com.messages.engine.repository.ConversationRepository;
 import com.messages.engine.repository.MessageRepository;
 import com.messages.engine.repository.UserRepository;
@@ -27,6 +28,7 @@ public class MessageServiceImpl implements MessageService {
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
     private final ConversationRepository conversationRepository;
 
     /**
@@ -38,14 +40,15 @@ public class MessageServiceImpl implements MessageService {
      */
     @Override
     public MessageResponse createMessage(MessageRequest request) {
-        User user = userRepository.findById(request.userId())
+        UserEntry user = userDirectory.findById(request.userId())
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", request.userId()));
         Conversation conversation = conversationRepository.findById(request.conversationId())
                 .orElseThrow(() -> new ResourceNotFoundException("Conversation", "id", request.conversationId()));
 
         Message message = new Message();
         message.setContent(request.content());
-        message.setUser(user);
+        // The user is known to exist: reference it without loading it again.
+        message.setUser(userRepository.getReferenceById(user.id()));
         message.setConversation(conversation);
 
         Message saved = messageRepository.save(message);
@@ -94,9 +97,9 @@ public class MessageServiceImpl implements MessageService {
         message.setContent(request.content());
 
         Optional.ofNullable(request.userId()).ifPresent(userId -> {
-            User user = userRepository.findById(userId)
+            UserEntry user = userDirectory.findById(userId)
                     .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-            message.setUser(user);
+            message.setUser(userRepository.getReferenceById(user.id()));
         });
 
         Optional.ofNullable(request.conversationId()).ifPresent(conversationId -> {
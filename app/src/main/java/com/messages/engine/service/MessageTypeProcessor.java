@@ -1,59 +1,173 @@
 package com.messages.engine.service;
 
+import com.messages.engine.concurrent.KeyedOrderedExecutor;
+import com.messages.engine.config.ProcessingProperties;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
 import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageResult;
 import com.messages.engine.dto.MessageRequest;
+import com.messages.engine.dto.MessageResponse;
 import com.messages.engine.exception.ResourceNotFoundException;
 import com.messages.engine.model.Conversation;
-import com.messages.engine.model.User;
 import com.messages.engine.repository.ConversationRepository;
 import com.messages.engine.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service class for processing different types of chat messages.
+ * <p>
+ * Processing runs in one transaction on the {@code messageProcessingExecutor} ({@code chat.processing.executor}),
+ * so callers get a pending future back immediately. Messages of one conversation are processed one at a time, in
+ * the order they were submitted, whichever path (WebSocket, RabbitMQ listener, REST) they came from; different
+ * conversations are processed in parallel.
+ * </p>
+ * <p>
+ * Every message has a deadline {@code chat.processing.timeout} after its submission, counting the wait behind
+ * earlier messages of the conversation. A message whose processing has not started by then is skipped and its
+ * future fails with a {@link TimeoutException} at once. A message that started runs in a transaction timing out
+ * with the remaining time, rounded up to whole seconds, and its future reports the real outcome, commit or
+ * rollback, so a message is never reported as failed while it can still be persisted. The future otherwise
+ * fails with a {@link RejectedExecutionException} if the executor is saturated or
+ * {@code chat.processing.max-queued-per-conversation} messages of the conversation are pending, and with
+ * whatever the processing threw.
+ * </p>
  */
 @Service
-@RequiredArgsConstructor
 public class MessageTypeProcessor {
 
     private final MessageService messageService;
 
     private final UserRepository userRepository;
 
+    private final UserDirectory userDirectory;
+
     private final ConversationRepository conversationRepository;
 
+    private final KeyedOrderedExecutor<Long> executor;
+
+    private final PlatformTransactionManager transactionManager;
+
+    private final long timeoutNanos;
+
+    private final Counter timeouts;
+
+    /**
+     * Creates the processor.
+     *
+     * @param messageService         service persisting chat messages.
+     * @param userRepository         repository of users joining conversations.
+     * @param userDirectory          cache of the users joining and leaving conversations.
+     * @param conversationRepository repository of conversations.
+     * @param executor               executor running the processing, in order per conversation.
+     * @param transactionManager     transaction manager of the processing transactions.
+     * @param properties             processing settings.
+     * @param meterRegistry          registry for the timeout counter.
+     */
+    public MessageTypeProcessor(MessageService messageService, UserRepository userRepository,
+                                UserDirectory userDirectory, ConversationRepository conversationRepository,
+                                KeyedOrderedExecutor<Long> executor,
+                                PlatformTransactionManager transactionManager, ProcessingProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.messageService = messageService;
+        this.userRepository = userRepository;
+        this.userDirectory = userDirectory;
+        this.conversationRepository = conversationRepository;
+        this.executor = executor;
+        this.transactionManager = transactionManager;
+        this.timeoutNanos = properties.timeout().toNanos();
+        this.timeouts = Counter.builder("chat.processing.timeouts")
+                .description("Chat messages whose processing exceeded the timeout")
+                .register(meterRegistry);
+    }
+
     /**
      * Asynchronously processes the given chat message based on its type.
      *
      * @param chatMessage the chat message to process
-     * @return a string result describing the outcome
+     * @return the processed message (with its id once persisted) and a description of the outcome
      */
-    public CompletableFuture<String> processMessageType(ChatMessage chatMessage) {
-        String result = switch (chatMessage.type()) {
+    public CompletableFuture<ChatMessageResult> processMessageType(ChatMessage chatMessage) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        CompletableFuture<ChatMessageResult> result = new CompletableFuture<>();
+        // Set by whichever comes first: the processing starting, or the deadline skipping it.
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<Void> startDeadline = new CompletableFuture<Void>()
+                .orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        startDeadline.whenComplete((started, ex) -> {
+            if (ex != null && claimed.compareAndSet(false, true)) {
+                timeOut(result);
+            }
+        });
+        try {
+            executor.execute(chatMessage.conversationId(), () -> {
+                // Completing the deadline future cancels its timer.
+                startDeadline.complete(null);
+                if (claimed.compareAndSet(false, true)) {
+                    processWithin(chatMessage, deadline - System.nanoTime(), result);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            startDeadline.complete(null);
+            return CompletableFuture.failedFuture(ex);
+        }
+        return result;
+    }
+
+    private void processWithin(ChatMessage chatMessage, long remainingNanos,
+                               CompletableFuture<ChatMessageResult> result) {
+        if (remainingNanos <= 0) {
+            timeOut(result);
+            return;
+        }
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Transaction timeouts are whole seconds: round up rather than roll back work that fits the budget.
+        transactionTemplate.setTimeout((int) (TimeUnit.NANOSECONDS.toSeconds(remainingNanos - 1) + 1));
+        try {
+            result.complete(transactionTemplate.execute(status -> process(chatMessage)));
+        } catch (Throwable ex) {
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private void timeOut(CompletableFuture<ChatMessageResult> result) {
+        timeouts.increment();
+        result.completeExceptionally(new TimeoutException(
+                "Processing did not start within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms"));
+    }
+
+    private ChatMessageResult process(ChatMessage chatMessage) {
+        return switch (chatMessage.type()) {
             case CHAT  -> processChat(chatMessage);
-            case JOIN -> processJoin(chatMessage);
-            case LEAVE -> processLeave(chatMessage);
+            case JOIN -> new ChatMessageResult(chatMessage, processJoin(chatMessage));
+            case LEAVE -> new ChatMessageResult(chatMessage, processLeave(chatMessage));
         };
-        return CompletableFuture.completedFuture(result);
     }
 
     /**
      * Processes a chat message by persisting it using the MessageService.
      *
      * @param chatMessage the chat message with type "CHAT"
-     * @return a string result indicating successful persistence
+     * @return the message with its persisted id and a result indicating successful persistence
      */
-    private String processChat(ChatMessage chatMessage) {
+    private ChatMessageResult processChat(ChatMessage chatMessage) {
         var request = new MessageRequest(
                 chatMessage.content(),
                 chatMessage.userId(),
                 chatMessage.conversationId()
         );
-        messageService.createMessage(request);
-        return "Chat message processed and persisted.";
+        MessageResponse saved = messageService.createMessage(request);
+        return new ChatMessageResult(chatMessage.withId(saved.getId()), "Chat message processed and persisted.");
     }
 
     /**
@@ -64,16 +178,16 @@ public class MessageTypeProcessor {
      * @throws ResourceNotFoundException if the user or conversation is not found
      */
     private String processJoin(ChatMessage chatMessage) {
-        var userOpt = userRepository.findById(chatMessage.userId());
+        var userOpt = userDirectory.findById(chatMessage.userId());
         var convOpt = conversationRepository.findById(chatMessage.conversationId());
         if (userOpt.isPresent() && convOpt.isPresent()) {
-            User user = userOpt.get();
+            UserEntry user = userOpt.get();
             Conversation conversation = convOpt.get();
-            if (conversation.getParticipants().add(user)) {
+            if (conversation.getParticipants().add(userRepository.getReferenceById(user.id()))) {
                 conversationRepository.save(conversation);
-                return "User " + user.getUserName() + " joined conversation " + conversation.getId() + ".";
+                return "User " + user.userName() + " joined conversation " + conversation.getId() + ".";
             } else {
-                return "User " + user.getUserName() + " is already part of conversation " + conversation.getId() + ".";
+                return "User " + user.userName() + " is already part of conversation " + conversation.getId() + ".";
             }
         }
         throw new ResourceNotFoundException("JOIN event", "userId/conversationId",
@@ -88,17 +202,17 @@ public class MessageTypeProcessor {
      * @throws ResourceNotFoundException if the user or conversation is not found
      */
     private String processLeave(ChatMessage chatMessage) {
-        var userOpt = userRepository.findById(chatMessage.userId());
+        var userOpt = userDirectory.findById(chatMessage.userId());
         var convOpt = conversationRepository.findById(chatMessage.conversationId());
         if (userOpt.isPresent() && convOpt.isPresent()) {
-            User user = userOpt.get();
+            UserEntry user = userOpt.get();
             Conversation conversation = convOpt.get();
-            boolean removed = conversation.getParticipants().removeIf(u -> u.getId().equals(user.getId()));
+            boolean removed = conversation.getParticipants().removeIf(u -> u.getId().equals(user.id()));
             if (removed) {
                 conversationRepository.save(conversation);
-                return "User " + user.getUserName() + " left conversation " + conversation.getId() + ".";
+                return "User " + user.userName() + " left conversation " + conversation.getId() + ".";
             } else {
-                return "User " + user.getUserName() + " was not part of conversation " + conversation.getId() + ".";
+                return "User " + user.userName() + " was not part of conversation " + conversation.getId() + ".";
             }
         }
         throw new ResourceNotFoundException("LEAVE event", "userId/conversationId",
@@ -4,11 +4,34 @@ import com.google.cloud.secretmanager.v1.AccessSecretVersionResponse;
 import com.google.cloud.secretmanager.v1.SecretManagerServiceClient;
 import com.messages.engine.exception.SecretManagerException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Service;
 
-@Service
+import java.io.IOException;
+
+/**
+ * {@link SecretProvider} reading secrets from Google Cloud Secret Manager.
+ * <p>
+ * One client, with its gRPC channel and credentials, is created with the provider and shared by all calls;
+ * it is closed with the provider. Callers should go through {@link CachingSecretProvider} rather than reading
+ * from Secret Manager on every call.
+ * </p>
+ */
 @Slf4j
-public class SecretManagerService {
+public class SecretManagerService implements SecretProvider, AutoCloseable {
+
+    private final SecretManagerServiceClient client;
+
+    /**
+     * Creates the provider and its Secret Manager client, using the application default credentials.
+     *
+     * @throws SecretManagerException if the client cannot be created.
+     */
+    public SecretManagerService() {
+        try {
+            this.client = SecretManagerServiceClient.create();
+        } catch (IOException e) {
+            throw new SecretManagerException("Failed to create the Secret Manager client", e);
+        }
+    }
 
     /**
      * Retrieves a secret from Google Cloud Secret Manager.
@@ -16,14 +39,22 @@ public class SecretManagerService {
      * @param secretName The full resource name of the secret.
      * @return The secret payload as a String.
      */
+    @Override
     public String getSecret(String secretName) {
-        try (SecretManagerServiceClient client = SecretManagerServiceClient.create()) {
+        try {
             AccessSecretVersionResponse response = client.accessSecretVersion(secretName);
             return response.getPayload().getData().toStringUtf8();
         } catch (Exception e) {
             log.error("Error accessing secret {}: {}", secretName, e.getMessage(), e);
             throw new SecretManagerException("Failed to load secret: " + secretName, e);
-
         }
     }
+
+    /**
+     * Closes the Secret Manager client.
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
 }
@@ -0,0 +1,60 @@
+package com.messages.engine.service;
+
+import com.messages.engine.exception.SecretManagerException;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Source of the application's secrets, such as the JWT signing keys.
+ * <p>
+ * Secrets are identified by their Secret Manager resource name
+ * ({@code projects/<project>/secrets/<id>/versions/<version>}); providers not backed by Secret Manager
+ * look them up by {@code <id>} (see {@link #secretIdOf}).
+ * </p>
+ */
+@FunctionalInterface
+public interface SecretProvider {
+
+    /**
+     * Returns a secret.
+     *
+     * @param secretName the resource name of the secret.
+     * @return the secret payload.
+     * @throws SecretManagerException if the secret cannot be loaded.
+     */
+    String getSecret(String secretName);
+
+    /**
+     * Returns several secrets; implementations may load them concurrently.
+     *
+     * @param secretNames the resource names of the secrets.
+     * @return the secret payloads by name, in the order of the names.
+     * @throws SecretManagerException if a secret cannot be loaded.
+     */
+    default Map<String, String> getSecrets(Collection<String> secretNames) {
+        Map<String, String> secrets = new LinkedHashMap<>();
+        for (String secretName : secretNames) {
+            secrets.put(secretName, getSecret(secretName));
+        }
+        return secrets;
+    }
+
+    /**
+     * Returns the id of a secret: the {@code <id>} segment of a Secret Manager resource name, or the name itself.
+     *
+     * @param secretName the resource name of the secret.
+     * @return the secret id.
+     */
+    static String secretIdOf(String secretName) {
+        String[] segments = secretName.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            if ("secrets".equals(segments[i])) {
+                return segments[i + 1];
+            }
+        }
+        return secretName;
+    }
+
+}
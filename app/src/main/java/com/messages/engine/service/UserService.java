@@ -3,8 +3,6 @@ package com.messages.engine.service;
 import com.messages.engine.dto.UserRequest;
 import com.messages.engine.dto.UserResponse;
 
-import java.util.List;
-
 /**
  * Service interface for managing user operations.
  */
@@ -26,13 +24,6 @@ public interface UserService {
      */
     UserResponse getUserById(Long id);
 
-    /**
-     * Retrieves all users.
-     *
-     * @return a list of UserResponse DTOs.
-     */
-    List<UserResponse> getAllUsers();
-
     /**
      * Updates an existing user.
      *
@@ -1,14 +1,17 @@
 package com.messages.engine.service;
 
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
 import com.messages.engine.dto.UserRequest;
 import com.messages.engine.dto.UserResponse;
 import com.messages.engine.exception.ResourceNotFoundException;
 import com.messages.engine.model.User;
 import com.messages.engine.repository.UserRepository;
+import com.messages.engine.security.ActiveUserChecker;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +26,21 @@ public class UserServiceImpl implements UserService {
      */
     private final UserRepository userRepository;
 
+    /**
+     * Check of token users, told about deleted users so that their tokens stop working on this node at once.
+     */
+    private final ActiveUserChecker activeUserChecker;
+
+    /**
+     * Cache of the users, told about every change and deletion.
+     */
+    private final UserDirectory userDirectory;
+
+    /**
+     * Encoder hashing the passwords before they are stored.
+     */
+    private final PasswordEncoder passwordEncoder;
+
     /**
      * Creates a new user based on the provided UserRequest.
      *
@@ -35,13 +53,15 @@ public class UserServiceImpl implements UserService {
         User user = new User();//.builder()
         user.setUserName(userRequest.getUserName());
         user.setEmail(userRequest.getEmail());
-        user.setPassword(userRequest.getPassword());
+        user.setPassword(passwordEncoder.encode(userRequest.getPassword()));
 //                .username(userRequest.username())
 //                .email(userRequest.email())
 //                .password(userRequest.password())
 //                .build();
 
         User savedUser = userRepository.save(user);
+        // Announces the new user, e.g. to the search index of every node.
+        userDirectory.invalidate(savedUser);
         return new UserResponse(savedUser.getId(),
                 savedUser.getLogin(),
                 savedUser.getUserName(),
@@ -59,29 +79,13 @@ public class UserServiceImpl implements UserService {
      */
     @Override
     public UserResponse getUserById(Long id) {
-        User user = userRepository.findById(id)
+        UserEntry user = userDirectory.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
-        return new UserResponse(user.getId(),
-                user.getLogin(),
-                user.getUserName(),
-                user.getEmail(),
-                user.getCreatedAt());
-    }
-
-    /**
-     * Retrieves all users.
-     *
-     * @return a list of UserResponse DTOs.
-     */
-    @Override
-    public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(user -> new UserResponse(user.getId(),
-                        user.getLogin(),
-                        user.getUserName(),
-                        user.getEmail(),
-                        user.getCreatedAt()))
-                .toList();
+        return new UserResponse(user.id(),
+                user.login(),
+                user.userName(),
+                user.email(),
+                user.createdAt());
     }
 
     /**
@@ -97,12 +101,14 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
 
+        String previousUserName = user.getUserName();
         // Update the fields.
         user.setUserName(userRequest.getUserName());
         user.setEmail(userRequest.getEmail());
-        user.setPassword(userRequest.getPassword());
+        user.setPassword(passwordEncoder.encode(userRequest.getPassword()));
 
         User updatedUser = userRepository.save(user);
+        userDirectory.invalidate(id, previousUserName, updatedUser.getUserName());
         return new UserResponse(updatedUser.getId(),
                 updatedUser.getLogin(),
                 updatedUser.getUserName(),
@@ -121,6 +127,8 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
         userRepository.delete(user);
+        activeUserChecker.invalidate(id);
+        userDirectory.invalidate(user);
     }
 
 }
@@ -0,0 +1,80 @@
+package com.messages.engine.transport;
+
+import com.messages.engine.config.RabbitMQConfig;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.service.ChatMessageListener;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link ChatMessageTransport} backed by RabbitMQ.
+ * <p>
+ * Messages are published to the chat exchange and consumed from the chat queue with manual acknowledgements.
+ * The consumer hands each message to {@link ChatMessageListener#receiveMessage(ChatMessage)} and takes the next
+ * one at once; the message is acknowledged when the returned future completes, and rejected without requeue
+ * when it fails, so failed messages are logged and dropped instead of being redelivered forever. At most
+ * {@code spring.rabbitmq.listener.simple.prefetch} messages are in process at a time.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.transport", name = "type", havingValue = "amqp", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class AmqpChatMessageTransport implements ChatMessageTransport {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ChatMessageListener chatMessageListener;
+
+    /**
+     * Publishes the chat message to the chat exchange.
+     *
+     * @param message the chat message to publish.
+     */
+    @Override
+    public void publish(ChatMessage message) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.CHAT_EXCHANGE, RabbitMQConfig.CHAT_ROUTING_KEY, message);
+    }
+
+    /**
+     * Consumes chat messages from the RabbitMQ chat queue and hands them to the listener, acknowledging each
+     * one once it is processed.
+     *
+     * @param message     the received chat message.
+     * @param channel     the channel the message was delivered on.
+     * @param deliveryTag the delivery tag of the message on the channel.
+     */
+    @RabbitListener(queues = RabbitMQConfig.CHAT_QUEUE, ackMode = "MANUAL")
+    public void onMessage(ChatMessage message, Channel channel,
+                          @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        CompletableFuture<ChatMessage> processed;
+        try {
+            processed = chatMessageListener.receiveMessage(message);
+        } catch (RuntimeException ex) {
+            processed = CompletableFuture.failedFuture(ex);
+        }
+        processed.whenComplete((result, ex) -> {
+            try {
+                if (ex == null) {
+                    channel.basicAck(deliveryTag, false);
+                } else {
+                    channel.basicReject(deliveryTag, false);
+                }
+            } catch (IOException ioException) {
+                // The channel is gone; the broker redelivers the unacknowledged message.
+                log.warn("Could not acknowledge chat message {}: {}", deliveryTag, ioException.getMessage());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.messages.engine.transport;
+
+import com.messages.engine.dto.ChatMessage;
+
+/**
+ * Transport that carries chat messages from ingest to the {@link com.messages.engine.service.ChatMessageListener}.
+ * <p>
+ * Exactly one implementation is active, selected with the {@code chat.transport.type} property:
+ * {@code amqp} (default) routes messages through RabbitMQ, {@code ring-buffer} hands them over
+ * through an in-JVM ring buffer for single-node deployments, load tests and broker-less tests.
+ * Both implementations deliver messages to the listener in publish order without waiting for each one to be
+ * processed, and acknowledge a message only once the future returned by the listener completes. The number of
+ * messages delivered but not yet acknowledged is bounded, which holds back the transport while processing lags.
+ * </p>
+ */
+public interface ChatMessageTransport {
+
+    /**
+     * Publishes a chat message for asynchronous delivery to the listener.
+     *
+     * @param message the chat message to publish.
+     */
+    void publish(ChatMessage message);
+
+}
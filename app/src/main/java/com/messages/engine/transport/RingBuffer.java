@@ -0,0 +1,191 @@
+package com.messages.engine.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring buffer in the style of the LMAX Disruptor.
+ * <p>
+ * All slots are allocated up front and reused, so publishing does not allocate. Producers claim a
+ * sequence with a single atomic increment, wait while the consumer is a full lap behind (back-pressure),
+ * then write the slot and mark it published. One consumer thread drains published slots in sequence
+ * order, in batches of up to {@code maxBatchSize}, and releases each slot only after the handler
+ * has returned for it.
+ * </p>
+ *
+ * @param <E> the type of the events carried by the buffer.
+ */
+@Slf4j
+public class RingBuffer<E> {
+
+    /**
+     * Callback invoked on the consumer thread for every published event.
+     *
+     * @param <E> the type of the event.
+     */
+    @FunctionalInterface
+    public interface EventHandler<E> {
+
+        /**
+         * Handles one event.
+         *
+         * @param event      the event.
+         * @param sequence   the sequence number of the event.
+         * @param endOfBatch whether this is the last event of the current batch.
+         * @throws Exception if handling fails; the event is logged and released.
+         */
+        void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+
+    }
+
+    /** Number of busy-spin iterations before the consumer parks. */
+    private static final int SPIN_TRIES = 100;
+
+    /** Maximum time the consumer parks before re-checking for work. */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot<E>[] slots;
+    private final int mask;
+    private final int maxBatchSize;
+    private final EventHandler<E> handler;
+    private final Thread consumerThread;
+
+    /** Next sequence to be claimed by a producer. */
+    private final AtomicLong claimSequence = new AtomicLong(0);
+
+    /** Highest sequence released by the consumer. */
+    private final AtomicLong consumerSequence = new AtomicLong(-1);
+
+    private volatile boolean consumerWaiting;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the ring buffer and starts its consumer thread.
+     *
+     * @param bufferSize   number of slots; must be a power of two.
+     * @param maxBatchSize maximum number of events handed to the handler per batch.
+     * @param handler      the event handler.
+     * @param threadName   name of the consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    public RingBuffer(int bufferSize, int maxBatchSize, EventHandler<E> handler, String threadName) {
+        if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two, got " + bufferSize);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive, got " + maxBatchSize);
+        }
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot<>();
+        }
+        this.mask = bufferSize - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.handler = handler;
+        this.consumerThread = new Thread(this::consume, threadName);
+        this.consumerThread.setDaemon(true);
+        this.consumerThread.start();
+    }
+
+    /**
+     * Publishes an event, waiting while the buffer is full.
+     *
+     * @param event the event to publish.
+     * @return the sequence assigned to the event.
+     * @throws IllegalStateException if the buffer has been shut down.
+     */
+    public long publish(E event) {
+        if (!running) {
+            throw new IllegalStateException("Ring buffer has been shut down");
+        }
+        long sequence = claimSequence.getAndIncrement();
+        long wrapPoint = sequence - slots.length;
+        while (wrapPoint > consumerSequence.get()) {
+            if (!running) {
+                throw new IllegalStateException("Ring buffer has been shut down");
+            }
+            LockSupport.parkNanos(1);
+        }
+        Slot<E> slot = slots[(int) (sequence & mask)];
+        slot.event = event;
+        slot.published = sequence;
+        if (consumerWaiting) {
+            LockSupport.unpark(consumerThread);
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the number of events published but not yet released by the consumer.
+     *
+     * @return the current backlog.
+     */
+    public long backlog() {
+        return claimSequence.get() - 1 - consumerSequence.get();
+    }
+
+    /**
+     * Stops accepting events, lets the consumer drain what was already published and waits for it to exit.
+     *
+     * @param timeout maximum time to wait for the drain.
+     * @param unit    unit of {@code timeout}.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        running = false;
+        LockSupport.unpark(consumerThread);
+        consumerThread.join(unit.toMillis(timeout));
+    }
+
+    private void consume() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            int available = 0;
+            while (available < maxBatchSize && slots[(int) ((next + available) & mask)].published == next + available) {
+                available++;
+            }
+            if (available == 0) {
+                if (!running && next >= claimSequence.get()) {
+                    return;
+                }
+                if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    consumerWaiting = true;
+                    if (slots[(int) (next & mask)].published != next) {
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    }
+                    consumerWaiting = false;
+                }
+                continue;
+            }
+            idle = 0;
+            for (int i = 0; i < available; i++) {
+                long sequence = next + i;
+                Slot<E> slot = slots[(int) (sequence & mask)];
+                try {
+                    handler.onEvent(slot.event, sequence, i == available - 1);
+                } catch (Exception ex) {
+                    log.error("Error handling ring buffer event {}: {}", sequence, ex.getMessage(), ex);
+                } finally {
+                    slot.event = null;
+                    consumerSequence.set(sequence);
+                }
+            }
+            next += available;
+        }
+    }
+
+    /**
+     * Preallocated slot; {@code published} holds the sequence of the event currently stored in it.
+     */
+    private static final class Slot<E> {
+        private E event;
+        private volatile long published = -1;
+    }
+
+}
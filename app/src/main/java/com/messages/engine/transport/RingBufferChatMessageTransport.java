@@ -0,0 +1,88 @@
+package com.messages.engine.transport;
+
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.service.ChatMessageListener;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process {@link ChatMessageTransport} backed by a preallocated {@link RingBuffer}.
+ * <p>
+ * Selected with {@code chat.transport.type=ring-buffer}. Messages never leave the JVM, so this mode
+ * is only suitable for single-node deployments, load tests and tests running without a broker.
+ * A single consumer thread delivers messages to the listener in publish order without waiting for their
+ * processing, so that conversations are processed in parallel; a message's slot is released once it is handed
+ * to the listener. At most {@code max-in-flight} messages are processed at a time: the consumer waits for one
+ * to complete beyond, and the buffer then fills up and holds back the publishers. Listener failures are logged
+ * and dropped, matching the AMQP transport's reject-without-requeue behaviour.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "chat.transport", name = "type", havingValue = "ring-buffer")
+@Slf4j
+public class RingBufferChatMessageTransport implements ChatMessageTransport {
+
+    private final RingBuffer<ChatMessage> ringBuffer;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    /**
+     * Creates the transport and starts its consumer thread.
+     *
+     * @param chatMessageListener the listener receiving the messages.
+     * @param bufferSize          number of preallocated slots; must be a power of two.
+     * @param maxBatchSize        maximum number of messages drained per consumer batch.
+     * @param maxInFlight         maximum number of messages handed to the listener and not yet processed.
+     */
+    public RingBufferChatMessageTransport(ChatMessageListener chatMessageListener,
+                                          @Value("${chat.transport.ring-buffer.size:8192}") int bufferSize,
+                                          @Value("${chat.transport.ring-buffer.max-batch-size:256}") int maxBatchSize,
+                                          @Value("${chat.transport.ring-buffer.max-in-flight:256}") int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.ringBuffer = new RingBuffer<>(bufferSize, maxBatchSize,
+                (message, sequence, endOfBatch) -> deliver(chatMessageListener, message),
+                "chat-ring-buffer-consumer");
+        log.info("Using in-process ring buffer chat transport with {} slots", bufferSize);
+    }
+
+    /**
+     * Publishes the chat message into the ring buffer, waiting while the buffer is full.
+     *
+     * @param message the chat message to publish.
+     */
+    @Override
+    public void publish(ChatMessage message) {
+        ringBuffer.publish(message);
+    }
+
+    private void deliver(ChatMessageListener chatMessageListener, ChatMessage message) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            chatMessageListener.receiveMessage(message).whenComplete((processed, ex) -> inFlight.release());
+        } catch (RuntimeException ex) {
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Drains already published messages, and waits for their processing, before the application context closes.
+     *
+     * @throws InterruptedException if interrupted while draining.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ringBuffer.shutdown(10, TimeUnit.SECONDS);
+        if (!inFlight.tryAcquire(maxInFlight, 10, TimeUnit.SECONDS)) {
+            log.warn("Chat messages still in process at shutdown: {}", maxInFlight - inFlight.availablePermits());
+        }
+    }
+
+}
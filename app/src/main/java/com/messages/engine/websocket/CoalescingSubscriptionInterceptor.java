@@ -0,0 +1,71 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.config.WebSocketConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * STOMP channel interceptor that negotiates coalesced delivery on SUBSCRIBE.
+ * <p>
+ * A SUBSCRIBE to {@code /topic/conversations.{id}} carrying the header {@code x-coalesce: true} is
+ * redirected to {@code /topic/conversations.{id}.batch}, so the client receives the conversation's
+ * messages as JSON arrays produced by the {@link ConversationBroadcaster}. Without the header, or
+ * with coalescing disabled, the subscription is left unchanged.
+ * </p>
+ */
+@Component
+public class CoalescingSubscriptionInterceptor implements ChannelInterceptor {
+
+    /** SUBSCRIBE header with which clients request coalesced delivery. */
+    public static final String COALESCE_HEADER = "x-coalesce";
+
+    private final boolean coalescingEnabled;
+
+    /**
+     * Creates the interceptor.
+     *
+     * @param coalescingEnabled whether the {@link ConversationBroadcaster} produces batch frames.
+     */
+    public CoalescingSubscriptionInterceptor(@Value("${chat.websocket.coalescing.enabled:false}") boolean coalescingEnabled) {
+        this.coalescingEnabled = coalescingEnabled;
+    }
+
+    /**
+     * Rewrites the destination of SUBSCRIBE frames that request coalescing.
+     *
+     * @param message the inbound message.
+     * @param channel the inbound channel.
+     * @return the message, with the batch destination if coalescing was requested.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE
+                || !coalescingEnabled
+                || !Boolean.parseBoolean(accessor.getFirstNativeHeader(COALESCE_HEADER))) {
+            return message;
+        }
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(WebSocketConfig.CONVERSATION_TOPIC_PREFIX)
+                || destination.endsWith(WebSocketConfig.BATCH_TOPIC_SUFFIX)) {
+            return message;
+        }
+        String batchDestination = destination + WebSocketConfig.BATCH_TOPIC_SUFFIX;
+        if (accessor.isMutable()) {
+            accessor.setDestination(batchDestination);
+            return message;
+        }
+        StompHeaderAccessor rewritten = StompHeaderAccessor.wrap(message);
+        rewritten.setDestination(batchDestination);
+        return MessageBuilder.createMessage(message.getPayload(), rewritten.getMessageHeaders());
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of {@link ChatMessage}s for the native WebSocket endpoint.
+ * <p>
+ * Layout: a version byte ({@value #VERSION}), the message type's ordinal, a byte with one bit per present field
+ * (1 id, 2 user id, 4 conversation id, 8 content), then the present ids as unsigned LEB128 varints and the
+ * content as a varint byte length followed by UTF-8. A typical short chat message takes a third of its JSON size.
+ * </p>
+ */
+public final class CompactChatMessageCodec {
+
+    /** Current format version, the first byte of every encoded message. */
+    public static final byte VERSION = 1;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_USER_ID = 2;
+    private static final int HAS_CONVERSATION_ID = 4;
+    private static final int HAS_CONTENT = 8;
+
+    private static final ChatMessageType[] TYPES = ChatMessageType.values();
+
+    private CompactChatMessageCodec() {
+    }
+
+    /**
+     * Encodes a chat message.
+     *
+     * @param message the message.
+     * @return the encoded bytes.
+     */
+    public static byte[] encode(ChatMessage message) {
+        byte[] content = message.content() != null ? message.content().getBytes(StandardCharsets.UTF_8) : null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + (content != null ? content.length : 0));
+        out.write(VERSION);
+        out.write(message.type() != null ? message.type().ordinal() : 0xFF);
+        int fields = (message.id() != null ? HAS_ID : 0)
+                | (message.userId() != null ? HAS_USER_ID : 0)
+                | (message.conversationId() != null ? HAS_CONVERSATION_ID : 0)
+                | (content != null ? HAS_CONTENT : 0);
+        out.write(fields);
+        if (message.id() != null) {
+            writeVarLong(out, message.id());
+        }
+        if (message.userId() != null) {
+            writeVarLong(out, message.userId());
+        }
+        if (message.conversationId() != null) {
+            writeVarLong(out, message.conversationId());
+        }
+        if (content != null) {
+            writeVarLong(out, content.length);
+            out.write(content, 0, content.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a chat message.
+     *
+     * @param bytes the encoded bytes.
+     * @return the message.
+     * @throws IllegalArgumentException if the bytes are not a valid encoding.
+     */
+    public static ChatMessage decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported compact message version " + version);
+        }
+        int typeOrdinal = reader.readByte();
+        ChatMessageType type = typeOrdinal < TYPES.length ? TYPES[typeOrdinal] : null;
+        int fields = reader.readByte();
+        Long id = (fields & HAS_ID) != 0 ? reader.readVarLong() : null;
+        Long userId = (fields & HAS_USER_ID) != 0 ? reader.readVarLong() : null;
+        Long conversationId = (fields & HAS_CONVERSATION_ID) != 0 ? reader.readVarLong() : null;
+        String content = (fields & HAS_CONTENT) != 0 ? reader.readString() : null;
+        return new ChatMessage(id, type, content, userId, conversationId);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values cannot be encoded: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Sequential reader over an encoded message.
+     */
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private int readByte() {
+            if (position >= bytes.length) {
+                throw new IllegalArgumentException("Truncated compact message");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in compact message");
+        }
+
+        private String readString() {
+            long length = readVarLong();
+            if (length < 0) {
+                throw new IllegalArgumentException("Negative string length in compact message");
+            }
+            if (length > bytes.length - position) {
+                throw new IllegalArgumentException("Truncated compact message");
+            }
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+
+}
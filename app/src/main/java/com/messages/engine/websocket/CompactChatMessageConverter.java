@@ -0,0 +1,52 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.dto.ChatMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Converts {@link ChatMessage}s to and from {@link CompactChatMessageCodec} payloads.
+ * <p>
+ * Only applies to frames whose {@code content-type} is {@code application/octet-stream}, so JSON frames
+ * keep going to the Jackson converter. STOMP over a native WebSocket session sends such frames as binary
+ * WebSocket messages.
+ * </p>
+ */
+public class CompactChatMessageConverter extends AbstractMessageConverter {
+
+    /**
+     * Creates the converter.
+     */
+    public CompactChatMessageConverter() {
+        super(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ChatMessage.class == clazz;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, @Nullable Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return null;
+        }
+        try {
+            return CompactChatMessageCodec.decode(payload);
+        } catch (IllegalArgumentException ex) {
+            // Let the caller report the frame as unconvertible.
+            return null;
+        }
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, @Nullable MessageHeaders headers,
+                                       @Nullable Object conversionHint) {
+        return CompactChatMessageCodec.encode((ChatMessage) payload);
+    }
+
+}
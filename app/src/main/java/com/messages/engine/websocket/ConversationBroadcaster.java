@@ -0,0 +1,167 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.ChatMessage;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcasts processed chat messages to the STOMP topics of their conversation.
+ * <p>
+ * Every message is sent immediately to {@code /topic/conversations.{id}}. When coalescing is enabled
+ * ({@code chat.websocket.coalescing.enabled}), messages are also collected per conversation and sent
+ * to {@code /topic/conversations.{id}.batch} as a single frame carrying a JSON array, once the
+ * collection window has elapsed or {@code max-batch-size} messages have accumulated. Clients opt in
+ * with the {@code x-coalesce} SUBSCRIBE header (see {@link CoalescingSubscriptionInterceptor}).
+ * All batch frames are sent from one thread, so batches of a conversation arrive in order.
+ * </p>
+ * <p>
+ * When the binary topics are enabled ({@code chat.websocket.native-endpoint.binary-topics}), every message is
+ * also sent to {@code /topic/conversations.{id}.bin} in the compact binary encoding
+ * ({@link CompactChatMessageCodec}). They are off by default, as each message is then encoded and published
+ * twice whether or not the conversation has binary subscribers.
+ * </p>
+ * <p>
+ * Persisted messages are also recorded in the conversation's replay buffer, from which reconnecting
+ * clients resume (see {@link ConversationReplayService}).
+ * </p>
+ */
+@Component
+@Slf4j
+public class ConversationBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConversationReplayService replayService;
+    private final boolean coalescingEnabled;
+    private final boolean binaryEnabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final Map<Long, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * The messages collected for a conversation. A batch is identified by its instance: the flushes scheduled
+     * for it only send that batch, never one opened after it was sent.
+     */
+    private static final class Batch {
+        private final List<ChatMessage> messages = new ArrayList<>();
+    }
+
+    /**
+     * Creates the broadcaster.
+     *
+     * @param messagingTemplate template used to send messages to the broker.
+     * @param replayService     service keeping the recent messages of each conversation for resumes.
+     * @param coalescingEnabled whether coalesced batch frames are produced.
+     * @param windowMillis      maximum time a message waits in a batch, in milliseconds.
+     * @param maxBatchSize      number of messages after which a batch is sent without waiting for the window.
+     * @param binaryEnabled     whether messages are also sent to the binary topics.
+     */
+    public ConversationBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                   ConversationReplayService replayService,
+                                   @Value("${chat.websocket.coalescing.enabled:false}") boolean coalescingEnabled,
+                                   @Value("${chat.websocket.coalescing.window-ms:15}") long windowMillis,
+                                   @Value("${chat.websocket.coalescing.max-batch-size:50}") int maxBatchSize,
+                                   @Value("${chat.websocket.native-endpoint.binary-topics:false}") boolean binaryEnabled) {
+        this.messagingTemplate = messagingTemplate;
+        this.replayService = replayService;
+        this.coalescingEnabled = coalescingEnabled;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.binaryEnabled = binaryEnabled;
+        this.flusher = coalescingEnabled
+                ? Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("ws-coalescer-"))
+                : null;
+    }
+
+    /**
+     * Broadcasts a chat message to the subscribers of its conversation.
+     *
+     * @param message the chat message.
+     */
+    public void broadcast(ChatMessage message) {
+        replayService.record(message);
+        messagingTemplate.convertAndSend(WebSocketConfig.conversationTopic(message.conversationId()), message);
+        if (binaryEnabled) {
+            messagingTemplate.convertAndSend(WebSocketConfig.conversationBinaryTopic(message.conversationId()),
+                    message, binaryHeaders());
+        }
+        if (coalescingEnabled) {
+            enqueue(message);
+        }
+    }
+
+    /**
+     * Headers selecting the compact encoding; a fresh mutable accessor, as the template consumes it.
+     */
+    private static MessageHeaders binaryHeaders() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    private void enqueue(ChatMessage message) {
+        Long conversationId = message.conversationId();
+        // [0]: the batch was opened by this message, [1]: the batch reached its maximum size
+        boolean[] state = new boolean[2];
+        Batch current = batches.compute(conversationId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch();
+                state[0] = true;
+            }
+            batch.messages.add(message);
+            state[1] = batch.messages.size() >= maxBatchSize;
+            return batch;
+        });
+        if (state[0]) {
+            flusher.schedule(() -> flush(conversationId, current), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        if (state[1]) {
+            flusher.execute(() -> flush(conversationId, current));
+        }
+    }
+
+    /**
+     * Sends a batch unless it was already sent, by the other of its size and window triggers.
+     */
+    private void flush(Long conversationId, Batch batch) {
+        if (!batches.remove(conversationId, batch) || batch.messages.isEmpty()) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSend(WebSocketConfig.conversationBatchTopic(conversationId), batch.messages);
+        } catch (Exception ex) {
+            log.error("Error sending coalesced batch of {} messages for conversation {}: {}",
+                    batch.messages.size(), conversationId, ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Sends the pending batches and stops the flush thread.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (flusher != null) {
+            batches.forEach((id, batch) -> flusher.execute(() -> flush(id, batch)));
+            flusher.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.dto.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fixed-size ring of the most recent persisted messages of one conversation, in broadcast order.
+ * <p>
+ * The buffer knows it holds every message with an id greater than its floor: the id of the last message
+ * it evicted or, before the first eviction, of the first message it received. A resume from a last seen id
+ * at or above the floor can be served from memory; anything older may have gaps and has to be read from
+ * the database. {@link #seed} fills a buffer with the latest messages read from the database, so that after a
+ * restart one query per conversation serves every reconnecting client.
+ * </p>
+ * <p>
+ * This rests on message ids growing in broadcast order within a conversation. It holds because the messages
+ * of a conversation are persisted one after the other on its lane of the processing executor, each broadcast
+ * once committed, and the {@code GCP_UNIQUE_ID} sequence hands out ids without a per-session cache
+ * ({@code CACHE 1}), so a message persisted later always gets a greater id, whichever connection inserts it.
+ * </p>
+ */
+public class ConversationReplayBuffer {
+
+    private final ChatMessage[] ring;
+    private long appended;
+    private long floorId = Long.MAX_VALUE;
+    private boolean seeded;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param capacity the number of messages kept.
+     */
+    public ConversationReplayBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+        this.ring = new ChatMessage[capacity];
+    }
+
+    /**
+     * Appends a persisted message, evicting the oldest one when full.
+     *
+     * @param message the message; must carry an id.
+     */
+    public synchronized void append(ChatMessage message) {
+        int index = (int) (appended % ring.length);
+        if (floorId == Long.MAX_VALUE) {
+            floorId = message.id();
+        }
+        if (appended >= ring.length) {
+            floorId = ring[index].id();
+        }
+        ring[index] = message;
+        appended++;
+    }
+
+    /**
+     * Merges the latest persisted messages into the buffer.
+     * <p>
+     * The buffer must have existed before the messages were read, so that any message persisted after the
+     * read has been appended to it and the seeded and appended messages leave no gap.
+     * </p>
+     *
+     * @param latest   the latest messages of the conversation, oldest first.
+     * @param complete whether {@code latest} holds every message of the conversation.
+     */
+    public synchronized void seed(List<ChatMessage> latest, boolean complete) {
+        TreeMap<Long, ChatMessage> merged = new TreeMap<>();
+        latest.forEach(message -> merged.put(message.id(), message));
+        buffered().forEach(message -> merged.put(message.id(), message));
+        long floor = complete || latest.isEmpty() ? Long.MIN_VALUE : latest.get(0).id();
+        floor = Math.min(floor, floorId);
+        while (merged.size() > ring.length) {
+            floor = Math.max(floor, merged.pollFirstEntry().getKey());
+        }
+        appended = 0;
+        for (Map.Entry<Long, ChatMessage> entry : merged.entrySet()) {
+            ring[(int) appended++] = entry.getValue();
+        }
+        floorId = floor;
+        seeded = true;
+    }
+
+    /**
+     * Returns whether the buffer has been seeded from the database.
+     *
+     * @return {@code true} once {@link #seed} has been called.
+     */
+    public synchronized boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * Returns the buffered messages following a last seen message, if the buffer covers the gap.
+     *
+     * @param lastSeenId the id of the last message the client received.
+     * @return the messages with a greater id, oldest first, or null if messages may be missing from the buffer.
+     */
+    public synchronized List<ChatMessage> messagesAfter(long lastSeenId) {
+        if (lastSeenId < floorId) {
+            return null;
+        }
+        List<ChatMessage> messages = buffered();
+        messages.removeIf(message -> message.id() <= lastSeenId);
+        return messages;
+    }
+
+    private List<ChatMessage> buffered() {
+        int size = (int) Math.min(appended, ring.length);
+        List<ChatMessage> messages = new ArrayList<>(size);
+        for (long sequence = appended - size; sequence < appended; sequence++) {
+            messages.add(ring[(int) (sequence % ring.length)]);
+        }
+        return messages;
+    }
+
+}
@@ -0,0 +1,284 @@
+package com.messages.engine.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.messages.engine.concurrent.MeteredExecutor;
+import com.messages.engine.config.ReplayProperties;
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.repository.MessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Limit;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Resumes conversation subscriptions after a reconnect from in-memory replay buffers.
+ * <p>
+ * Every persisted message broadcast by this node is appended to a bounded {@link ConversationReplayBuffer}
+ * of its conversation; buffers of idle conversations are dropped. A client that reconnects subscribes with
+ * the header {@code x-resume-from: <last seen message id>} and receives the messages it missed, each marked
+ * with {@code x-replay: true} (as one JSON array on the {@code .batch} topic, in the compact encoding on the
+ * {@code .bin} topic), right after the subscription.
+ * Live messages may arrive before or between the replayed ones, so clients drop ids they have already seen.
+ * </p>
+ * <p>
+ * When the buffer does not reach back far enough, the database is queried on a separate, bounded executor.
+ * The first such query of a conversation seeds its buffer with the latest messages, and concurrent resumes
+ * of the same conversation wait for that one query, so a reconnect storm after a deploy costs one query per
+ * conversation. Clients further behind than the buffer get up to {@code chat.replay.max-fallback-messages}
+ * messages read directly and are expected to reload older history.
+ * </p>
+ * <p>
+ * Both the buffers and the database fallback return the messages with an id greater than the last seen one,
+ * relying on ids growing in broadcast order within a conversation (see {@link ConversationReplayBuffer}).
+ * The buffers only see messages broadcast by this node. When several nodes consume one shared AMQP queue,
+ * a node's buffers miss the other nodes' messages. In that case, disable the replay buffers or route each
+ * conversation to a single node.
+ * </p>
+ */
+@Component
+@Slf4j
+public class ConversationReplayService {
+
+    /** SUBSCRIBE header carrying the id of the last message the client received. */
+    public static final String RESUME_HEADER = "x-resume-from";
+
+    /** Header marking replayed MESSAGE frames. */
+    public static final String REPLAY_HEADER = "x-replay";
+
+    private final ReplayProperties properties;
+    private final MessageRepository messageRepository;
+    private final MessageChannel clientOutboundChannel;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, ConversationReplayBuffer> buffers;
+    private final Map<Long, CompletableFuture<Void>> seeding = new ConcurrentHashMap<>();
+    private final MeteredExecutor fallbackExecutor;
+    private final Counter memoryResumes;
+    private final Counter databaseResumes;
+    private final Counter seeds;
+
+    /**
+     * Creates the service.
+     *
+     * @param properties            replay settings.
+     * @param messageRepository     repository used for the database fallback.
+     * @param clientOutboundChannel channel carrying frames to the clients.
+     * @param objectMapper          mapper serializing the replayed messages.
+     * @param meterRegistry         registry for the resume metrics.
+     * @param environment           environment telling whether the application runs in virtual-thread mode.
+     */
+    public ConversationReplayService(ReplayProperties properties, MessageRepository messageRepository,
+                                     @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                                     ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                     Environment environment) {
+        this.properties = properties;
+        this.messageRepository = messageRepository;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.objectMapper = objectMapper;
+        this.buffers = Caffeine.newBuilder()
+                .maximumSize(properties.maxConversations())
+                .expireAfterAccess(properties.idleTimeout())
+                .build();
+        this.fallbackExecutor = new MeteredExecutor("replay.fallback",
+                properties.fallbackExecutor().inThreadingMode(environment)
+                        .createExecutorService("replay-fallback-"), meterRegistry);
+        this.memoryResumes = Counter.builder("chat.replay.resumes")
+                .description("Subscriptions resumed after a reconnect")
+                .tag("source", "memory")
+                .register(meterRegistry);
+        this.databaseResumes = Counter.builder("chat.replay.resumes")
+                .description("Subscriptions resumed after a reconnect")
+                .tag("source", "database")
+                .register(meterRegistry);
+        this.seeds = Counter.builder("chat.replay.seeds")
+                .description("Replay buffers seeded from the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Appends a broadcast message to the replay buffer of its conversation.
+     *
+     * @param message the message; messages without an id (not persisted) are ignored.
+     */
+    public void record(ChatMessage message) {
+        if (properties.enabled() && message.id() != null && message.conversationId() != null) {
+            buffer(message.conversationId()).append(message);
+        }
+    }
+
+    /**
+     * Replays the missed messages to a subscription that asks to resume.
+     *
+     * @param event the subscribe event.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        if (!properties.enabled()) {
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String resumeFrom = accessor.getFirstNativeHeader(RESUME_HEADER);
+        String destination = accessor.getDestination();
+        Long conversationId = WebSocketConfig.conversationIdOf(destination);
+        if (resumeFrom == null || conversationId == null || accessor.getSessionId() == null
+                || destination.endsWith(WebSocketConfig.PRESENCE_TOPIC_SUFFIX)
+                || destination.endsWith(WebSocketConfig.RECEIPTS_TOPIC_SUFFIX)) {
+            return;
+        }
+        long lastSeenId;
+        try {
+            lastSeenId = Long.parseLong(resumeFrom);
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring invalid {} header '{}'", RESUME_HEADER, resumeFrom);
+            return;
+        }
+        Replay replay = new Replay(accessor.getSessionId(), accessor.getSubscriptionId(), destination,
+                conversationId, lastSeenId);
+        List<ChatMessage> missed = buffer(conversationId).messagesAfter(lastSeenId);
+        if (missed != null) {
+            memoryResumes.increment();
+            send(replay, missed);
+            return;
+        }
+        try {
+            fallbackExecutor.execute(() -> resumeFromDatabase(replay));
+        } catch (RejectedExecutionException ex) {
+            log.warn("Replay fallback saturated; session {} has to reload conversation {}",
+                    replay.sessionId(), conversationId);
+        }
+    }
+
+    /**
+     * Stops the fallback executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        fallbackExecutor.close();
+    }
+
+    private ConversationReplayBuffer buffer(Long conversationId) {
+        return buffers.get(conversationId, id -> new ConversationReplayBuffer(properties.bufferSize()));
+    }
+
+    private void resumeFromDatabase(Replay replay) {
+        try {
+            ConversationReplayBuffer buffer = buffer(replay.conversationId());
+            if (!buffer.isSeeded()) {
+                seed(replay.conversationId(), buffer);
+            }
+            List<ChatMessage> missed = buffer.messagesAfter(replay.lastSeenId());
+            if (missed != null) {
+                memoryResumes.increment();
+            } else {
+                databaseResumes.increment();
+                missed = messageRepository.findSummariesAfter(replay.conversationId(), replay.lastSeenId(),
+                                Limit.of(properties.maxFallbackMessages())).stream()
+                        .map(ConversationReplayService::toChatMessage)
+                        .toList();
+            }
+            send(replay, missed);
+        } catch (Exception ex) {
+            log.error("Error replaying conversation {} to session {}: {}",
+                    replay.conversationId(), replay.sessionId(), ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Seeds a buffer with the latest persisted messages; concurrent callers for the same conversation
+     * wait for the first one's query.
+     */
+    private void seed(Long conversationId, ConversationReplayBuffer buffer) {
+        CompletableFuture<Void> seeded = new CompletableFuture<>();
+        CompletableFuture<Void> inProgress = seeding.putIfAbsent(conversationId, seeded);
+        if (inProgress != null) {
+            inProgress.join();
+            return;
+        }
+        try {
+            int size = properties.bufferSize();
+            List<ChatMessage> latest = new ArrayList<>(messageRepository
+                    .findLatestSummaries(conversationId, Limit.of(size)).stream()
+                    .map(ConversationReplayService::toChatMessage)
+                    .toList());
+            seeds.increment();
+            Collections.reverse(latest);
+            buffer.seed(latest, latest.size() < size);
+            seeded.complete(null);
+        } catch (RuntimeException ex) {
+            seeded.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            seeding.remove(conversationId, seeded);
+        }
+    }
+
+    private static ChatMessage toChatMessage(MessageRepository.MessageSummary summary) {
+        return new ChatMessage(summary.getId(), ChatMessageType.CHAT, summary.getContent(),
+                summary.getUserId(), summary.getConversationId());
+    }
+
+    private void send(Replay replay, List<ChatMessage> missed) {
+        if (missed.isEmpty()) {
+            return;
+        }
+        try {
+            if (replay.destination().endsWith(WebSocketConfig.BATCH_TOPIC_SUFFIX)) {
+                sendFrame(replay, objectMapper.writeValueAsBytes(missed), MimeTypeUtils.APPLICATION_JSON);
+                return;
+            }
+            boolean binary = replay.destination().endsWith(WebSocketConfig.BINARY_TOPIC_SUFFIX);
+            for (ChatMessage message : missed) {
+                if (binary) {
+                    sendFrame(replay, CompactChatMessageCodec.encode(message), MimeTypeUtils.APPLICATION_OCTET_STREAM);
+                } else {
+                    sendFrame(replay, objectMapper.writeValueAsBytes(message), MimeTypeUtils.APPLICATION_JSON);
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            log.error("Error serializing replayed messages of conversation {}: {}",
+                    replay.conversationId(), ex.getMessage(), ex);
+        }
+    }
+
+    private void sendFrame(Replay replay, byte[] payload, MimeType contentType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(replay.sessionId());
+        accessor.setSubscriptionId(replay.subscriptionId());
+        accessor.setDestination(replay.destination());
+        accessor.setContentType(contentType);
+        accessor.setNativeHeader(REPLAY_HEADER, "true");
+        clientOutboundChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    /**
+     * A resume request of one subscription.
+     */
+    private record Replay(String sessionId, String subscriptionId, String destination,
+                          Long conversationId, long lastSeenId) { }
+
+}
@@ -0,0 +1,47 @@
+package com.messages.engine.websocket;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+
+/**
+ * Handshake handler that accepts or refuses the {@code permessage-deflate} extension.
+ * <p>
+ * The container (Tomcat) implements the extension; Spring offers it whenever the client requests it.
+ * Compression shrinks JSON frames several times over at the cost of CPU and a per-session deflate
+ * context, so it is configurable per endpoint ({@code chat.websocket.native-endpoint.per-message-deflate}).
+ * </p>
+ */
+public class PerMessageDeflateHandshakeHandler extends DefaultHandshakeHandler {
+
+    /** Name of the per-message compression extension (RFC 7692). */
+    public static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean perMessageDeflate;
+
+    /**
+     * Creates the handler.
+     *
+     * @param perMessageDeflate whether {@code permessage-deflate} is negotiated when the client requests it.
+     */
+    public PerMessageDeflateHandshakeHandler(boolean perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted =
+                super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (perMessageDeflate) {
+            return accepted;
+        }
+        return accepted.stream()
+                .filter(extension -> !PER_MESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+                .toList();
+    }
+
+}
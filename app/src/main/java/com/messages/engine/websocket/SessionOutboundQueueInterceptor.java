@@ -0,0 +1,388 @@
+package com.messages.engine.websocket;
+
+import com.messages.engine.config.WebSocketChannelProperties;
+import com.messages.engine.config.WebSocketChannelProperties.SlowConsumer;
+import com.messages.engine.config.WebSocketChannelProperties.SlowConsumerPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded per-session outbound queues on the client outbound channel, protecting the server from slow consumers.
+ * <p>
+ * Each session has at most one MESSAGE frame in flight on the outbound executor; the next one is dispatched
+ * once the previous frame has been written to the session, and frames published in the meantime wait in the
+ * session's queue. This keeps the frames of a session in order (it replaces the outbound channel's
+ * {@code preservePublishOrder}) and makes the backlog of every session visible. When a queue exceeds
+ * {@code chat.websocket.slow-consumer.max-messages} or {@code max-bytes}, the configured
+ * {@link SlowConsumerPolicy} is applied:
+ * </p>
+ * <ul>
+ *     <li>{@code DROP_OLDEST} drops the oldest queued frames;</li>
+ *     <li>{@code RESYNC} replaces the queued frames with one marker per subscription, a MESSAGE frame with the
+ *     header {@code x-resync: true} and the body {@code {"type":"RESYNC","missed":n}}, after which the client
+ *     should reload the conversation;</li>
+ *     <li>{@code DISCONNECT} closes the session with {@link CloseStatus#SESSION_NOT_RELIABLE}.</li>
+ * </ul>
+ * <p>
+ * Metrics: {@code chat.websocket.session.backlog} (distribution of queued frames per session, sampled every
+ * 10 seconds), {@code chat.websocket.sessions.slow} (sessions with at least {@code slow-threshold} queued
+ * frames), {@code chat.websocket.outbound.dropped} (tagged by policy) and {@code chat.websocket.sessions.disconnected}.
+ * </p>
+ */
+@Component
+@Slf4j
+public class SessionOutboundQueueInterceptor implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /** Native header marking a resync frame. */
+    public static final String RESYNC_HEADER = "x-resync";
+
+    /** Native header of a resync frame carrying the number of frames it replaced. */
+    public static final String MISSED_HEADER = "x-missed";
+
+    private final SlowConsumer settings;
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+    private final DistributionSummary backlog;
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    /**
+     * Creates the interceptor and registers its metrics.
+     *
+     * @param channelProperties client channel settings holding the slow consumer limits.
+     * @param meterRegistry     registry for the backlog metrics.
+     */
+    public SessionOutboundQueueInterceptor(WebSocketChannelProperties channelProperties, MeterRegistry meterRegistry) {
+        this.settings = channelProperties.slowConsumer();
+        this.backlog = DistributionSummary.builder("chat.websocket.session.backlog")
+                .description("Outbound frames queued per WebSocket session")
+                .baseUnit("messages")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.dropped = Counter.builder("chat.websocket.outbound.dropped")
+                .description("Outbound frames discarded for slow sessions")
+                .tag("policy", settings.policy().name())
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("chat.websocket.sessions.disconnected")
+                .description("Sessions closed for not keeping up with their outbound frames")
+                .register(meterRegistry);
+        Gauge.builder("chat.websocket.sessions.slow", this, SessionOutboundQueueInterceptor::countSlowSessions)
+                .description("Sessions whose outbound queue reached the slow threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns whether per-session outbound queues are enabled.
+     *
+     * @return {@code true} if the interceptor should be registered on the outbound channel.
+     */
+    public boolean isEnabled() {
+        return settings.enabled();
+    }
+
+    /**
+     * Lets the frame through if the session has nothing in flight, otherwise queues it.
+     *
+     * @param message the outbound message.
+     * @param channel the outbound channel.
+     * @return the message to dispatch now, or {@code null} if it was queued or discarded.
+     */
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        String sessionId = messageSessionId(message);
+        if (sessionId == null) {
+            return message;
+        }
+        SessionQueue queue = queues.get(sessionId);
+        if (queue == null) {
+            return message;
+        }
+        boolean disconnect = false;
+        synchronized (queue) {
+            if (queue.closed) {
+                return null;
+            }
+            if (queue.inFlight == message) {
+                // Dispatch of the head of the queue, see afterMessageHandled.
+                return message;
+            }
+            if (queue.inFlight == null) {
+                queue.inFlight = message;
+                return message;
+            }
+            queue.add(message);
+            if (queue.size() > settings.maxMessages() || queue.bytes > settings.maxBytes()) {
+                disconnect = applyPolicy(queue);
+            }
+        }
+        if (disconnect) {
+            closeSession(sessionId);
+        }
+        return null;
+    }
+
+    /**
+     * Dispatches the session's next queued frame once the previous one has been written.
+     *
+     * @param message the message that was handled.
+     * @param channel the outbound channel.
+     * @param handler the handler that wrote the message.
+     * @param ex      the exception thrown by the handler, if any.
+     */
+    @Override
+    public void afterMessageHandled(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    @NonNull MessageHandler handler, Exception ex) {
+        dispatchNext(message, channel);
+    }
+
+    /**
+     * Moves on to the next frame if the in-flight frame could not be handed to the executor.
+     *
+     * @param message the message.
+     * @param channel the outbound channel.
+     * @param sent    whether the message was sent.
+     * @param ex      the exception raised while sending, if any.
+     */
+    @Override
+    public void afterSendCompletion(@NonNull Message<?> message, @NonNull MessageChannel channel,
+                                    boolean sent, Exception ex) {
+        if (ex != null) {
+            dispatchNext(message, channel);
+        }
+    }
+
+    /**
+     * Wraps the WebSocket handler to track the open sessions and their queues, so slow sessions can be closed.
+     *
+     * @param handler the handler to decorate.
+     * @return the decorated handler.
+     */
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                sessions.put(session.getId(), session);
+                queues.put(session.getId(), new SessionQueue());
+                super.afterConnectionEstablished(session);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus)
+                    throws Exception {
+                sessions.remove(session.getId());
+                queues.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Records the backlog of every session into the backlog distribution.
+     */
+    @Scheduled(fixedDelay = 10_000)
+    public void sampleBacklog() {
+        if (!settings.enabled()) {
+            return;
+        }
+        for (SessionQueue queue : queues.values()) {
+            backlog.record(queue.queued);
+        }
+    }
+
+    /**
+     * Returns the number of frames queued for a session.
+     *
+     * @param sessionId the WebSocket session id.
+     * @return the number of queued frames, not counting the one in flight.
+     */
+    public int getBacklog(String sessionId) {
+        SessionQueue queue = queues.get(sessionId);
+        return queue != null ? queue.queued : 0;
+    }
+
+    private double countSlowSessions() {
+        int threshold = settings.slowThreshold();
+        return queues.values().stream().filter(queue -> queue.queued >= threshold).count();
+    }
+
+    private void dispatchNext(Message<?> message, MessageChannel channel) {
+        String sessionId = messageSessionId(message);
+        SessionQueue queue = sessionId != null ? queues.get(sessionId) : null;
+        if (queue == null) {
+            return;
+        }
+        Message<?> current = message;
+        while (true) {
+            Message<?> next;
+            synchronized (queue) {
+                if (queue.inFlight != current) {
+                    return;
+                }
+                next = queue.poll();
+                queue.inFlight = next;
+            }
+            if (next == null) {
+                return;
+            }
+            try {
+                channel.send(next);
+                return;
+            } catch (RuntimeException ex) {
+                // The executor rejected the frame; drop it and try the one after it.
+                log.warn("Dropping outbound frame for session {}: {}", sessionId, ex.getMessage());
+                dropped.increment();
+                current = next;
+            }
+        }
+    }
+
+    /**
+     * Applies the slow consumer policy to a queue over its limits; called with the queue locked.
+     *
+     * @return {@code true} if the session has to be closed.
+     */
+    private boolean applyPolicy(SessionQueue queue) {
+        switch (settings.policy()) {
+            case DROP_OLDEST -> {
+                while (queue.size() > settings.maxMessages() || queue.bytes > settings.maxBytes()) {
+                    queue.poll();
+                    dropped.increment();
+                }
+                return false;
+            }
+            case RESYNC -> {
+                resync(queue);
+                return false;
+            }
+            default -> {
+                dropped.increment(queue.size());
+                queue.clear();
+                queue.closed = true;
+                return true;
+            }
+        }
+    }
+
+    private void resync(SessionQueue queue) {
+        Map<String, Message<?>> templates = new LinkedHashMap<>();
+        Map<String, Long> missed = new LinkedHashMap<>();
+        Message<?> message;
+        while ((message = queue.poll()) != null) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            String subscriptionId = String.valueOf(accessor.getSubscriptionId());
+            String previous = accessor.getFirstNativeHeader(MISSED_HEADER);
+            long count = previous != null ? Long.parseLong(previous) : 1;
+            templates.putIfAbsent(subscriptionId, message);
+            missed.merge(subscriptionId, count, Long::sum);
+            if (previous == null) {
+                dropped.increment();
+            }
+        }
+        templates.forEach((subscriptionId, template) ->
+                queue.add(resyncMarker(template, missed.get(subscriptionId))));
+    }
+
+    private static Message<byte[]> resyncMarker(Message<?> template, long missed) {
+        SimpMessageHeaderAccessor source = SimpMessageHeaderAccessor.wrap(template);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(source.getSessionId());
+        accessor.setSubscriptionId(source.getSubscriptionId());
+        accessor.setDestination(source.getDestination());
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setNativeHeader(RESYNC_HEADER, "true");
+        accessor.setNativeHeader(MISSED_HEADER, String.valueOf(missed));
+        byte[] payload = ("{\"type\":\"RESYNC\",\"missed\":" + missed + "}").getBytes(StandardCharsets.UTF_8);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private void closeSession(String sessionId) {
+        disconnected.increment();
+        WebSocketSession session = sessions.get(sessionId);
+        log.warn("Closing slow WebSocket session {}", sessionId);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ex) {
+            log.debug("Error closing slow session {}: {}", sessionId, ex.getMessage());
+        }
+    }
+
+    private static String messageSessionId(Message<?> message) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return null;
+        }
+        return SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+
+    private static int payloadSize(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+
+    /**
+     * Outbound frames of one session; guarded by its own monitor.
+     */
+    private static final class SessionQueue {
+        private final ArrayDeque<Message<?>> frames = new ArrayDeque<>();
+        private Message<?> inFlight;
+        private long bytes;
+        private boolean closed;
+        /** Queue length published for the metrics without locking. */
+        private volatile int queued;
+
+        private int size() {
+            return frames.size();
+        }
+
+        private void add(Message<?> message) {
+            frames.addLast(message);
+            bytes += payloadSize(message);
+            queued = frames.size();
+        }
+
+        private Message<?> poll() {
+            Message<?> message = frames.pollFirst();
+            if (message != null) {
+                bytes -= payloadSize(message);
+                queued = frames.size();
+            }
+            return message;
+        }
+
+        private void clear() {
+            frames.clear();
+            bytes = 0;
+            queued = 0;
+        }
+    }
+
+}
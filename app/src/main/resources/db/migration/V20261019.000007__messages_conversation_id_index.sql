@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_id_id
+    ON messages (conversation_id, id);
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS message_receipts
+(
+    conversation_id BIGINT    NOT NULL REFERENCES conversations (id) ON DELETE CASCADE,
+    user_id         BIGINT    NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    delivered_up_to BIGINT    NOT NULL DEFAULT 0,
+    read_up_to      BIGINT    NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (conversation_id, user_id)
+);
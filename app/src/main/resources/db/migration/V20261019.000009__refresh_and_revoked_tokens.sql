@@ -0,0 +1,24 @@
+-- Refresh tokens, stored by the SHA-256 hash of the token. Tokens of one login form a family: each refresh
+-- marks the presented token used and issues the next one; presenting a used token revokes the whole family.
+CREATE TABLE IF NOT EXISTS refresh_tokens
+(
+    token_hash VARCHAR(64)              NOT NULL PRIMARY KEY,
+    user_id    BIGINT                   NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    family_id  VARCHAR(36)              NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    used_at    TIMESTAMP WITH TIME ZONE,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+-- Ids (jti) of access tokens revoked before they expire; rows are purged once the token has expired.
+CREATE TABLE IF NOT EXISTS revoked_tokens
+(
+    jti        VARCHAR(64)              NOT NULL PRIMARY KEY,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
@@ -0,0 +1,3 @@
+-- Users are looked up by name on login, token refresh and STOMP authentication.
+CREATE INDEX IF NOT EXISTS idx_users_name
+    ON users (name);
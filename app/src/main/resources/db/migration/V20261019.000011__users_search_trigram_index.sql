@@ -0,0 +1,26 @@
+-- Fuzzy user search (GET /api/users/search) on name, login and email with the pg_trgm similarity operator.
+-- Creating the extension needs the CREATE privilege on the database (superuser up to PostgreSQL 12), which a
+-- least-privilege application role usually lacks: it is created here only when it is available and may be created,
+-- and is best installed at provisioning time (CREATE EXTENSION pg_trgm). Without it, the index is skipped and the
+-- search falls back to prefix matches; once the extension is installed, create the index below by hand.
+DO
+$$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')
+        AND EXISTS (SELECT 1 FROM pg_available_extensions WHERE name = 'pg_trgm') THEN
+        BEGIN
+            CREATE EXTENSION pg_trgm;
+        EXCEPTION
+            WHEN insufficient_privilege THEN
+                RAISE NOTICE 'Not allowed to create pg_trgm: %', SQLERRM;
+        END;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS idx_users_search_trgm
+            ON users USING gin (lower(name) gin_trgm_ops, lower(login) gin_trgm_ops, lower(email) gin_trgm_ops);
+    ELSE
+        RAISE NOTICE 'pg_trgm is not installed: idx_users_search_trgm skipped, user search is prefix-only';
+    END IF;
+END
+$$;
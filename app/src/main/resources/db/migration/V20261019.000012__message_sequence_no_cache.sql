@@ -0,0 +1,4 @@
+-- Resuming conversations (replay buffers and the "id > last seen" fallback) needs message ids in the order the
+-- messages are persisted. With CACHE 10 every database session pre-allocates its own range of ids, so ids of
+-- messages inserted through different connections or nodes interleave out of order.
+ALTER SEQUENCE GCP_UNIQUE_ID CACHE 1;
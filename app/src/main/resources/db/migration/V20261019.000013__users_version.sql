@@ -0,0 +1,23 @@
+-- Change version of the listed user columns, shared by all nodes: the ETags of the user listing (GET /api/users)
+-- are derived from it. Bumped once per statement that inserts or deletes users or changes a listed column;
+-- password and two-factor changes leave it alone.
+CREATE TABLE IF NOT EXISTS users_version
+(
+    id      SMALLINT PRIMARY KEY CHECK (id = 1),
+    version BIGINT NOT NULL
+);
+
+INSERT INTO users_version (id, version) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION bump_users_version() RETURNS trigger AS
+$$
+BEGIN
+    UPDATE users_version SET version = version + 1 WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_version_bump
+    AFTER INSERT OR DELETE OR UPDATE OF login, name, email, created_at ON users
+    FOR EACH STATEMENT
+EXECUTE FUNCTION bump_users_version();
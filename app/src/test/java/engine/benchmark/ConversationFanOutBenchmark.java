@@ -0,0 +1,117 @@
+package engine.benchmark;
+
+import com.messages.engine.config.WebSocketConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound STOMP frames produced by the simple broker for 10k sessions spread across 1k conversations.
+ * <p>
+ * {@code public} reproduces the former single {@code /topic/public} broadcast, where every session
+ * receives every message; {@code per-conversation} routes each message to its conversation topic.
+ * One operation is one chat message; the {@code frames} counter reports outbound frames per second.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversationFanOutBenchmark {
+
+    @Param({"10000"})
+    private int sessions;
+
+    @Param({"1000"})
+    private int conversations;
+
+    @Param({"public", "per-conversation"})
+    private String routing;
+
+    private SimpleBrokerMessageHandler broker;
+    private Message<?>[] messages;
+    private long outboundFrames;
+    private int next;
+
+    /**
+     * Frames sent to clients, reported by JMH as a rate next to the message throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Frames {
+        public long frames;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        broker = new SimpleBrokerMessageHandler(clientInbound, (message, timeout) -> {
+            outboundFrames++;
+            return true;
+        }, brokerChannel, List.of("/topic"));
+        broker.start();
+
+        for (int session = 0; session < sessions; session++) {
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId("session-" + session);
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            accessor.setSessionId("session-" + session);
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination(session % conversations));
+            broker.handleMessage(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        }
+
+        byte[] payload = "{\"type\":\"CHAT\",\"content\":\"hello\",\"userId\":10001,\"conversationId\":1}"
+                .getBytes(StandardCharsets.UTF_8);
+        messages = new Message<?>[conversations];
+        for (int conversation = 0; conversation < conversations; conversation++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination(conversation));
+            messages[conversation] = MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.stop();
+    }
+
+    @Benchmark
+    public void broadcast(Frames frames) {
+        long before = outboundFrames;
+        broker.handleMessage(messages[next]);
+        next = (next + 1) % conversations;
+        frames.frames += outboundFrames - before;
+    }
+
+    private String destination(long conversationId) {
+        return "public".equals(routing) ? "/topic/public" : WebSocketConfig.conversationTopic(conversationId);
+    }
+
+}
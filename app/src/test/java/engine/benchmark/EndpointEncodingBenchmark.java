@@ -0,0 +1,142 @@
+package engine.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.websocket.CompactChatMessageCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.sockjs.frame.Jackson2SockJsMessageCodec;
+import org.springframework.web.socket.sockjs.frame.SockJsMessageCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Bytes on the wire and server CPU time to deliver one chat message to one session, per endpoint.
+ * <p>
+ * {@code sockjs-json} is a JSON STOMP frame wrapped in a SockJS array frame ({@code /ws});
+ * {@code native-json} the same STOMP frame as a plain WebSocket text message and {@code native-binary}
+ * a STOMP frame carrying the compact encoding ({@code /ws-native}, {@code .bin} topics). With
+ * {@code deflate}, the WebSocket payload is compressed as {@code permessage-deflate} does with context
+ * takeover: one deflate stream per session, flushed after every message. The measured time covers payload
+ * conversion, STOMP encoding, SockJS framing and compression; the average WebSocket message size
+ * including its frame header is printed at the end of each trial.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndpointEncodingBenchmark {
+
+    private static final String[] WORDS = ("the a to and you I it is we for on in that this be at can with "
+            + "not have do are meeting report build deploy fix today tomorrow lunch team thanks ok yes no "
+            + "please send check latest version review call later soon done working looks good great 👍 "
+            + "morning evening week Thursday issue ticket branch merge release customer question answer").split(" ");
+
+    @Param({"sockjs-json", "native-json", "native-binary"})
+    private String endpoint;
+
+    @Param({"false", "true"})
+    private boolean deflate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StompEncoder stompEncoder = new StompEncoder();
+    private final SockJsMessageCodec sockJsCodec = new Jackson2SockJsMessageCodec();
+    private final byte[] deflateBuffer = new byte[64 * 1024];
+    private ChatMessage[] messages;
+    private Deflater deflater;
+    private long next;
+    private long wireBytes;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Word salad of 1 to 24 words: repetitive like chat, without repeating whole messages.
+        Random random = new Random(42);
+        messages = new ChatMessage[1024];
+        for (int i = 0; i < messages.length; i++) {
+            StringJoiner content = new StringJoiner(" ");
+            for (int words = 1 + random.nextInt(24); words > 0; words--) {
+                content.add(WORDS[random.nextInt(WORDS.length)]);
+            }
+            messages[i] = new ChatMessage(1_250_000L + i, ChatMessageType.CHAT, content.toString(),
+                    10_001L + random.nextInt(50_000), 1L + random.nextInt(13));
+        }
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        wireBytes = 0;
+        sent = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deflater.end();
+        System.out.printf("%n%s deflate=%s: %.1f bytes per message on the wire%n",
+                endpoint, deflate, (double) wireBytes / sent);
+    }
+
+    @Benchmark
+    public int deliver() throws Exception {
+        ChatMessage message = messages[(int) (next++ & (messages.length - 1))];
+        byte[] frame = switch (endpoint) {
+            case "sockjs-json" -> {
+                String stomp = new String(stompFrame(objectMapper.writeValueAsBytes(message), false),
+                        StandardCharsets.UTF_8);
+                yield sockJsCodec.encode(stomp).getBytes(StandardCharsets.UTF_8);
+            }
+            case "native-json" -> stompFrame(objectMapper.writeValueAsBytes(message), false);
+            case "native-binary" -> stompFrame(CompactChatMessageCodec.encode(message), true);
+            default -> throw new IllegalStateException("Unknown endpoint " + endpoint);
+        };
+        int payloadLength = deflate ? deflate(frame) : frame.length;
+        int length = webSocketHeaderLength(payloadLength) + payloadLength;
+        wireBytes += length;
+        sent++;
+        return length;
+    }
+
+    private byte[] stompFrame(byte[] payload, boolean binary) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination("/topic/conversations." + (binary ? "1.bin" : "1"));
+        accessor.setSubscriptionId("sub-0");
+        accessor.setMessageId("a1b2c3d4-" + next);
+        accessor.setContentType(binary ? MimeTypeUtils.APPLICATION_OCTET_STREAM : MimeTypeUtils.APPLICATION_JSON);
+        return stompEncoder.encode(accessor.getMessageHeaders(), payload);
+    }
+
+    /**
+     * Compresses one message on the session's deflate stream; the trailing empty block is not sent.
+     */
+    private int deflate(byte[] payload) {
+        deflater.setInput(payload);
+        // The buffer is far larger than any frame here, so one flush emits the whole message.
+        return deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH) - 4;
+    }
+
+    private static int webSocketHeaderLength(int payloadLength) {
+        // Server frames are not masked.
+        return payloadLength < 126 ? 2 : payloadLength < 65_536 ? 4 : 10;
+    }
+
+}
@@ -0,0 +1,128 @@
+package engine.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.repository.RevokedTokenRepository;
+import com.messages.engine.repository.UserRepository;
+import com.messages.engine.security.ActiveUserChecker;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.JwtAuthenticationFilter;
+import com.messages.engine.security.JwtTokenProvider;
+import com.messages.engine.security.TokenRevocationService;
+import com.messages.engine.service.SecretProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU time of {@link JwtAuthenticationFilter} for one request carrying a valid bearer token, the per-request
+ * cost of every authenticated API call.
+ * <p>
+ * 256 users send their tokens in turn. With {@code verifiedCacheSize=0} every request verifies its token's
+ * RSA signature; with the default cache size only the first request of each token does. The principal is
+ * built from the token's claims; the periodic check that its user still exists is answered from its cache.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final UserDetails USER = User.withUsername("user").password("").authorities("USER").build();
+
+    @Param({"0", "10000"})
+    private long verifiedCacheSize;
+
+    private final FilterChain chain = (request, response) -> { };
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private SimpleMeterRegistry meterRegistry;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        String privatePem = pem("PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        String publicPem = pem("PUBLIC KEY", keyPair.getPublic().getEncoded());
+        SecretProvider secrets = secretName -> "private".equals(secretName) ? privatePem : publicPem;
+        meterRegistry = new SimpleMeterRegistry();
+        // No revoked tokens: each request probes the Bloom filter only.
+        TokenRevocationService revocations = new TokenRevocationService(mock(RevokedTokenRepository.class),
+                100_000, 0.01, Duration.ofSeconds(30), meterRegistry);
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(secrets, meterRegistry, revocations);
+        ReflectionTestUtils.setField(tokenProvider, "privateKeySecretName", "private");
+        ReflectionTestUtils.setField(tokenProvider, "publicKeySecretName", "public");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(tokenProvider, "verifiedCacheSize", verifiedCacheSize);
+        tokenProvider.init();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        filter = new JwtAuthenticationFilter(tokenProvider, username -> USER,
+                new ActiveUserChecker(userRepository, Duration.ofMinutes(1), meterRegistry));
+
+        requests = new MockHttpServletRequest[256];
+        for (int i = 0; i < requests.length; i++) {
+            String token = tokenProvider.generateToken(UsernamePasswordAuthenticationToken.authenticated(
+                    new ChatUserPrincipal((long) i, "user" + i), null, USER.getAuthorities()));
+            requests[i] = new MockHttpServletRequest("GET", "/api/conversations");
+            requests[i].addHeader("Authorization", "Bearer " + token);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nverifiedCacheSize=%d: %.0f cache hits, %.0f misses%n", verifiedCacheSize,
+                meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", "hit")
+                        .functionCounter().count(),
+                meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", "miss")
+                        .functionCounter().count());
+    }
+
+    @Benchmark
+    public Object authenticate() throws Exception {
+        MockHttpServletRequest request = requests[next++ & (requests.length - 1)];
+        filter.doFilter(request, response, chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----";
+    }
+
+}
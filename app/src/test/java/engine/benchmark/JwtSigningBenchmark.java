@@ -0,0 +1,95 @@
+package engine.benchmark;
+
+import com.messages.engine.security.JwtKeyRing;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of signing a token at login and of verifying one on a verified-token cache miss, per signing algorithm
+ * of {@link JwtKeyRing}. Tokens carry the claims issued by {@code JwtTokenProvider}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    private String algorithm;
+
+    private JwtKeyRing keyRing;
+    private JWTClaimsSet claims;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        JWSAlgorithm alg = JWSAlgorithm.parse(algorithm);
+        JWK key = switch (algorithm) {
+            case "RS256" -> new RSAKeyGenerator(2048).generate();
+            case "ES256" -> new ECKeyGenerator(Curve.P_256).generate();
+            default -> ed25519();
+        };
+        keyRing = JwtKeyRing.of(new JWKSet(key), alg);
+        Date now = new Date();
+        claims = new JWTClaimsSet.Builder()
+                .subject("alice")
+                .claim("uid", 42L)
+                .claim("roles", List.of("USER"))
+                .issueTime(now)
+                .expirationTime(new Date(now.getTime() + TimeUnit.HOURS.toMillis(1)))
+                .build();
+        token = sign().serialize();
+    }
+
+    @Benchmark
+    public SignedJWT sign() throws Exception {
+        SignedJWT jwt = new SignedJWT(keyRing.header(), claims);
+        jwt.sign(keyRing.signer());
+        return jwt;
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return keyRing.verify(SignedJWT.parse(token));
+    }
+
+    private static OctetKeyPair ed25519() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        return new OctetKeyPair.Builder(Curve.Ed25519,
+                Base64URL.encode(Arrays.copyOfRange(publicKey, publicKey.length - 32, publicKey.length)))
+                .d(Base64URL.encode(Arrays.copyOfRange(privateKey, privateKey.length - 32, privateKey.length)))
+                .build();
+    }
+
+}
@@ -0,0 +1,111 @@
+package engine.benchmark;
+
+import com.messages.engine.concurrent.MeteredExecutor;
+import com.messages.engine.config.ExecutorProperties;
+import com.messages.engine.exception.PasswordHashingRejectedException;
+import com.messages.engine.security.OffloadedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login storm: 48 request threads check BCrypt passwords back to back while 4 request threads serve chat
+ * traffic (a small CPU-bound task standing in for a REST call).
+ * <p>
+ * With {@code encoder=direct}, BCrypt runs on the request threads, as before, and the 48 hashing threads take
+ * the CPU from the chat threads. With {@code encoder=offloaded}, hashing runs on a pool sized to the
+ * processors; the login threads wait without using CPU. {@code login} gives the login rate and latency,
+ * {@code chat} the latency of the chat traffic during the storm.
+ * </p>
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhArgs="LoginStormBenchmark"}.
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class LoginStormBenchmark {
+
+    @Param({"direct", "offloaded"})
+    private String encoder;
+
+    @Param({"10"})
+    private int strength;
+
+    private PasswordEncoder passwordEncoder;
+    private MeteredExecutor hashingExecutor;
+    private String hash;
+    private final byte[] chatPayload = "{\"conversationId\":42,\"content\":\"hello\"}".repeat(64)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        if ("offloaded".equals(encoder)) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            hashingExecutor = new MeteredExecutor("password.hashing",
+                    new ExecutorProperties(false, threads, threads, 256, Duration.ofSeconds(60))
+                            .createExecutorService("password-hashing-"),
+                    new SimpleMeterRegistry());
+            passwordEncoder = new OffloadedPasswordEncoder(bcrypt, strength, hashingExecutor, Duration.ofSeconds(2));
+        } else {
+            passwordEncoder = bcrypt;
+        }
+        hash = bcrypt.encode("secret");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (hashingExecutor != null) {
+            hashingExecutor.close();
+        }
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(48)
+    public boolean login() {
+        try {
+            return passwordEncoder.matches("secret", hash);
+        } catch (PasswordHashingRejectedException ex) {
+            // Shed load: the client gets a 503 and retries.
+            return false;
+        }
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(4)
+    public void chat(Blackhole blackhole) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < 16; i++) {
+            digest.update(chatPayload);
+        }
+        blackhole.consume(digest.digest());
+    }
+
+}
@@ -0,0 +1,108 @@
+package engine.benchmark;
+
+import com.messages.engine.config.ExecutorProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the application executors in platform and virtual-thread mode.
+ * <p>
+ * 256 concurrent clients each submit one request at a time to an executor built like the STOMP channel
+ * and processing executors ({@code platform}: the default 16 to 64 thread pool with a 10000 task queue;
+ * {@code virtual}: one virtual thread per task). A request burns a little CPU, then holds one of
+ * {@code connections} pooled "database connections" for {@code ioMillis} of blocking I/O, as the JPA work
+ * does with the Hikari pool. With {@code pinning}, the blocking happens inside a {@code synchronized} block.
+ * </p>
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhArgs="ThreadingModeBenchmark"}: {@code thrpt} gives requests per second,
+ * {@code sample} the latency percentiles (p0.99) seen by a client.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Threads(256)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"false", "true"})
+    private boolean pinning;
+
+    @Param({"2"})
+    private int ioMillis;
+
+    @Param({"100"})
+    private int connections;
+
+    private ExecutorService executor;
+    private Semaphore pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new ExecutorProperties("virtual".equals(mode), 16, 64, 10_000, Duration.ofSeconds(60))
+                .createExecutorService("load-");
+        pool = new Semaphore(connections);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void request() {
+        CompletableFuture.runAsync(this::handle, executor).join();
+    }
+
+    private void handle() {
+        Blackhole.consumeCPU(2_000);
+        pool.acquireUninterruptibly();
+        try {
+            if (pinning) {
+                // JDBC drivers synchronizing around socket reads block like this; on Java 21 the virtual
+                // thread stays pinned to its carrier for the whole wait.
+                synchronized (new Object()) {
+                    sleep();
+                }
+            } else {
+                sleep();
+            }
+        } finally {
+            pool.release();
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(ioMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+package engine.concurrent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.concurrent.KeyedOrderedExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class KeyedOrderedExecutorTest {
+
+    private final ExecutorService delegate = Executors.newFixedThreadPool(8);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    void runsTasksOfOneKeyInOrderAndKeysInParallel() throws Exception {
+        KeyedOrderedExecutor<Long> executor = new KeyedOrderedExecutor<>("test", delegate, 100_000, meterRegistry);
+        int keys = 16;
+        int perKey = 5_000;
+        Map<Long, List<Integer>> seen = new ConcurrentHashMap<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        List<Thread> producers = new ArrayList<>();
+        for (long key = 0; key < keys; key++) {
+            long k = key;
+            seen.put(k, new ArrayList<>());
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < perKey; i++) {
+                    int sequence = i;
+                    executor.execute(k, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        // Unsynchronized on purpose: one task per key at a time.
+                        seen.get(k).add(sequence);
+                        running.decrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS), "All tasks should run");
+        seen.forEach((key, sequences) -> {
+            assertEquals(perKey, sequences.size());
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, sequences.get(i), "Tasks of key " + key + " must run in submission order");
+            }
+        });
+        assertTrue(maxRunning.get() > 1, "Different keys should run in parallel");
+        // The last drain releases its key right after running its last task.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getActiveKeys() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, executor.getActiveKeys(), "Drained keys should be removed");
+    }
+
+    @Test
+    void boundsPendingTasksPerKey() throws Exception {
+        KeyedOrderedExecutor<Long> executor = new KeyedOrderedExecutor<>("test", delegate, 4, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(1L, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 4; i++) {
+            executor.execute(1L, () -> { });
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(1L, () -> { }));
+        CountDownLatch other = new CountDownLatch(1);
+        executor.execute(2L, other::countDown);
+        assertTrue(other.await(5, TimeUnit.SECONDS), "A full key must not block other keys");
+        assertEquals(1.0, meterRegistry.get("chat.executor.key.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("chat.executor.key.hot").counter().count());
+
+        release.countDown();
+        CountDownLatch last = new CountDownLatch(1);
+        while (true) {
+            try {
+                executor.execute(1L, last::countDown);
+                break;
+            } catch (RejectedExecutionException ex) {
+                Thread.onSpinWait();
+            }
+        }
+        assertTrue(last.await(5, TimeUnit.SECONDS));
+    }
+
+}
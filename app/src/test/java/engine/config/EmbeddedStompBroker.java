@@ -0,0 +1,159 @@
+package engine.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.BufferingStompDecoder;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal STOMP 1.2 broker over TCP, used as a local stand-in for the external broker
+ * (RabbitMQ with the STOMP plugin) that the broker relay connects to.
+ * <p>
+ * Supports CONNECT/STOMP, SUBSCRIBE, UNSUBSCRIBE, SEND and DISCONNECT with exact destination
+ * matching and no heartbeats, which is all the relay needs to fan messages out across nodes.
+ * </p>
+ */
+class EmbeddedStompBroker implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final StompEncoder encoder = new StompEncoder();
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private record Subscription(Connection connection, String id) { }
+
+    EmbeddedStompBroker() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "embedded-stomp-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    int subscriptionCount(String destination) {
+        return subscriptions.getOrDefault(destination, Set.of()).size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread reader = new Thread(new Connection(socket)::run, "embedded-stomp-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException ex) {
+                return;
+            }
+        }
+    }
+
+    private final class Connection {
+
+        private final Socket socket;
+        private final OutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+        }
+
+        private void run() {
+            BufferingStompDecoder decoder = new BufferingStompDecoder(new StompDecoder(), 64 * 1024);
+            byte[] buffer = new byte[8192];
+            try (InputStream in = socket.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    for (Message<byte[]> frame : decoder.decode(ByteBuffer.wrap(buffer, 0, read))) {
+                        handle(frame);
+                    }
+                }
+            } catch (IOException ex) {
+                // Connection closed.
+            } finally {
+                subscriptions.values().forEach(subs -> subs.removeIf(sub -> sub.connection() == this));
+                connections.remove(socket);
+            }
+        }
+
+        private void handle(Message<byte[]> frame) throws IOException {
+            StompHeaderAccessor accessor = StompHeaderAccessor.wrap(frame);
+            StompCommand command = accessor.getCommand();
+            if (command == null) {
+                return;
+            }
+            switch (command) {
+                case CONNECT, STOMP -> {
+                    StompHeaderAccessor connected = StompHeaderAccessor.create(StompCommand.CONNECTED);
+                    connected.setVersion("1.2");
+                    connected.setHeartbeat(0, 0);
+                    write(connected, new byte[0]);
+                }
+                case SUBSCRIBE -> subscriptions
+                        .computeIfAbsent(accessor.getDestination(), key -> ConcurrentHashMap.newKeySet())
+                        .add(new Subscription(this, accessor.getSubscriptionId()));
+                case UNSUBSCRIBE -> subscriptions.values().forEach(subs -> subs.removeIf(sub ->
+                        sub.connection() == this && sub.id().equals(accessor.getSubscriptionId())));
+                case SEND -> {
+                    for (Subscription subscription : subscriptions.getOrDefault(accessor.getDestination(), Set.of())) {
+                        StompHeaderAccessor message = StompHeaderAccessor.create(StompCommand.MESSAGE);
+                        message.setDestination(accessor.getDestination());
+                        message.setSubscriptionId(subscription.id());
+                        message.setMessageId(String.valueOf(messageIds.incrementAndGet()));
+                        if (accessor.getContentType() != null) {
+                            message.setContentType(accessor.getContentType());
+                        }
+                        subscription.connection().write(message, frame.getPayload());
+                    }
+                }
+                case DISCONNECT -> {
+                    if (accessor.getReceipt() != null) {
+                        StompHeaderAccessor receipt = StompHeaderAccessor.create(StompCommand.RECEIPT);
+                        receipt.setReceiptId(accessor.getReceipt());
+                        write(receipt, new byte[0]);
+                    }
+                    socket.close();
+                }
+                default -> {
+                    // Not needed by the relay.
+                }
+            }
+        }
+
+        private void write(StompHeaderAccessor accessor, byte[] payload) throws IOException {
+            byte[] bytes = encoder.encode(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+            synchronized (this) {
+                out.write(bytes);
+                out.flush();
+            }
+        }
+    }
+
+}
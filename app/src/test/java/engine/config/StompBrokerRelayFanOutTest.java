@@ -0,0 +1,140 @@
+package engine.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.config.WebSocketBrokerProperties;
+import com.messages.engine.config.WebSocketConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Two broker relays ("nodes") connected to one embedded STOMP broker: a message published on
+ * node A must reach the subscribers connected to both nodes.
+ */
+class StompBrokerRelayFanOutTest {
+
+    private static final String DESTINATION = WebSocketConfig.conversationTopic(7L);
+
+    private EmbeddedStompBroker broker;
+    private final List<Node> nodes = new ArrayList<>();
+
+    private static final class Node {
+        private final StompBrokerRelayMessageHandler relay;
+        private final ConnectionProvider connections;
+        private final BlockingQueue<Message<?>> outbound = new LinkedBlockingQueue<>();
+
+        private Node(WebSocketBrokerProperties.Relay settings) {
+            connections = WebSocketConfig.relayConnectionProvider(settings.pool());
+            relay = new StompBrokerRelayMessageHandler(new ExecutorSubscribableChannel(),
+                    (message, timeout) -> outbound.add(message),
+                    new ExecutorSubscribableChannel(), List.of("/topic"));
+            relay.setTcpClient(WebSocketConfig.relayTcpClient(settings, connections));
+            relay.setSystemHeartbeatSendInterval(settings.systemHeartbeatSendInterval());
+            relay.setSystemHeartbeatReceiveInterval(settings.systemHeartbeatReceiveInterval());
+            relay.start();
+        }
+
+        private Message<?> awaitFrame(StompCommand command, String sessionId) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                Message<?> message = outbound.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null) {
+                    StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+                    if (accessor.getCommand() == command && sessionId.equals(accessor.getSessionId())) {
+                        return message;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private void connectAndSubscribe(String sessionId) throws InterruptedException {
+            StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+            connect.setSessionId(sessionId);
+            connect.setAcceptVersion("1.2");
+            relay.handleMessage(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+            assertNotNull(awaitFrame(StompCommand.CONNECTED, sessionId), "Relay should connect session " + sessionId);
+
+            StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+            subscribe.setSessionId(sessionId);
+            subscribe.setSubscriptionId("sub-0");
+            subscribe.setDestination(DESTINATION);
+            relay.handleMessage(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+        }
+
+        private void stop() {
+            relay.stop();
+            connections.dispose();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        broker = new EmbeddedStompBroker();
+        WebSocketBrokerProperties.Relay settings = new WebSocketBrokerProperties.Relay("127.0.0.1", broker.port(),
+                null, "guest", "guest", "guest", "guest", 0, 0,
+                new WebSocketBrokerProperties.Pool(16, Duration.ofSeconds(5), -1));
+        nodes.add(new Node(settings));
+        nodes.add(new Node(settings));
+        for (Node node : nodes) {
+            awaitTrue(node.relay::isBrokerAvailable, "Relay system connection should be established");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodes.forEach(Node::stop);
+        broker.close();
+    }
+
+    @Test
+    void messagePublishedOnOneNodeReachesSubscribersOnAllNodes() throws Exception {
+        Node nodeA = nodes.get(0);
+        Node nodeB = nodes.get(1);
+        nodeA.connectAndSubscribe("a-1");
+        nodeB.connectAndSubscribe("b-1");
+        awaitTrue(() -> broker.subscriptionCount(DESTINATION) == 2, "Both subscriptions should reach the broker");
+
+        byte[] payload = "{\"type\":\"CHAT\",\"content\":\"hi\",\"userId\":1,\"conversationId\":7}"
+                .getBytes(StandardCharsets.UTF_8);
+        SimpMessageHeaderAccessor send = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        send.setDestination(DESTINATION);
+        nodeA.relay.handleMessage(MessageBuilder.createMessage(payload, send.getMessageHeaders()));
+
+        Message<?> onA = nodeA.awaitFrame(StompCommand.MESSAGE, "a-1");
+        Message<?> onB = nodeB.awaitFrame(StompCommand.MESSAGE, "b-1");
+        assertNotNull(onA, "Subscriber on the publishing node should receive the message");
+        assertNotNull(onB, "Subscriber on the other node should receive the message");
+        assertArrayEquals(payload, (byte[]) onB.getPayload());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean(), message);
+    }
+
+}
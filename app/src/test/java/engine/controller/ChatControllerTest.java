@@ -0,0 +1,71 @@
+package engine.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.controller.ChatController;
+import com.messages.engine.dto.ChatError;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.exception.RateLimitExceededException;
+import com.messages.engine.ratelimit.RateLimiter;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.ConversationMembership;
+import com.messages.engine.service.ChatMessageProducer;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.concurrent.TimeUnit;
+
+class ChatControllerTest {
+
+    private final ChatMessageProducer producer = mock(ChatMessageProducer.class);
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final ConversationMembership membership = mock(ConversationMembership.class);
+    private final ChatController controller = new ChatController(producer, rateLimiter, membership);
+    private final ChatUserPrincipal alice = new ChatUserPrincipal(42L, "alice");
+
+    @Test
+    void rejectsOutsidersBeforeChargingTheConversation() {
+        when(membership.isParticipant(42L, 7L)).thenReturn(false);
+
+        AccessDeniedException denied = assertThrows(AccessDeniedException.class,
+                () -> controller.sendMessage(chat(7L), alice));
+        verify(rateLimiter, never()).tryAcquireConversation(anyLong());
+        verify(producer, never()).send(any());
+
+        ChatError error = controller.handleRejection(denied);
+        assertEquals(denied.getMessage(), error.message());
+        assertNull(error.retryAfterSeconds());
+
+        controller.sendMessage(new ChatMessage(null, ChatMessageType.JOIN, null, null, 7L), alice);
+        verify(producer).send(new ChatMessage(null, ChatMessageType.JOIN, null, 42L, 7L));
+        verify(rateLimiter, never()).tryAcquireConversation(anyLong());
+    }
+
+    @Test
+    void reportsTheRetryDelayOfConversationsOverTheirLimit() {
+        when(membership.isParticipant(42L, 7L)).thenReturn(true);
+        when(rateLimiter.tryAcquireConversation(7L)).thenReturn(0L, TimeUnit.MILLISECONDS.toNanos(1_500));
+
+        controller.sendMessage(chat(7L), alice);
+        verify(producer).send(new ChatMessage(null, ChatMessageType.CHAT, "hi", 42L, 7L));
+
+        RateLimitExceededException limited = assertThrows(RateLimitExceededException.class,
+                () -> controller.sendMessage(chat(7L), alice));
+        assertEquals(2L, controller.handleRejection(limited).retryAfterSeconds());
+        verify(producer).send(any());
+    }
+
+    private static ChatMessage chat(Long conversationId) {
+        return new ChatMessage(99L, ChatMessageType.CHAT, "hi", 1L, conversationId);
+    }
+
+}
@@ -0,0 +1,63 @@
+package engine.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.controller.ChatMessageProcessingController;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageResult;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.ratelimit.RateLimiter;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.ConversationMembership;
+import com.messages.engine.service.ChatMessageHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+class ChatMessageProcessingControllerTest {
+
+    private final ChatMessageHandler handler = mock(ChatMessageHandler.class);
+    private final RateLimiter rateLimiter = mock(RateLimiter.class);
+    private final ConversationMembership membership = mock(ConversationMembership.class);
+    private final ChatMessageProcessingController controller =
+            new ChatMessageProcessingController(handler, rateLimiter, membership);
+    private final Authentication alice = UsernamePasswordAuthenticationToken.authenticated(
+            new ChatUserPrincipal(42L, "alice"), null, List.of());
+
+    @Test
+    void sendsAsTheAuthenticatedUserWhateverTheBodySays() {
+        ChatMessage claimed = new ChatMessage(99L, ChatMessageType.CHAT, "hi", 5L, 7L);
+        when(membership.isParticipant(5L, 7L)).thenReturn(true);
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.processChatMessage(claimed, alice).join().getStatusCode());
+        verify(membership).isParticipant(42L, 7L);
+        verify(rateLimiter, never()).tryAcquireConversation(anyLong());
+        verify(handler, never()).handleChatMessage(any());
+
+        ChatMessage sent = new ChatMessage(null, ChatMessageType.CHAT, "hi", 42L, 7L);
+        when(membership.isParticipant(42L, 7L)).thenReturn(true);
+        when(handler.handleChatMessage(sent))
+                .thenReturn(CompletableFuture.completedFuture(new ChatMessageResult(sent, "Message saved")));
+        assertEquals(HttpStatus.OK, controller.processChatMessage(claimed, alice).join().getStatusCode());
+        verify(handler).handleChatMessage(sent);
+    }
+
+    @Test
+    void rejectsRequestsWithoutAChatUser() {
+        ChatMessage join = new ChatMessage(null, ChatMessageType.JOIN, null, 5L, 7L);
+
+        assertEquals(HttpStatus.FORBIDDEN, controller.processChatMessage(join, null).join().getStatusCode());
+        verify(handler, never()).handleChatMessage(any());
+    }
+
+}
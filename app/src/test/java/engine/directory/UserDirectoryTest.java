@@ -0,0 +1,134 @@
+package engine.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.UserDirectoryProperties;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserEntry;
+import com.messages.engine.directory.UserInvalidation;
+import com.messages.engine.directory.UserInvalidationTransport;
+import com.messages.engine.model.User;
+import com.messages.engine.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+class UserDirectoryTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RecordingTransport transport = new RecordingTransport();
+    private final UserDirectory directory = new UserDirectory(userRepository, transport,
+            new UserDirectoryProperties(100, Duration.ofMinutes(5), true), new SimpleMeterRegistry());
+
+    @Test
+    void coalescesConcurrentMissesAndCachesByIdAndName() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(user(1L, "alice"));
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<UserEntry>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> directory.findById(1L)));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            // Let the other callers reach the cache while the first one is still loading.
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Optional<UserEntry>> result : results) {
+                assertEquals("alice", result.get(5, TimeUnit.SECONDS).orElseThrow().userName());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertEquals(1L, directory.findByUserName("alice").orElseThrow().id());
+        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, times(0)).findByUserName("alice");
+    }
+
+    @Test
+    void invalidatesLocallyAndOnOtherNodes() {
+        User alice = user(1L, "alice");
+        when(userRepository.findByUserName("alice")).thenReturn(Optional.of(alice));
+        assertEquals(1L, directory.findByUserName("alice").orElseThrow().id());
+
+        // Renamed on this node: both names are evicted and the change is broadcast.
+        alice.setUserName("alicia");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(alice));
+        when(userRepository.findByUserName("alice")).thenReturn(Optional.empty());
+        directory.invalidate(1L, "alice", "alicia");
+
+        assertEquals(List.of(new UserInvalidation(1L, Set.of("alice", "alicia"))), transport.published);
+        assertTrue(directory.findByUserName("alice").isEmpty());
+        assertEquals("alicia", directory.findById(1L).orElseThrow().userName());
+
+        // Changed on another node, which knew the user by id only: the cached name is evicted too.
+        alice.setTwoFactorEnabled(true);
+        when(userRepository.findByUserName("alicia")).thenReturn(Optional.of(alice));
+        transport.receive(new UserInvalidation(1L, Set.of()));
+
+        assertTrue(directory.findByUserName("alicia").orElseThrow().twoFactorEnabled());
+        verify(userRepository, times(2)).findByUserName("alice");
+        verify(userRepository, times(1)).findByUserName("alicia");
+    }
+
+    @Test
+    void doesNotCacheUnknownUsers() {
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertTrue(directory.findById(2L).isEmpty());
+        when(userRepository.findById(2L)).thenReturn(Optional.of(user(2L, "bob")));
+
+        assertEquals("bob", directory.findById(2L).orElseThrow().userName());
+    }
+
+    private static User user(Long id, String name) {
+        User user = new User(name, name, name + "@example.com", "hash");
+        user.setId(id);
+        return user;
+    }
+
+    /** Transport recording the published invalidations and delivering received ones. */
+    private static final class RecordingTransport implements UserInvalidationTransport {
+
+        private final List<UserInvalidation> published = new CopyOnWriteArrayList<>();
+        private final List<Consumer<UserInvalidation>> handlers = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void publish(UserInvalidation invalidation) {
+            published.add(invalidation);
+        }
+
+        @Override
+        public void subscribe(Consumer<UserInvalidation> handler) {
+            handlers.add(handler);
+        }
+
+        void receive(UserInvalidation invalidation) {
+            handlers.forEach(handler -> handler.accept(invalidation));
+        }
+    }
+
+}
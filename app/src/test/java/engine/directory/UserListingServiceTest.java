@@ -0,0 +1,83 @@
+package engine.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.messages.engine.config.UserListingProperties;
+import com.messages.engine.directory.UserListingService;
+import com.messages.engine.dto.UserPage;
+import com.messages.engine.dto.UserSummary;
+import com.messages.engine.exception.InvalidRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+class UserListingServiceTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+    private final UserListingService service = new UserListingService(jdbcTemplate, new UserListingProperties(2, 3));
+
+    UserListingServiceTest() {
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, login VARCHAR(255), name VARCHAR(255), "
+                + "email VARCHAR(255), password VARCHAR(255), created_at TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE users_version (id SMALLINT PRIMARY KEY, version BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO users_version VALUES (1, 0)");
+        for (long id : new long[] {5, 1, 9, 3, 7}) {
+            jdbcTemplate.update("INSERT INTO users VALUES (?, ?, ?, ?, 'x', CURRENT_TIMESTAMP)",
+                    id, "login" + id, "user" + id, "u" + id + "@example.com");
+        }
+    }
+
+    @AfterEach
+    void shutDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void pagesThroughTheUsersInIdOrderWithTheRequestedFields() {
+        UserPage first = service.page(service.query(null, null, "id,name"));
+        assertEquals(List.of(1L, 3L), first.users().stream().map(UserSummary::id).toList());
+        assertEquals(3L, first.nextCursor());
+        assertEquals("user1", first.users().getFirst().name());
+        assertNull(first.users().getFirst().email(), "Fields not requested are left out");
+
+        UserPage second = service.page(service.query(first.nextCursor(), 10, "name"));
+        assertEquals(List.of("user5", "user7", "user9"), second.users().stream().map(UserSummary::name).toList());
+        assertNull(second.users().getFirst().id());
+        assertNull(second.nextCursor(), "Last page");
+
+        UserSummary full = service.page(service.query(8L, null, null)).users().getFirst();
+        assertEquals(new UserSummary(9L, "login9", "user9", "u9@example.com", full.createdAt()), full);
+
+        assertThrows(InvalidRequestException.class, () -> service.query(null, null, "id,password"));
+    }
+
+    @Test
+    void etagChangesWithTheUsersAndThePage() {
+        UserListingService.PageQuery query = service.query(null, null, "id,name");
+        String etag = service.etag(query);
+
+        assertEquals(etag, service.etag(service.query(null, 2, "name, id")), "Same page, same version");
+        assertNotEquals(etag, service.etag(service.query(3L, null, "id,name")));
+        assertNotEquals(etag, service.etag(service.query(null, null, "id")));
+
+        assertEquals(etag, new UserListingService(jdbcTemplate, new UserListingProperties(2, 3)).etag(query),
+                "Tags are shared by all nodes");
+
+        // The bump done by the users_version_bump trigger in PostgreSQL.
+        jdbcTemplate.update("UPDATE users_version SET version = version + 1 WHERE id = 1");
+        assertNotEquals(etag, service.etag(query), "A user changed");
+    }
+
+}
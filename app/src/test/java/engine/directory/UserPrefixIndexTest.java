@@ -0,0 +1,65 @@
+package engine.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.messages.engine.directory.UserPrefixIndex;
+import com.messages.engine.dto.UserSearchResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class UserPrefixIndexTest {
+
+    private static final UserPrefixIndex.Entry ALICE = entry(1L, "asmith", "Alice Smith", "alice@example.com");
+    private static final UserPrefixIndex.Entry BOB = entry(2L, "bob", "Bob Stone", "bob@example.org");
+    private static final UserPrefixIndex.Entry CELINE = entry(3L, "celine", "Céline Dion", "cd@example.com");
+
+    @Test
+    void findsUsersByPrefixOfNameWordsLoginAndEmail() {
+        UserPrefixIndex index = UserPrefixIndex.of(List.of(ALICE, BOB, CELINE));
+
+        assertEquals(List.of(ALICE.user()), index.lookup("ali", 10), "Name and email");
+        assertEquals(List.of(ALICE.user(), BOB.user()), index.lookup("s", 10), "Last names, login");
+        assertEquals(List.of(BOB.user()), index.lookup("St", 10), "Case-insensitive");
+        assertEquals(List.of(CELINE.user()), index.lookup("celi", 10), "Accents removed");
+        assertEquals(List.of(CELINE.user()), index.lookup("cd@", 10), "Email");
+        assertEquals(List.of(ALICE.user()), index.lookup("alice smi", 10), "Full name");
+        assertEquals(1, index.lookup("s", 1).size());
+        assertEquals(List.of(), index.lookup("x", 10));
+        assertEquals(List.of(), index.lookup("  ", 10));
+    }
+
+    @Test
+    void incrementalChangesMatchARebuild() {
+        Random random = new Random(42);
+        List<UserPrefixIndex.Entry> current = new ArrayList<>();
+        UserPrefixIndex index = UserPrefixIndex.EMPTY;
+        for (int i = 0; i < 500; i++) {
+            long id = random.nextInt(50);
+            current.removeIf(entry -> entry.user().id() == id);
+            if (random.nextInt(4) == 0) {
+                index = index.without(id);
+            } else {
+                String name = "user" + random.nextInt(1000) + " family" + random.nextInt(20);
+                UserPrefixIndex.Entry entry = entry(id, "login" + id, name, "u" + id + "@example.com");
+                current.add(entry);
+                index = index.with(entry);
+            }
+        }
+
+        UserPrefixIndex rebuilt = UserPrefixIndex.of(current);
+        assertEquals(rebuilt.size(), index.size());
+        for (String prefix : List.of("u", "user1", "family", "family1", "login", "login4", "u7@")) {
+            assertEquals(rebuilt.lookup(prefix, 100), index.lookup(prefix, 100), prefix);
+        }
+        assertSame(index, index.without(1_000L), "Removing an unknown user keeps the index");
+    }
+
+    private static UserPrefixIndex.Entry entry(Long id, String login, String name, String email) {
+        return new UserPrefixIndex.Entry(new UserSearchResult(id, login, name), email);
+    }
+
+}
@@ -0,0 +1,122 @@
+package engine.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.UserDirectoryProperties;
+import com.messages.engine.config.UserSearchProperties;
+import com.messages.engine.directory.LocalUserInvalidationTransport;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.directory.UserSearchService;
+import com.messages.engine.dto.UserSearchResult;
+import com.messages.engine.model.User;
+import com.messages.engine.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+class UserSearchServiceTest {
+
+    private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserDirectory userDirectory = new UserDirectory(userRepository, new LocalUserInvalidationTransport(),
+            new UserDirectoryProperties(100, Duration.ofMinutes(5), false), new SimpleMeterRegistry());
+    private final UserSearchService service = new UserSearchService(userDirectory, new JdbcTemplate(database),
+            new UserSearchProperties(10, 50, false, 3), new SimpleMeterRegistry());
+
+    UserSearchServiceTest() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, login VARCHAR(255), name VARCHAR(255), "
+                + "email VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO users VALUES (1, 'alice', 'Alice', 'alice@example.com')");
+        jdbcTemplate.update("INSERT INTO users VALUES (2, 'bob', 'Bob', 'bob@example.com')");
+    }
+
+    @AfterEach
+    void shutDown() {
+        service.shutdown();
+        database.shutdown();
+    }
+
+    @Test
+    void reindexesChangedUsersOffTheInvalidatingThread() throws InterruptedException {
+        service.rebuild();
+        assertEquals(List.of(new UserSearchResult(1L, "alice", "Alice")), service.search("ali", null));
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(user(1L, "carol", "Carol"));
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> userDirectory.invalidate(1L, "Alice"),
+                "The invalidation does not wait for the reload");
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        awaitSearch("car", List.of(new UserSearchResult(1L, "carol", "Carol")));
+        assertEquals(List.of(), service.search("ali", null));
+
+        when(userRepository.findById(2L)).thenReturn(Optional.empty());
+        userDirectory.invalidate(2L, "Bob");
+        awaitSearch("bob", List.of());
+    }
+
+    @Test
+    void appliesTheLatestStateOfAUserChangedDuringItsReload() throws InterruptedException {
+        service.rebuild();
+        AtomicReference<User> current = new AtomicReference<>(user(1L, "carol", "Carol"));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findById(1L)).thenAnswer(invocation -> {
+            // The state read by the first reload, returned after the user changed again.
+            User state = current.get();
+            loading.countDown();
+            release.await();
+            return Optional.of(state);
+        });
+
+        userDirectory.invalidate(1L, "Alice");
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        current.set(user(1L, "dave", "Dave"));
+        userDirectory.invalidate(1L, "Carol");
+        release.countDown();
+
+        awaitSearch("dav", List.of(new UserSearchResult(1L, "dave", "Dave")));
+        assertEquals(List.of(), service.search("car", null));
+        assertEquals(List.of(), service.search("ali", null));
+    }
+
+    private void awaitSearch(String prefix, List<UserSearchResult> expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!expected.equals(service.search(prefix, null)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, service.search(prefix, null), prefix);
+    }
+
+    private static User user(Long id, String login, String name) {
+        User user = new User(login, name, login + "@example.com", "hash");
+        user.setId(id);
+        return user;
+    }
+
+}
@@ -0,0 +1,77 @@
+package engine.presence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.config.PresenceProperties;
+import com.messages.engine.dto.PresenceEvent;
+import com.messages.engine.dto.PresenceEventType;
+import com.messages.engine.presence.PresenceTracker;
+import com.messages.engine.presence.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+class PresenceTrackerTest {
+
+    private final PresenceTracker tracker = new PresenceTracker(new PresenceProperties(Duration.ofSeconds(30),
+            Duration.ofSeconds(1), 64, Duration.ofSeconds(2), Duration.ofSeconds(5), false));
+
+    @Test
+    void userIsOnlineWhileAnySessionIsSubscribed() {
+        long now = System.currentTimeMillis();
+        tracker.connect("a", 1L, now);
+        tracker.connect("b", 1L, now);
+        tracker.connect("c", 2L, now);
+
+        assertEquals(new PresenceEvent(PresenceEventType.ONLINE, 1L, 7L), tracker.subscribe("a", "sub-0", 7L));
+        assertNull(tracker.subscribe("b", "sub-0", 7L), "Second session of the same user is not a change");
+        assertEquals(new PresenceEvent(PresenceEventType.ONLINE, 2L, 7L), tracker.subscribe("c", "sub-0", 7L));
+        assertArrayEquals(new long[]{1L, 2L}, tracker.members(7L));
+
+        assertTrue(tracker.disconnect("a").isEmpty(), "User 1 is still present through session b");
+        assertEquals(new PresenceEvent(PresenceEventType.OFFLINE, 1L, 7L), tracker.unsubscribe("b", "sub-0"));
+        assertArrayEquals(new long[]{2L}, tracker.members(7L));
+    }
+
+    @Test
+    void silentSessionsExpireAndActiveOnesDoNot() {
+        long now = System.currentTimeMillis();
+        tracker.connect("silent", 1L, now);
+        tracker.connect("active", 2L, now);
+        tracker.subscribe("silent", "sub-0", 7L);
+        tracker.subscribe("active", "sub-0", 7L);
+
+        tracker.touch("active", now + 20_000);
+        assertTrue(tracker.expire(now + 10_000).isEmpty());
+
+        List<PresenceEvent> events = tracker.expire(now + 32_000);
+        assertEquals(List.of(new PresenceEvent(PresenceEventType.OFFLINE, 1L, 7L)), events);
+        assertEquals(1, tracker.sessionCount());
+        assertArrayEquals(new long[]{2L}, tracker.members(7L));
+    }
+
+    @Test
+    void timingWheelExpiresKeysBeyondOneRotation() {
+        long start = 1_000_000L;
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, start);
+        wheel.schedule("near", start + 250);
+        wheel.schedule("far", start + 5_000);
+        wheel.schedule("cancelled", start + 250);
+        wheel.cancel("cancelled");
+
+        List<String> expired = new ArrayList<>();
+        for (long now = start; now <= start + 6_000; now += 100) {
+            long tick = now;
+            wheel.advance(now, key -> expired.add(key + "@" + (tick - start)));
+        }
+
+        assertEquals(List.of("near@300", "far@5000"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+}
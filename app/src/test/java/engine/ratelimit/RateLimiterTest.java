@@ -0,0 +1,115 @@
+package engine.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.config.RateLimitProperties;
+import com.messages.engine.ratelimit.EndpointClass;
+import com.messages.engine.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void admitsABurstThenTheRefillRate() {
+        RateLimiter limiter = limiter(true);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now), "Request " + i + " of the burst");
+        }
+        long wait = limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now);
+        assertEquals(SECOND / 2, wait, "One token refills every half second");
+        assertEquals(1, RateLimiter.retryAfterSeconds(wait));
+        assertEquals(0, limiter.tryAcquire(EndpointClass.MESSAGES, 7L, now), "Users have their own buckets");
+        assertEquals(0, limiter.tryAcquire(EndpointClass.TYPING, 42L, now), "Classes have their own buckets");
+
+        assertEquals(0, limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now + SECOND / 2));
+        assertTrue(limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now + SECOND / 2) > 0);
+        // Idle for long enough, the bucket is full again but no fuller.
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now + 60 * SECOND));
+        }
+        assertTrue(limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now + 60 * SECOND) > 0);
+
+        assertEquals(3.0, meterRegistry.get("chat.ratelimit.rejected").tag("limit", "messages").counter().count());
+        assertEquals(12.0, meterRegistry.get("chat.ratelimit.allowed").tag("limit", "messages").counter().count());
+    }
+
+    @Test
+    void limitsConversationsAcrossSendersAndIgnoresUnconfiguredClasses() {
+        RateLimiter limiter = limiter(true);
+        long now = 1_000 * SECOND;
+
+        assertEquals(0, limiter.tryAcquireConversation(9L, now));
+        assertEquals(0, limiter.tryAcquireConversation(9L, now));
+        assertTrue(limiter.tryAcquireConversation(9L, now) > 0);
+        assertEquals(0, limiter.tryAcquireConversation(10L, now));
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0, limiter.tryAcquire(EndpointClass.API, 42L, now), "API is not limited");
+        }
+        assertEquals(0, limiter.tryAcquireConversation(null, now));
+
+        RateLimiter disabled = limiter(false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, disabled.tryAcquire(EndpointClass.MESSAGES, 42L, now));
+            assertEquals(0, disabled.tryAcquireConversation(9L, now));
+        }
+        assertEquals(0, disabled.trackedKeys());
+    }
+
+    @Test
+    void admitsExactlyTheCapacityUnderContention() throws Exception {
+        RateLimiter limiter = new RateLimiter(new RateLimitProperties(true,
+                Map.of(EndpointClass.MESSAGES, new RateLimitProperties.Limit(1_000, 0.001)), null,
+                1_000, Duration.ofMinutes(10)), meterRegistry);
+        long now = 1_000 * SECOND;
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (limiter.tryAcquire(EndpointClass.MESSAGES, 42L, now) == 0) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1_000, admitted.get(), "4000 concurrent requests on a 1000-token bucket");
+        assertEquals(1, limiter.trackedKeys());
+    }
+
+    private RateLimiter limiter(boolean enabled) {
+        return new RateLimiter(new RateLimitProperties(enabled,
+                Map.of(EndpointClass.MESSAGES, new RateLimitProperties.Limit(5, 2),
+                        EndpointClass.TYPING, new RateLimitProperties.Limit(1, 1)),
+                new RateLimitProperties.Limit(2, 1), 1_000, Duration.ofMinutes(10)), meterRegistry);
+    }
+
+}
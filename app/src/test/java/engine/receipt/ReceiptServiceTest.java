@@ -0,0 +1,198 @@
+package engine.receipt;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.PresenceProperties;
+import com.messages.engine.config.ReceiptProperties;
+import com.messages.engine.config.UserDirectoryProperties;
+import com.messages.engine.directory.LocalUserInvalidationTransport;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.dto.MessageReceiptsResponse;
+import com.messages.engine.dto.ReceiptBatch;
+import com.messages.engine.dto.ReceiptRequest;
+import com.messages.engine.dto.ReceiptType;
+import com.messages.engine.dto.ReceiptUpdate;
+import com.messages.engine.model.MessageReceipt;
+import com.messages.engine.model.User;
+import com.messages.engine.presence.PresenceTracker;
+import com.messages.engine.receipt.ReceiptService;
+import com.messages.engine.repository.ConversationRepository;
+import com.messages.engine.repository.MessageReceiptRepository;
+import com.messages.engine.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class ReceiptServiceTest {
+
+    private final PresenceTracker presenceTracker = new PresenceTracker(new PresenceProperties(Duration.ofSeconds(30),
+            Duration.ofSeconds(1), 64, Duration.ofSeconds(2), Duration.ofSeconds(5), false));
+    private final MessageReceiptRepository receiptRepository = mock(MessageReceiptRepository.class);
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final UserDirectory userDirectory = new UserDirectory(userRepository, new LocalUserInvalidationTransport(),
+            new UserDirectoryProperties(100, Duration.ofMinutes(5), false), new SimpleMeterRegistry());
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final ReceiptService service = new ReceiptService(new ReceiptProperties(Duration.ofHours(1), 10_000, 500),
+            presenceTracker, receiptRepository, conversationRepository, userDirectory, jdbcTemplate,
+            messagingTemplate, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aggregatesReceiptsIntoOneWatermarkPerUserAndFrame() {
+        latestMessages(Map.of(7L, 1000L));
+        join("a", 1L, 7L);
+        join("b", 2L, 7L);
+        for (long messageId = 100; messageId <= 150; messageId++) {
+            service.record(1L, new ReceiptRequest(7L, messageId, ReceiptType.READ));
+        }
+        service.record(2L, new ReceiptRequest(7L, 120L, ReceiptType.DELIVERED));
+        service.record(1L, new ReceiptRequest(7L, 140L, ReceiptType.DELIVERED));
+        service.record(3L, new ReceiptRequest(7L, 999L, ReceiptType.READ));
+
+        service.flush();
+
+        ArgumentCaptor<Collection<Object[]>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), eq(500),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(2, rows.getValue().size(), "One upsert per user; user 3 is not in the conversation");
+        ArgumentCaptor<ReceiptBatch> batch = ArgumentCaptor.forClass(ReceiptBatch.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/conversations.7.receipts"), batch.capture());
+        assertEquals(List.of(new ReceiptUpdate(1L, 150L, 150L), new ReceiptUpdate(2L, 120L, 0L)),
+                batch.getValue().receipts().stream()
+                        .sorted((x, y) -> Long.compare(x.userId(), y.userId()))
+                        .toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void capsWatermarksAtTheLatestMessageOfTheConversation() {
+        latestMessages(Map.of(7L, 300L));
+        join("a", 1L, 7L);
+        join("b", 2L, 8L);
+        service.record(1L, new ReceiptRequest(7L, Long.MAX_VALUE, ReceiptType.READ));
+        service.record(2L, new ReceiptRequest(8L, 50L, ReceiptType.READ));
+
+        service.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture(), eq(500),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1, rows.getValue().size(), "Conversation 8 no longer exists");
+        assertArrayEquals(new Object[]{7L, 1L, 300L, 300L}, rows.getValue().getFirst());
+        verify(messagingTemplate).convertAndSend(eq("/topic/conversations.7.receipts"),
+                eq(new ReceiptBatch(7L, List.of(new ReceiptUpdate(1L, 300L, 300L)))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void retriesTransientFailuresAndDropsRowsThatCannotBeWritten() {
+        latestMessages(Map.of(7L, 1000L));
+        join("a", 1L, 7L);
+        join("b", 2L, 7L);
+        when(jdbcTemplate.batchUpdate(anyString(), any(List.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenThrow(new DataIntegrityViolationException("user 2 was deleted"));
+        when(jdbcTemplate.update(anyString(), eq(7L), eq(2L), anyLong(), anyLong()))
+                .thenThrow(new DataIntegrityViolationException("user 2 was deleted"));
+        service.record(1L, new ReceiptRequest(7L, 100L, ReceiptType.READ));
+        service.record(2L, new ReceiptRequest(7L, 100L, ReceiptType.READ));
+
+        service.flush();
+        verifyNoInteractions(messagingTemplate);
+
+        service.flush();
+        verify(jdbcTemplate).update(anyString(), eq(7L), eq(1L), eq(100L), eq(100L));
+        verify(messagingTemplate).convertAndSend(eq("/topic/conversations.7.receipts"),
+                eq(new ReceiptBatch(7L, List.of(new ReceiptUpdate(1L, 100L, 100L)))));
+
+        service.flush();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), any(List.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, times(1)).update(anyString(), eq(7L), eq(2L), anyLong(), anyLong());
+    }
+
+    @Test
+    void answersReadersFromStoredAndPendingWatermarks() {
+        User reader = mock(User.class);
+        when(reader.getId()).thenReturn(1L);
+        when(userRepository.findByUserName("alice")).thenReturn(Optional.of(reader));
+        when(conversationRepository.existsByIdAndParticipants_Id(7L, 1L)).thenReturn(true);
+        when(receiptRepository.findByConversationIdAndDeliveredUpToGreaterThanEqual(7L, 130L))
+                .thenReturn(List.of(receipt(2L, 140L, 100L), receipt(3L, 200L, 135L)));
+        join("a", 2L, 7L);
+        service.record(2L, new ReceiptRequest(7L, 130L, ReceiptType.READ));
+
+        MessageReceiptsResponse response = service.receipts("alice", 7L, 130L);
+
+        assertEquals(List.of(2L, 3L), response.deliveredTo());
+        assertEquals(List.of(2L, 3L), response.readBy());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void latestMessages(Map<Long, Long> latestMessageIds) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] arguments = invocation.getArguments();
+            for (Object conversationId : Arrays.copyOfRange(arguments, 2, arguments.length)) {
+                Long latest = latestMessageIds.get((Long) conversationId);
+                if (latest != null) {
+                    ResultSet row = mock(ResultSet.class);
+                    when(row.getLong(1)).thenReturn((Long) conversationId);
+                    when(row.getLong(2)).thenReturn(latest);
+                    handler.processRow(row);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    private void join(String sessionId, long userId, long conversationId) {
+        presenceTracker.connect(sessionId, userId, System.currentTimeMillis());
+        presenceTracker.subscribe(sessionId, "sub-0", conversationId);
+    }
+
+    private static MessageReceipt receipt(long userId, long deliveredUpTo, long readUpTo) {
+        MessageReceipt receipt = new MessageReceipt();
+        receipt.setConversationId(7L);
+        receipt.setUserId(userId);
+        receipt.setDeliveredUpTo(deliveredUpTo);
+        receipt.setReadUpTo(readUpTo);
+        return receipt;
+    }
+
+}
@@ -0,0 +1,67 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.repository.ConversationRepository;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.ConversationSubscriptionInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.List;
+
+class ConversationSubscriptionInterceptorTest {
+
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final ConversationSubscriptionInterceptor interceptor =
+            new ConversationSubscriptionInterceptor(conversationRepository);
+
+    @Test
+    void acceptsTheConversationTopicsOfParticipantsOnly() {
+        when(conversationRepository.existsByIdAndParticipants_Id(7L, 42L)).thenReturn(true);
+
+        for (String destination : List.of("/topic/conversations.7", "/topic/conversations.7.batch",
+                "/topic/conversations.7.presence", "/topic/conversations.7.bin", "/topic/conversations.7.receipts",
+                "/user/queue/errors")) {
+            Message<byte[]> subscribe = subscribe(destination);
+            assertSame(subscribe, interceptor.preSend(subscribe, channel), destination);
+        }
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(subscribe("/topic/conversations.8"), channel));
+        verify(conversationRepository).existsByIdAndParticipants_Id(8L, 42L);
+    }
+
+    @Test
+    void rejectsWildcardsAndUnknownTopics() {
+        when(conversationRepository.existsByIdAndParticipants_Id(anyLong(), anyLong())).thenReturn(true);
+
+        for (String destination : List.of("/topic/**", "/topic/*", "/topic/#", "/topic/conversations*",
+                "/topic/conversations.*", "/topic/conversations.#", "/topic/conversations.7.*",
+                "/topic/conversations.{id}", "/topic/conversations.?", "/topic/conversations.7.#",
+                "/user/queue/*", "/queue/errors-user1", "/topic", "/topic/", "/topic/conversations", "/topic/conversations.",
+                "/topic/conversations.7.unknown", "/topic/conversations.x", "/topic/other")) {
+            assertThrows(AccessDeniedException.class, () -> interceptor.preSend(subscribe(destination), channel),
+                    destination);
+        }
+    }
+
+    private static Message<byte[]> subscribe(String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId("s-1");
+        accessor.setDestination(destination);
+        accessor.setUser(new ChatUserPrincipal(42L, "alice"));
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+}
@@ -0,0 +1,121 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.repository.RevokedTokenRepository;
+import com.messages.engine.security.ActiveUserChecker;
+import com.messages.engine.security.ChatUserDetails;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.JwtAuthenticationFilter;
+import com.messages.engine.security.JwtTokenProvider;
+import com.messages.engine.security.TokenRevocationService;
+import com.messages.engine.service.SecretProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+
+class JwtAuthenticationFilterTest {
+
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final ActiveUserChecker activeUserChecker = mock(ActiveUserChecker.class);
+    private TokenRevocationService revocations;
+    private JwtTokenProvider tokenProvider;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        String privatePem = pem("PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        String publicPem = pem("PUBLIC KEY", keyPair.getPublic().getEncoded());
+        SecretProvider secrets = secretName -> "private".equals(secretName) ? privatePem : publicPem;
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        revocations = new TokenRevocationService(mock(RevokedTokenRepository.class), 1_000, 0.01,
+                Duration.ofSeconds(30), meterRegistry);
+        tokenProvider = new JwtTokenProvider(secrets, meterRegistry, revocations);
+        ReflectionTestUtils.setField(tokenProvider, "privateKeySecretName", "private");
+        ReflectionTestUtils.setField(tokenProvider, "publicKeySecretName", "public");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 60_000L);
+        ReflectionTestUtils.setField(tokenProvider, "verifiedCacheSize", 100L);
+        tokenProvider.init();
+        filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService, activeUserChecker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatesFromTheTokenClaimsWithoutLoadingTheUser() throws Exception {
+        ChatUserDetails alice = new ChatUserDetails(42L, "alice", "secret",
+                AuthorityUtils.createAuthorityList("USER", "ADMIN"));
+        String token = tokenProvider.generateToken(
+                UsernamePasswordAuthenticationToken.authenticated(alice, null, alice.getAuthorities()));
+        when(activeUserChecker.isActive(42L)).thenReturn(true);
+
+        Authentication authentication = filter(token);
+
+        assertEquals(new ChatUserPrincipal(42L, "alice"), authentication.getPrincipal());
+        assertEquals("alice", authentication.getName());
+        assertEquals(Set.of("USER", "ADMIN"), AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void rejectsTokensOfRemovedUsers() throws Exception {
+        String token = tokenProvider.generateToken(UsernamePasswordAuthenticationToken.authenticated(
+                new ChatUserPrincipal(7L, "bob"), null, AuthorityUtils.createAuthorityList("USER")));
+        when(activeUserChecker.isActive(7L)).thenReturn(false);
+
+        assertNull(filter(token));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void rejectsRevokedTokens() throws Exception {
+        String token = tokenProvider.generateToken(UsernamePasswordAuthenticationToken.authenticated(
+                new ChatUserPrincipal(7L, "bob"), null, AuthorityUtils.createAuthorityList("USER")));
+        when(activeUserChecker.isActive(7L)).thenReturn(true);
+        assertEquals("bob", filter(token).getName());
+        SecurityContextHolder.clearContext();
+
+        tokenProvider.revoke(tokenProvider.verify(token).orElseThrow());
+
+        assertNull(filter(token), "A revoked token must be rejected although its verification is cached");
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/conversations");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----";
+    }
+
+}
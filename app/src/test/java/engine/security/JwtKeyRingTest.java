@@ -0,0 +1,114 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.exception.KeyLoadingException;
+import com.messages.engine.security.JwtKeyRing;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.List;
+
+class JwtKeyRingTest {
+
+    @Test
+    void signsAndVerifiesWithEveryAlgorithm() throws Exception {
+        for (JWK key : List.of(new RSAKeyGenerator(2048).generate(), new ECKeyGenerator(Curve.P_256).generate(),
+                ed25519())) {
+            JWSAlgorithm algorithm = JwtKeyRing.algorithmOf(key);
+            JwtKeyRing ring = JwtKeyRing.of(new JWKSet(key), algorithm);
+
+            SignedJWT jwt = sign(ring, "alice");
+
+            assertEquals(algorithm, jwt.getHeader().getAlgorithm());
+            assertEquals(ring.signingKeyId(), jwt.getHeader().getKeyID());
+            assertTrue(ring.verify(SignedJWT.parse(jwt.serialize())), algorithm + " tokens should verify");
+            assertFalse(ring.publicKeys().getKeys().get(0).isPrivate(), "Only public keys may be published");
+        }
+    }
+
+    @Test
+    void verifiesTokensOfTheOldKeyDuringRotation() throws Exception {
+        JWK oldKey = new ECKeyGenerator(Curve.P_256).keyID("2026-09").generate();
+        JWK newKey = new ECKeyGenerator(Curve.P_256).keyID("2026-10").generate();
+        JwtKeyRing before = JwtKeyRing.of(new JWKSet(oldKey), JWSAlgorithm.ES256);
+        String oldToken = sign(before, "alice").serialize();
+
+        JwtKeyRing during = JwtKeyRing.of(new JWKSet(List.of(newKey, oldKey)), JWSAlgorithm.ES256);
+        JwtKeyRing after = JwtKeyRing.of(new JWKSet(newKey), JWSAlgorithm.ES256);
+
+        assertEquals("2026-10", during.signingKeyId());
+        assertTrue(during.verify(SignedJWT.parse(oldToken)), "Tokens of the old key verify while it is published");
+        assertTrue(during.verify(SignedJWT.parse(sign(during, "bob").serialize())));
+        assertFalse(after.verify(SignedJWT.parse(oldToken)), "Tokens of a dropped key must be rejected");
+    }
+
+    @Test
+    void rejectsTokensSignedWithAnotherKeyUnderAKnownKeyId() throws Exception {
+        JWK key = new ECKeyGenerator(Curve.P_256).keyID("k1").generate();
+        JWK impostor = new ECKeyGenerator(Curve.P_256).keyID("k1").generate();
+        JwtKeyRing ring = JwtKeyRing.of(new JWKSet(key), JWSAlgorithm.ES256);
+
+        SignedJWT forged = sign(JwtKeyRing.of(new JWKSet(impostor), JWSAlgorithm.ES256), "mallory");
+
+        assertFalse(ring.verify(SignedJWT.parse(forged.serialize())));
+    }
+
+    @Test
+    void identifiesKeysWithoutKeyIdByThumbprint() throws Exception {
+        JWK key = new RSAKeyGenerator(2048).generate();
+
+        JwtKeyRing ring = JwtKeyRing.of(new JWKSet(key), JWSAlgorithm.RS256);
+
+        assertEquals(key.computeThumbprint().toString(), ring.signingKeyId());
+        assertEquals(ring.signingKeyId(), ring.publicKeys().getKeys().get(0).getKeyID());
+    }
+
+    @Test
+    void requiresAPrivateKeyOfTheAlgorithm() throws Exception {
+        JWKSet keys = new JWKSet(new ECKeyGenerator(Curve.P_256).generate());
+
+        assertThrows(KeyLoadingException.class, () -> JwtKeyRing.of(keys, JWSAlgorithm.EdDSA));
+        assertThrows(KeyLoadingException.class, () -> JwtKeyRing.of(keys.toPublicJWKSet(), JWSAlgorithm.ES256));
+        assertNotEquals(JWSAlgorithm.ES256, JwtKeyRing.algorithmOf(new RSAKeyGenerator(2048).generate()));
+    }
+
+    private static SignedJWT sign(JwtKeyRing ring, String subject) throws Exception {
+        JWSHeader header = ring.header();
+        SignedJWT jwt = new SignedJWT(header, new JWTClaimsSet.Builder().subject(subject).build());
+        jwt.sign(ring.signer());
+        return jwt;
+    }
+
+    /**
+     * Generates an Ed25519 key with the JDK provider: Nimbus' own generator requires Tink.
+     */
+    private static OctetKeyPair ed25519() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        byte[] publicKey = keyPair.getPublic().getEncoded();
+        byte[] privateKey = keyPair.getPrivate().getEncoded();
+        // Raw keys are the last 32 bytes of the X.509 and PKCS#8 encodings.
+        return new OctetKeyPair.Builder(Curve.Ed25519,
+                Base64URL.encode(Arrays.copyOfRange(publicKey, publicKey.length - 32, publicKey.length)))
+                .d(Base64URL.encode(Arrays.copyOfRange(privateKey, privateKey.length - 32, privateKey.length)))
+                .build();
+    }
+
+}
@@ -0,0 +1,88 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.LoginAttemptProperties;
+import com.messages.engine.exception.PasswordHashingRejectedException;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.JwtTokenProvider;
+import com.messages.engine.security.JwtUsernamePasswordAuthenticationFilter;
+import com.messages.engine.security.LoginAttemptService;
+import com.messages.engine.security.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+class JwtUsernamePasswordAuthenticationFilterTest {
+
+    private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+    private final LoginAttemptService loginAttemptService = new LoginAttemptService(
+            new LoginAttemptProperties(2, 20, Duration.ofMinutes(15), Duration.ofMinutes(15), 1000),
+            new SimpleMeterRegistry());
+    private final JwtUsernamePasswordAuthenticationFilter filter = new JwtUsernamePasswordAuthenticationFilter(
+            mock(JwtTokenProvider.class), mock(RefreshTokenService.class), loginAttemptService);
+
+    JwtUsernamePasswordAuthenticationFilterTest() {
+        filter.setAuthenticationManager(authenticationManager);
+        filter.setFilterProcessesUrl("/api/auth/login");
+    }
+
+    @Test
+    void locksOutAUsernameAfterRepeatedFailures() throws Exception {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertEquals(401, login("alice").getStatus());
+        assertEquals(401, login("alice").getStatus());
+        assertTrue(loginAttemptService.isBlocked("alice", null));
+
+        assertEquals(429, login("alice").getStatus(), "Refused before the password is checked");
+        verify(authenticationManager, times(2)).authenticate(any());
+    }
+
+    @Test
+    void resetsTheUsernameOnSuccessAndIgnoresOverloadRejections() throws Exception {
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated(
+                new ChatUserPrincipal(42L, "bob"), null, List.of());
+        when(authenticationManager.authenticate(any()))
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenReturn(authenticated)
+                .thenThrow(new BadCredentialsException("Bad credentials"))
+                .thenThrow(new PasswordHashingRejectedException("Password hashing is overloaded"));
+
+        assertEquals(401, login("bob").getStatus());
+        assertEquals(200, login("bob").getStatus());
+        assertEquals(401, login("bob").getStatus());
+        assertFalse(loginAttemptService.isBlocked("bob", null), "The failure before the success was forgotten");
+
+        assertEquals(503, login("bob").getStatus());
+        assertFalse(loginAttemptService.isBlocked("bob", null), "Overload rejections are not failures");
+    }
+
+    private MockHttpServletResponse login(String username) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setServletPath("/api/auth/login");
+        request.setContent(("{\"username\": \"" + username + "\", \"password\": \"secret\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, mock(FilterChain.class));
+        return response;
+    }
+
+}
@@ -0,0 +1,120 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.config.LoginAttemptProperties;
+import com.messages.engine.security.LoginAttemptService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+class LoginAttemptServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void countsConcurrentFailuresExactly() throws Exception {
+        LoginAttemptService service = service(1_000, 1_000_000, 100_000);
+        long now = System.currentTimeMillis();
+
+        // 999 failures from 8 threads: one below the limit, so any lost update would go unnoticed only here.
+        runConcurrently(8, thread -> {
+            for (int i = thread; i < 999; i += 8) {
+                service.loginFailed("alice", "10.0.0." + thread, now);
+            }
+        });
+        assertFalse(service.isBlocked("alice", null, now));
+
+        service.loginFailed("alice", null, now);
+        assertTrue(service.isBlocked("alice", null, now));
+        assertEquals(1.0, meterRegistry.get("chat.login.lockouts").tag("scope", "user").counter().count());
+    }
+
+    @Test
+    void staysBoundedUnderCredentialStuffing() throws Exception {
+        LoginAttemptService service = service(5, 1_000_000, 1_000);
+        long now = System.currentTimeMillis();
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                service.loginFailed("user-" + thread + "-" + i, "10.0.0.1", now);
+                service.isBlocked("user-" + thread + "-" + i, "10.0.0.1", now);
+            }
+        });
+
+        assertTrue(service.trackedKeys() <= 1_000, "Tracked keys must stay bounded: " + service.trackedKeys());
+        assertEquals((double) service.trackedKeys(), meterRegistry.get("chat.login.attempts.tracked").gauge().value());
+    }
+
+    @Test
+    void locksClientAddressesTryingManyUsernames() {
+        LoginAttemptService service = service(5, 20, 100_000);
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < 20; i++) {
+            service.loginFailed("user-" + i, "10.0.0.1", now);
+        }
+
+        assertTrue(service.isBlocked("someone-else", "10.0.0.1", now));
+        assertFalse(service.isBlocked("someone-else", "10.0.0.2", now));
+        service.loginSucceeded("user-0");
+        assertTrue(service.isBlocked("user-0", "10.0.0.1", now), "A success must not unlock the address");
+    }
+
+    @Test
+    void countsFailuresInASlidingWindowAndUnlocksAfterTheLockTime() {
+        LoginAttemptService service = service(5, 1_000, 100_000);
+        long minute = Duration.ofMinutes(1).toMillis();
+        long now = System.currentTimeMillis();
+
+        // 4 failures, then 4 more 31 minutes later: the first ones have slid out of the 15 minute window.
+        for (int i = 0; i < 4; i++) {
+            service.loginFailed("bob", null, now);
+        }
+        for (int i = 0; i < 4; i++) {
+            service.loginFailed("bob", null, now + 31 * minute);
+        }
+        assertFalse(service.isBlocked("bob", null, now + 31 * minute));
+
+        service.loginFailed("bob", null, now + 32 * minute);
+        assertTrue(service.isBlocked("bob", null, now + 32 * minute));
+        assertFalse(service.isBlocked("bob", null, now + 48 * minute), "The lock must end after the lock time");
+    }
+
+    private LoginAttemptService service(int maxPerUser, int maxPerIp, long maxTrackedKeys) {
+        return new LoginAttemptService(new LoginAttemptProperties(maxPerUser, maxPerIp, Duration.ofMinutes(15),
+                Duration.ofMinutes(15), maxTrackedKeys), meterRegistry);
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(int threads, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            started.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                worker.run(thread);
+            }));
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+    }
+
+}
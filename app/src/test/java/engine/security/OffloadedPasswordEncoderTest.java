@@ -0,0 +1,92 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.exception.PasswordHashingRejectedException;
+import com.messages.engine.security.OffloadedPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+class OffloadedPasswordEncoderTest {
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> new Thread(runnable, "password-hashing-0"));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void hashesOnTheExecutor() {
+        String[] hashingThread = new String[1];
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                hashingThread[0] = Thread.currentThread().getName();
+                return super.encode(rawPassword);
+            }
+        };
+        OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(bcrypt, 4, executor, Duration.ofSeconds(5));
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertTrue(hashingThread[0].startsWith("password-hashing-"));
+    }
+
+    @Test
+    void upgradesHashesOfAnotherWorkFactor() {
+        OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(new BCryptPasswordEncoder(5), 5, executor,
+                Duration.ofSeconds(5));
+
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")), "Lower factor");
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")), "Higher factor");
+        assertFalse(encoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void rejectsRequestsWhenSaturated() throws Exception {
+        OffloadedPasswordEncoder encoder = new OffloadedPasswordEncoder(new BCryptPasswordEncoder(4), 4, executor,
+                Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Queued behind the busy thread for longer than the queue timeout: rejected when it finally starts.
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("secret"),
+                Thread::startVirtualThread);
+        while (executor.getQueue().isEmpty()) {
+            Thread.onSpinWait();
+        }
+        // The queue is full: rejected at once.
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("secret"));
+
+        Thread.sleep(100);
+        release.countDown();
+        ExecutionException timedOut = assertThrows(ExecutionException.class, queued::get);
+        assertInstanceOf(PasswordHashingRejectedException.class, timedOut.getCause());
+        assertTrue(encoder.matches("secret", encoder.encode("secret")));
+    }
+
+}
@@ -0,0 +1,83 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.model.RefreshToken;
+import com.messages.engine.repository.RefreshTokenRepository;
+import com.messages.engine.security.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+class RefreshTokenServiceTest {
+
+    private final Map<String, RefreshToken> rows = new ConcurrentHashMap<>();
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+    private final RefreshTokenService service = new RefreshTokenService(repository, Duration.ofDays(30));
+
+    @BeforeEach
+    void setUp() {
+        when(repository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            rows.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(repository.findForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.deleteByFamilyId(anyString())).thenAnswer(invocation -> {
+            String familyId = invocation.getArgument(0);
+            int before = rows.size();
+            rows.values().removeIf(token -> token.getFamilyId().equals(familyId));
+            return before - rows.size();
+        });
+    }
+
+    @Test
+    void storesOnlyTheHashAndRotatesOnEachExchange() {
+        String first = service.issue(42L);
+        assertTrue(rows.values().stream().noneMatch(token -> token.getTokenHash().equals(first)));
+
+        RefreshTokenService.Rotation rotation = service.rotate(first);
+
+        assertEquals(42L, rotation.userId());
+        assertNotEquals(first, rotation.refreshToken());
+        assertEquals(42L, service.rotate(rotation.refreshToken()).userId());
+    }
+
+    @Test
+    void revokesTheFamilyWhenAUsedTokenIsPresentedAgain() {
+        String first = service.issue(42L);
+        String second = service.rotate(first).refreshToken();
+        String otherLogin = service.issue(42L);
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(first));
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(second),
+                "The tokens issued after the reused one must be revoked with it");
+        assertEquals(42L, service.rotate(otherLogin).userId(), "Other logins must not be affected");
+    }
+
+    @Test
+    void rejectsUnknownAndExpiredTokens() {
+        assertThrows(BadCredentialsException.class, () -> service.rotate("unknown"));
+
+        String token = service.issue(42L);
+        rows.values().forEach(row -> row.setExpiresAt(Instant.now().minusSeconds(1)));
+
+        assertThrows(BadCredentialsException.class, () -> service.rotate(token));
+    }
+
+}
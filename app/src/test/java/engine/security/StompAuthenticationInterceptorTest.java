@@ -0,0 +1,101 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.UserDirectoryProperties;
+import com.messages.engine.directory.LocalUserInvalidationTransport;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.model.User;
+import com.messages.engine.repository.UserRepository;
+import com.messages.engine.security.ActiveUserChecker;
+import com.messages.engine.security.ChatUserPrincipal;
+import com.messages.engine.security.JwtTokenProvider;
+import com.messages.engine.security.StompAuthenticationInterceptor;
+import com.nimbusds.jwt.JWTClaimsSet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+class StompAuthenticationInterceptorTest {
+
+    private final JwtTokenProvider jwtTokenProvider = mock(JwtTokenProvider.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final ActiveUserChecker activeUserChecker = mock(ActiveUserChecker.class);
+    private final UserDirectory userDirectory = new UserDirectory(userRepository, new LocalUserInvalidationTransport(),
+            new UserDirectoryProperties(100, Duration.ofMinutes(5), false), new SimpleMeterRegistry());
+    private final StompAuthenticationInterceptor interceptor =
+            new StompAuthenticationInterceptor(jwtTokenProvider, userDirectory, activeUserChecker);
+
+    @Test
+    void connectWithTokenStoresThePrincipalOnTheSession() {
+        when(jwtTokenProvider.verify("good"))
+                .thenReturn(Optional.of(new JWTClaimsSet.Builder().subject("alice").build()));
+        User alice = mock(User.class);
+        when(alice.getId()).thenReturn(42L);
+        when(userRepository.findByUserName("alice")).thenReturn(Optional.of(alice));
+
+        StompHeaderAccessor connect = accessor(StompCommand.CONNECT, null);
+        connect.setNativeHeader("Authorization", "Bearer good");
+        AtomicReference<Principal> sessionUser = new AtomicReference<>();
+        connect.setUserChangeCallback(sessionUser::set);
+        interceptor.preSend(message(connect), channel);
+
+        assertEquals(42L, ChatUserPrincipal.userIdOf(sessionUser.get()));
+        assertEquals("alice", sessionUser.get().getName());
+
+        // Later frames carry the cached principal and cost no verification.
+        Message<byte[]> send = message(accessor(StompCommand.SEND, sessionUser.get()));
+        assertSame(send, interceptor.preSend(send, channel));
+        verify(jwtTokenProvider).verify("good");
+        verify(userRepository).findByUserName("alice");
+    }
+
+    @Test
+    void rejectsInvalidTokensAndUnauthenticatedFrames() {
+        when(jwtTokenProvider.verify(anyString())).thenReturn(Optional.empty());
+
+        StompHeaderAccessor connect = accessor(StompCommand.CONNECT, null);
+        connect.setNativeHeader("Authorization", "Bearer forged");
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message(connect), channel));
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(message(accessor(StompCommand.CONNECT, null)), channel));
+
+        Principal handshakeOnly = () -> "mallory";
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(message(accessor(StompCommand.SEND, handshakeOnly)), channel));
+        assertThrows(AccessDeniedException.class,
+                () -> interceptor.preSend(message(accessor(StompCommand.SUBSCRIBE, null)), channel));
+        verifyNoInteractions(userRepository);
+    }
+
+    private static StompHeaderAccessor accessor(StompCommand command, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s-1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return accessor;
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+}
@@ -0,0 +1,71 @@
+package engine.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.repository.RevokedTokenRepository;
+import com.messages.engine.security.TokenRevocationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+class TokenRevocationServiceTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenRevocationService service = new TokenRevocationService(repository, 10_000, 0.01,
+            Duration.ofSeconds(30), meterRegistry);
+
+    @Test
+    void checksValidTokensInMemory() {
+        service.revoke("revoked", Instant.now().plusSeconds(60));
+
+        int valid = 10_000;
+        for (int i = 0; i < valid; i++) {
+            assertFalse(service.isRevoked(UUID.randomUUID().toString()));
+        }
+
+        assertTrue(service.isRevoked("revoked"));
+        // Only the filter's false positives reach the table: about 1% of the valid tokens.
+        verify(repository, atMost(valid / 50)).existsById(anyString());
+        assertEquals(1.0, meterRegistry.get("jwt.revocation.lookups").tag("result", "revoked").counter().count());
+    }
+
+    @Test
+    void picksUpRevocationsOfOtherNodesOnRebuild() {
+        when(repository.findJtisExpiringAfter(any())).thenReturn(List.of("elsewhere"));
+        when(repository.existsById("elsewhere")).thenReturn(true);
+        assertFalse(service.isRevoked("elsewhere"));
+
+        service.rebuild();
+
+        assertTrue(service.isRevoked("elsewhere"));
+        assertEquals(1.0, meterRegistry.get("jwt.revocation.revoked").gauge().value());
+        verify(repository).deleteExpiredBefore(any());
+    }
+
+    @Test
+    void keepsRevocationsMadeDuringARebuild() {
+        // Revoked while the rebuild queries the table: missing from its result.
+        when(repository.findJtisExpiringAfter(any())).thenAnswer(invocation -> {
+            service.revoke("local", Instant.now().plusSeconds(60));
+            return List.of();
+        });
+
+        service.rebuild();
+
+        assertTrue(service.isRevoked("local"));
+    }
+
+}
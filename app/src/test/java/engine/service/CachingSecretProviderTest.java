@@ -0,0 +1,87 @@
+package engine.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.exception.SecretManagerException;
+import com.messages.engine.service.CachingSecretProvider;
+import com.messages.engine.service.SecretProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class CachingSecretProviderTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicReference<String> value = new AtomicReference<>("v1");
+
+    private final SecretProvider source = secretName -> {
+        loads.incrementAndGet();
+        String current = value.get();
+        if (current == null) {
+            throw new SecretManagerException("Secret Manager is unavailable");
+        }
+        return current;
+    };
+
+    @Test
+    void loadsOnceThenRefreshesAheadAndServesStaleValuesOnError() throws Exception {
+        CachingSecretProvider secrets = new CachingSecretProvider(source, Duration.ofMillis(50), Runnable::run,
+                new SimpleMeterRegistry());
+
+        assertEquals("v1", secrets.getSecret("key"));
+        assertEquals("v1", secrets.getSecret("key"));
+        assertEquals(1, loads.get(), "A cached secret must not be reloaded before it is due");
+
+        value.set(null);
+        Thread.sleep(100);
+        assertEquals("v1", secrets.getSecret("key"), "A failed refresh must keep serving the cached value");
+        assertEquals(2, loads.get());
+
+        value.set("v2");
+        Thread.sleep(100);
+        secrets.getSecret("key");
+        assertEquals("v2", secrets.getSecret("key"), "A successful refresh must replace the cached value");
+    }
+
+    @Test
+    void reportsSecretsThatWereNeverLoaded() {
+        value.set(null);
+        CachingSecretProvider secrets = new CachingSecretProvider(source, Duration.ofMinutes(10), Runnable::run,
+                new SimpleMeterRegistry());
+
+        assertThrows(SecretManagerException.class, () -> secrets.getSecret("key"));
+        value.set("v1");
+        assertEquals("v1", secrets.getSecret("key"), "Failed loads must not be cached");
+    }
+
+    @Test
+    void loadsSeveralSecretsConcurrently() throws Exception {
+        CountDownLatch bothLoading = new CountDownLatch(2);
+        SecretProvider slowSource = secretName -> {
+            bothLoading.countDown();
+            try {
+                // Completes only if the other secret is being loaded at the same time.
+                assertTrue(bothLoading.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return secretName.toUpperCase();
+        };
+        CachingSecretProvider secrets = new CachingSecretProvider(slowSource, Duration.ofMinutes(10),
+                task -> Thread.ofVirtual().start(task), new SimpleMeterRegistry());
+
+        Map<String, String> values = secrets.getSecrets(List.of("private", "public"));
+
+        assertEquals(Map.of("private", "PRIVATE", "public", "PUBLIC"), values);
+    }
+
+}
@@ -0,0 +1,128 @@
+package engine.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.concurrent.KeyedOrderedExecutor;
+import com.messages.engine.config.ExecutorProperties;
+import com.messages.engine.config.ProcessingProperties;
+import com.messages.engine.directory.UserDirectory;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageResult;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.dto.MessageResponse;
+import com.messages.engine.repository.ConversationRepository;
+import com.messages.engine.repository.UserRepository;
+import com.messages.engine.service.MessageService;
+import com.messages.engine.service.MessageTypeProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+class MessageTypeProcessorTest {
+
+    private final MessageService messageService = mock(MessageService.class);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MessageTypeProcessor processor = new MessageTypeProcessor(messageService,
+            mock(UserRepository.class), mock(UserDirectory.class), mock(ConversationRepository.class),
+            new KeyedOrderedExecutor<>("test", executor, 10, meterRegistry),
+            mock(PlatformTransactionManager.class),
+            new ProcessingProperties(new ExecutorProperties(true, 1, 1, 1, Duration.ofSeconds(1)),
+                    Duration.ofMillis(200), 10),
+            meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void processesOnTheExecutorWithoutBlockingTheCaller() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        MessageResponse saved = mock(MessageResponse.class);
+        when(saved.getId()).thenReturn(99L);
+        when(messageService.createMessage(any())).thenAnswer(invocation -> {
+            worker.set(Thread.currentThread());
+            release.await();
+            return saved;
+        });
+
+        CompletableFuture<ChatMessageResult> result = processor.processMessageType(message());
+
+        assertFalse(result.isDone(), "The caller gets a pending future back");
+        release.countDown();
+        assertEquals(99L, result.join().message().id());
+        assertNotEquals(Thread.currentThread(), worker.get());
+    }
+
+    @Test
+    void propagatesFailuresTimeoutsAndRejections() {
+        when(messageService.createMessage(any())).thenThrow(new IllegalStateException("db down"));
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> processor.processMessageType(message()).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+
+        executor.shutdownNow();
+        CompletionException rejected = assertThrows(CompletionException.class,
+                () -> processor.processMessageType(message(3L)).join());
+        assertInstanceOf(RejectedExecutionException.class, rejected.getCause());
+    }
+
+    @Test
+    void skipsMessagesNotStartedByTheirDeadlineAndFinishesStartedOnes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        MessageResponse saved = mock(MessageResponse.class);
+        when(saved.getId()).thenReturn(99L);
+        doAnswer(invocation -> {
+            release.await();
+            return saved;
+        }).when(messageService).createMessage(any());
+
+        CompletableFuture<ChatMessageResult> started = processor.processMessageType(message());
+        CompletableFuture<ChatMessageResult> queued = processor.processMessageType(message());
+
+        CompletionException timeout = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertFalse(started.isDone(), "A started message is not reported as failed while it may still commit");
+        assertEquals(1.0, meterRegistry.get("chat.processing.timeouts").counter().count());
+
+        release.countDown();
+        assertEquals(99L, started.join().message().id());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        verify(messageService, times(1)).createMessage(any());
+    }
+
+    private static ChatMessage message() {
+        return message(2L);
+    }
+
+    private static ChatMessage message(Long conversationId) {
+        return new ChatMessage(null, ChatMessageType.CHAT, "hello", 1L, conversationId);
+    }
+
+}
@@ -0,0 +1,87 @@
+package engine.transport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.concurrent.KeyedOrderedExecutor;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageResult;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.service.ChatMessageHandler;
+import com.messages.engine.service.ChatMessageListener;
+import com.messages.engine.transport.RingBufferChatMessageTransport;
+import com.messages.engine.websocket.ConversationBroadcaster;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class RingBufferChatMessageTransportTest {
+
+    private final ExecutorService threads = Executors.newFixedThreadPool(4);
+    private final KeyedOrderedExecutor<Long> executor =
+            new KeyedOrderedExecutor<>("test", threads, 100, new SimpleMeterRegistry());
+    private final ChatMessageHandler handler = mock(ChatMessageHandler.class);
+    private final ConversationBroadcaster broadcaster = mock(ConversationBroadcaster.class);
+    private final RingBufferChatMessageTransport transport =
+            new RingBufferChatMessageTransport(new ChatMessageListener(broadcaster, handler), 16, 4, 8);
+
+    @AfterEach
+    void shutDown() throws InterruptedException {
+        transport.shutdown();
+        threads.shutdownNow();
+    }
+
+    @Test
+    void processesConversationsConcurrentlyAndEachOneInOrder() throws InterruptedException {
+        CountDownLatch secondConversationStarted = new CountDownLatch(1);
+        CountDownLatch firstConversationWaited = new CountDownLatch(1);
+        when(handler.handleChatMessage(any())).thenAnswer(invocation -> {
+            ChatMessage message = invocation.getArgument(0);
+            CompletableFuture<ChatMessageResult> result = new CompletableFuture<>();
+            executor.execute(message.conversationId(), () -> {
+                if (message.conversationId() == 2L) {
+                    secondConversationStarted.countDown();
+                } else if (message.content().equals("1a")) {
+                    // Completes only if the other conversation is processed meanwhile.
+                    try {
+                        if (secondConversationStarted.await(5, TimeUnit.SECONDS)) {
+                            firstConversationWaited.countDown();
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                result.complete(new ChatMessageResult(message, "Message saved"));
+            });
+            return result;
+        });
+
+        transport.publish(message("1a", 1L));
+        transport.publish(message("1b", 1L));
+        transport.publish(message("2a", 2L));
+
+        assertTrue(firstConversationWaited.await(5, TimeUnit.SECONDS),
+                "Conversation 2 was processed while conversation 1 was busy");
+        InOrder order = inOrder(broadcaster);
+        order.verify(broadcaster, timeout(5_000)).broadcast(message("1a", 1L));
+        order.verify(broadcaster, timeout(5_000)).broadcast(message("1b", 1L));
+        verify(broadcaster, timeout(5_000)).broadcast(message("2a", 2L));
+    }
+
+    private static ChatMessage message(String content, Long conversationId) {
+        return new ChatMessage(null, ChatMessageType.CHAT, content, 42L, conversationId);
+    }
+
+}
@@ -0,0 +1,75 @@
+package engine.transport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.transport.RingBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class RingBufferTest {
+
+    @Test
+    void deliversEveryEventInPublishOrderPerProducer() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        List<long[]> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(producers * perProducer);
+        // Small buffer so producers regularly wrap and wait for the consumer.
+        RingBuffer<long[]> ringBuffer = new RingBuffer<>(64, 16, (event, sequence, endOfBatch) -> {
+            received.add(event);
+            done.countDown();
+        }, "test-ring-buffer");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            Thread thread = new Thread(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    ringBuffer.publish(new long[]{producer, i});
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS), "All events should be delivered");
+        long[] lastSeen = {-1, -1, -1, -1};
+        for (long[] event : received) {
+            int producer = (int) event[0];
+            assertEquals(lastSeen[producer] + 1, event[1], "Events of one producer must stay in order");
+            lastSeen[producer] = event[1];
+        }
+        ringBuffer.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void handlerFailureReleasesTheSlotAndContinues() throws Exception {
+        CountDownLatch done = new CountDownLatch(3);
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(2, 1, (event, sequence, endOfBatch) -> {
+            done.countDown();
+            if (event == 1) {
+                throw new IllegalStateException("boom");
+            }
+        }, "test-ring-buffer");
+
+        ringBuffer.publish(0);
+        ringBuffer.publish(1);
+        ringBuffer.publish(2);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "Events after a failure should still be delivered");
+        ringBuffer.shutdown(1, TimeUnit.SECONDS);
+        assertEquals(0, ringBuffer.backlog());
+        assertThrows(IllegalStateException.class, () -> ringBuffer.publish(3));
+    }
+
+}
@@ -0,0 +1,70 @@
+package engine.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.websocket.CompactChatMessageCodec;
+import com.messages.engine.websocket.CompactChatMessageConverter;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+class CompactChatMessageCodecTest {
+
+    @Test
+    void roundTripsMessagesWithAndWithoutOptionalFields() {
+        ChatMessage full = new ChatMessage(Long.MAX_VALUE, ChatMessageType.CHAT, "héllo 👋", 10_001L, 300L);
+        ChatMessage sparse = new ChatMessage(null, ChatMessageType.LEAVE, null, 7L, null);
+
+        assertEquals(full, CompactChatMessageCodec.decode(CompactChatMessageCodec.encode(full)));
+        assertEquals(sparse, CompactChatMessageCodec.decode(CompactChatMessageCodec.encode(sparse)));
+
+        byte[] encoded = CompactChatMessageCodec.encode(
+                new ChatMessage(1_250_000L, ChatMessageType.CHAT, "hi", 10_001L, 1L));
+        // version, type, fields, 3-byte id, 2-byte user id, 1-byte conversation id, length, content
+        assertEquals(12, encoded.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> CompactChatMessageCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+
+        // A 10-byte length varint with bit 63 set decodes to a negative length.
+        byte[] header = Arrays.copyOf(CompactChatMessageCodec.encode(
+                new ChatMessage(null, ChatMessageType.CHAT, "hi", null, null)), 3);
+        byte[] negativeLength = Arrays.copyOf(header, header.length + 12);
+        Arrays.fill(negativeLength, header.length, header.length + 9, (byte) 0xFF);
+        negativeLength[header.length + 9] = 0x01;
+        negativeLength[header.length + 10] = 'h';
+        negativeLength[header.length + 11] = 'i';
+        assertThrows(IllegalArgumentException.class, () -> CompactChatMessageCodec.decode(negativeLength));
+    }
+
+    @Test
+    void converterOnlyHandlesOctetStreamFrames() {
+        CompactChatMessageConverter converter = new CompactChatMessageConverter();
+        ChatMessage chatMessage = new ChatMessage(5L, ChatMessageType.CHAT, "hi", 1L, 2L);
+
+        MessageHeaders binary = new MessageHeaders(
+                Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+        Message<?> encoded = converter.toMessage(chatMessage, binary);
+        assertArrayEquals(CompactChatMessageCodec.encode(chatMessage), (byte[]) encoded.getPayload());
+        assertEquals(chatMessage, converter.fromMessage(encoded, ChatMessage.class));
+
+        assertNull(converter.toMessage(chatMessage, new MessageHeaders(Map.of())), "JSON stays the default");
+        Message<byte[]> json = MessageBuilder.withPayload("{}".getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                .build();
+        assertNull(converter.fromMessage(json, ChatMessage.class));
+        assertTrue(converter.getSupportedMimeTypes().contains(MimeTypeUtils.APPLICATION_OCTET_STREAM));
+    }
+
+}
@@ -0,0 +1,71 @@
+package engine.websocket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.messages.engine.config.WebSocketConfig;
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.websocket.ConversationBroadcaster;
+import com.messages.engine.websocket.ConversationReplayService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+
+class ConversationBroadcasterTest {
+
+    private static final String BATCH_TOPIC = WebSocketConfig.conversationBatchTopic(7L);
+
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private ConversationBroadcaster broadcaster;
+
+    @AfterEach
+    void shutDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void sendsABatchOnceItsWindowHasElapsed() {
+        broadcaster = broadcaster(300, 50);
+
+        broadcaster.broadcast(message(1));
+        broadcaster.broadcast(message(2));
+
+        verify(messagingTemplate).convertAndSend(WebSocketConfig.conversationTopic(7L), message(1));
+        verify(messagingTemplate, after(150).never()).convertAndSend(eq(BATCH_TOPIC), any(Object.class));
+        verify(messagingTemplate, timeout(1_000)).convertAndSend(BATCH_TOPIC, List.of(message(1), message(2)));
+    }
+
+    @Test
+    void sendsAFullBatchAtOnceAndIgnoresItsWindowTimer() throws InterruptedException {
+        broadcaster = broadcaster(500, 2);
+
+        broadcaster.broadcast(message(1));
+        broadcaster.broadcast(message(2));
+        verify(messagingTemplate, timeout(200)).convertAndSend(BATCH_TOPIC, List.of(message(1), message(2)));
+
+        // The next batch opens before the window timer of the first one fires, which must not send it.
+        Thread.sleep(250);
+        broadcaster.broadcast(message(3));
+        verify(messagingTemplate, after(400).never()).convertAndSend(BATCH_TOPIC, List.of(message(3)));
+        verify(messagingTemplate, timeout(1_000)).convertAndSend(BATCH_TOPIC, List.of(message(3)));
+        verify(messagingTemplate, never()).convertAndSend(BATCH_TOPIC, List.of());
+    }
+
+    private ConversationBroadcaster broadcaster(long windowMillis, int maxBatchSize) {
+        return new ConversationBroadcaster(messagingTemplate, mock(ConversationReplayService.class),
+                true, windowMillis, maxBatchSize, false);
+    }
+
+    private static ChatMessage message(long id) {
+        return new ChatMessage(id, ChatMessageType.CHAT, "m" + id, 42L, 7L);
+    }
+
+}
@@ -0,0 +1,56 @@
+package engine.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.messages.engine.dto.ChatMessage;
+import com.messages.engine.dto.ChatMessageType;
+import com.messages.engine.websocket.ConversationReplayBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+class ConversationReplayBufferTest {
+
+    @Test
+    void replaysFromMemoryOnlyWhileTheGapIsBuffered() {
+        ConversationReplayBuffer buffer = new ConversationReplayBuffer(4);
+        LongStream.of(10, 12, 15).forEach(id -> buffer.append(message(id)));
+
+        assertEquals(List.of(12L, 15L), ids(buffer.messagesAfter(10)));
+        assertEquals(List.of(), ids(buffer.messagesAfter(15)));
+        assertNull(buffer.messagesAfter(9), "Messages before the first buffered one are unknown");
+
+        LongStream.of(20, 21).forEach(id -> buffer.append(message(id)));
+        // 10 was evicted: a client that saw 10 missed nothing that is not buffered, one that saw less may have.
+        assertEquals(List.of(12L, 15L, 20L, 21L), ids(buffer.messagesAfter(10)));
+        assertNull(buffer.messagesAfter(8));
+    }
+
+    @Test
+    void seedingMergesPersistedAndLiveMessages() {
+        ConversationReplayBuffer buffer = new ConversationReplayBuffer(4);
+        buffer.append(message(30));
+
+        buffer.seed(List.of(message(5), message(12), message(20), message(30)), false);
+
+        assertEquals(List.of(12L, 20L, 30L), ids(buffer.messagesAfter(5)));
+        assertNull(buffer.messagesAfter(4));
+
+        ConversationReplayBuffer complete = new ConversationReplayBuffer(4);
+        complete.seed(List.of(message(3)), true);
+        assertEquals(List.of(3L), ids(complete.messagesAfter(0)));
+        complete.append(message(7));
+        assertEquals(List.of(3L, 7L), ids(complete.messagesAfter(0)));
+    }
+
+    private static ChatMessage message(long id) {
+        return new ChatMessage(id, ChatMessageType.CHAT, "m" + id, 1L, 1L);
+    }
+
+    private static List<Long> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::id).toList();
+    }
+
+}
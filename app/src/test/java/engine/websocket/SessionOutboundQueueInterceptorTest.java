@@ -0,0 +1,144 @@
+package engine.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.messages.engine.config.WebSocketChannelProperties;
+import com.messages.engine.config.WebSocketChannelProperties.SlowConsumerPolicy;
+import com.messages.engine.websocket.SessionOutboundQueueInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class SessionOutboundQueueInterceptorTest {
+
+    private static final String SESSION_ID = "s-1";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private final List<Message<?>> delivered = new CopyOnWriteArrayList<>();
+    private final WebSocketSession session = mock(WebSocketSession.class);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestFramesInOrder() throws Exception {
+        ExecutorSubscribableChannel channel = channel(SlowConsumerPolicy.DROP_OLDEST);
+        for (int i = 0; i < 10; i++) {
+            channel.send(frame("sub-0", i));
+        }
+        gate.countDown();
+        awaitDelivered(4);
+
+        assertEquals(List.of("0", "7", "8", "9"), delivered.stream().map(this::body).toList());
+    }
+
+    @Test
+    void resyncReplacesTheBacklogWithAMarkerPerSubscription() throws Exception {
+        ExecutorSubscribableChannel channel = channel(SlowConsumerPolicy.RESYNC);
+        for (int i = 0; i < 10; i++) {
+            channel.send(frame("sub-0", i));
+        }
+        gate.countDown();
+        // The first frame was in flight; the other nine are either delivered or counted by the markers.
+        awaitDelivered(2);
+        Thread.sleep(100);
+
+        assertEquals("0", body(delivered.get(0)));
+        long missed = 0;
+        int markers = 0;
+        for (Message<?> message : delivered.subList(1, delivered.size())) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+            if (accessor.getFirstNativeHeader(SessionOutboundQueueInterceptor.RESYNC_HEADER) != null) {
+                markers++;
+                missed += Long.parseLong(accessor.getFirstNativeHeader(SessionOutboundQueueInterceptor.MISSED_HEADER));
+                assertEquals("sub-0", accessor.getSubscriptionId());
+            } else {
+                missed++;
+            }
+        }
+        assertEquals(1, markers);
+        assertEquals(9, missed);
+    }
+
+    @Test
+    void disconnectClosesTheSlowSession() throws Exception {
+        ExecutorSubscribableChannel channel = channel(SlowConsumerPolicy.DISCONNECT);
+        for (int i = 0; i < 10; i++) {
+            channel.send(frame("sub-0", i));
+        }
+        gate.countDown();
+        awaitDelivered(1);
+        Thread.sleep(100);
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(1, delivered.size());
+    }
+
+    private ExecutorSubscribableChannel channel(SlowConsumerPolicy policy) throws Exception {
+        WebSocketChannelProperties properties = new WebSocketChannelProperties(null, null, null,
+                new WebSocketChannelProperties.SlowConsumer(true, 3, 1_048_576, 2, policy), null);
+        SessionOutboundQueueInterceptor interceptor =
+                new SessionOutboundQueueInterceptor(properties, new SimpleMeterRegistry());
+        when(session.getId()).thenReturn(SESSION_ID);
+        interceptor.decorate(mock(WebSocketHandler.class)).afterConnectionEstablished(session);
+
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+        channel.addInterceptor(interceptor);
+        channel.subscribe(message -> {
+            try {
+                // The client reads nothing until the gate opens.
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(message);
+        });
+        return channel;
+    }
+
+    private static Message<byte[]> frame(String subscriptionId, int index) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination("/topic/conversations.1");
+        return MessageBuilder.createMessage(String.valueOf(index).getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders());
+    }
+
+    private String body(Message<?> message) {
+        return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (delivered.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(delivered.size() >= count, "Expected at least " + count + " delivered frames");
+    }
+
+}